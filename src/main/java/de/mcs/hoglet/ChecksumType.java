@@ -0,0 +1,108 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet;
+
+import java.util.zip.Checksum;
+
+import de.mcs.utils.XXHash64;
+
+/**
+ * The checksum over the stored data of every vLog entry. The id is written into the header of the entry, so entries
+ * with different checksums can be read from the same file.
+ * 
+ * @author w.klaas
+ *
+ */
+public enum ChecksumType {
+  /**
+   * no checksum, a torn write at the end of a vLog can only be detected by its length
+   */
+  NONE(0),
+  /**
+   * crc32 of java.util.zip, the checksum of all entries before header version 4
+   */
+  CRC32(1),
+  /**
+   * crc32c, hardware accelerated on most cpus
+   */
+  CRC32C(2),
+  /**
+   * 64 bit xxHash, fast in software
+   */
+  XXHASH64(3);
+
+  private static final Checksum NO_CHECKSUM = new Checksum() {
+    @Override
+    public void update(int b) {
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+    }
+
+    @Override
+    public long getValue() {
+      return 0;
+    }
+
+    @Override
+    public void reset() {
+    }
+  };
+
+  private final int id;
+
+  ChecksumType(int id) {
+    this.id = id;
+  }
+
+  /**
+   * @return the id of the checksum in the vLog header
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * @return a new instance of the checksum, for {@link #NONE} a checksum, which is always 0
+   */
+  public Checksum newChecksum() {
+    switch (this) {
+    case CRC32:
+      return new java.util.zip.CRC32();
+    case CRC32C:
+      return new java.util.zip.CRC32C();
+    case XXHASH64:
+      return new XXHash64();
+    default:
+      return NO_CHECKSUM;
+    }
+  }
+
+  /**
+   * @param id
+   *          the id of the checksum
+   * @return the checksum type or <code>null</code>, if the id is unknown
+   */
+  public static ChecksumType fromId(int id) {
+    for (ChecksumType type : values()) {
+      if (type.id == id) {
+        return type;
+      }
+    }
+    return null;
+  }
+}
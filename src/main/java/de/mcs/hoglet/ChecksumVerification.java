@@ -0,0 +1,37 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet;
+
+/**
+ * When the checksum of a value is verified on reading it from the vLog.
+ * 
+ * @author w.klaas
+ *
+ */
+public enum ChecksumVerification {
+  /**
+   * the checksum is never verified, the disk is trusted
+   */
+  NEVER,
+  /**
+   * the checksum of every checksumSampleRate-th read is verified
+   */
+  SAMPLED,
+  /**
+   * the checksum of every read is verified, reads of not compressed values lose the zero copy path
+   */
+  ALWAYS;
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet;
+
+/**
+ * The durability of a write, when the written data is synced from the vLog to the disk.
+ * 
+ * @author w.klaas
+ *
+ */
+public enum Durability {
+  /**
+   * every write is synced, before the write returns
+   */
+  ALWAYS,
+  /**
+   * the data is synced in the background every syncInterval ms
+   */
+  INTERVAL,
+  /**
+   * the data is synced in the background after syncBytes written bytes
+   */
+  BYTES,
+  /**
+   * the sync is left to the operating system
+   */
+  OS;
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * group commit of concurrent writers. Every writer enqueues his write, the first writer in the queue becomes the leader
+ * and writes the writes of all waiting writers as one batch. All other writers are waiting until their write is done.
+ * 
+ * @author w.klaas
+ *
+ * @param <T>
+ *          type of a write
+ */
+public class GroupCommit<T> {
+
+  /**
+   * writing a batch of writes.
+   */
+  public interface BatchWriter<T> {
+    void write(List<T> batch) throws IOException;
+  }
+
+  private static class Request<T> {
+    private T write;
+    private long bytes;
+    // taken into the batch of a leader, the request must not leave the queue anymore
+    private boolean taken;
+    private boolean done;
+    private IOException error;
+
+    private Request(T write, long bytes) {
+      this.write = write;
+      this.bytes = bytes;
+    }
+  }
+
+  private BatchWriter<T> batchWriter;
+  private long maxBatchBytes;
+  private long maxWait;
+  private ReentrantLock lock;
+  private Condition changed;
+  private Condition arrived;
+  private Deque<Request<T>> queue;
+  private long queuedBytes;
+  private volatile long batchCount;
+  private volatile long writeCount;
+
+  /**
+   * @param batchWriter
+   *          the writer of the batches
+   * @param maxBatchBytes
+   *          maximum bytes of a batch, a single bigger write is written as a batch of its own
+   * @param maxWait
+   *          maximum time in ms the leader waits for more writes, 0 for no waiting
+   */
+  public GroupCommit(BatchWriter<T> batchWriter, long maxBatchBytes, long maxWait) {
+    this.batchWriter = batchWriter;
+    this.maxBatchBytes = maxBatchBytes;
+    this.maxWait = maxWait;
+    this.lock = new ReentrantLock();
+    this.changed = lock.newCondition();
+    this.arrived = lock.newCondition();
+    this.queue = new ArrayDeque<>();
+  }
+
+  /**
+   * committing a write. Returns, when the write is done by this or another thread.
+   * 
+   * @param write
+   *          the write
+   * @param bytes
+   *          the size of the write
+   * @throws IOException
+   *           if the batch containing this write fails
+   */
+  public void commit(T write, long bytes) throws IOException {
+    Request<T> request = new Request<>(write, bytes);
+    List<Request<T>> batch = new ArrayList<>();
+    lock.lock();
+    try {
+      queue.addLast(request);
+      queuedBytes += bytes;
+      arrived.signal();
+      while (!request.done && (queue.peekFirst() != request)) {
+        try {
+          changed.await();
+        } catch (InterruptedException e) {
+          if (!request.taken) {
+            throw e;
+          }
+          // the leader is writing this request, the result must be awaited
+          awaitDone(request);
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (request.done) {
+        if (request.error != null) {
+          throw request.error;
+        }
+        return;
+      }
+      // this writer is the leader, waiting for some more writers to fill the batch
+      if (maxWait > 0) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+        while ((queuedBytes < maxBatchBytes) && (nanos > 0)) {
+          nanos = arrived.awaitNanos(nanos);
+        }
+      }
+      long batchBytes = 0;
+      for (Iterator<Request<T>> iterator = queue.iterator(); iterator.hasNext();) {
+        Request<T> next = iterator.next();
+        if (!batch.isEmpty() && (batchBytes + next.bytes > maxBatchBytes)) {
+          break;
+        }
+        batch.add(next);
+        batchBytes += next.bytes;
+      }
+      batch.forEach(next -> next.taken = true);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // the write is not done, the next writer in the queue will take over
+      queue.remove(request);
+      queuedBytes -= bytes;
+      changed.signalAll();
+      throw new HogletDBException("interrupted while waiting for group commit.");
+    } finally {
+      lock.unlock();
+    }
+
+    IOException error = null;
+    try {
+      List<T> writes = new ArrayList<>(batch.size());
+      batch.forEach(next -> writes.add(next.write));
+      batchWriter.write(writes);
+    } catch (IOException e) {
+      error = e;
+    } catch (RuntimeException e) {
+      error = new HogletDBException(e);
+    }
+
+    lock.lock();
+    try {
+      for (Request<T> next : batch) {
+        queue.removeFirstOccurrence(next);
+        queuedBytes -= next.bytes;
+        next.error = error;
+        next.done = true;
+      }
+      batchCount++;
+      writeCount += batch.size();
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  /**
+   * waiting for the result of a request taken by the leader, ignoring interrupts. Must be called with the lock held.
+   */
+  private void awaitDone(Request<T> request) {
+    while (!request.done) {
+      changed.awaitUninterruptibly();
+    }
+  }
+
+  /**
+   * @return the number of written batches
+   */
+  public long getBatchCount() {
+    return batchCount;
+  }
+
+  /**
+   * @return the number of written writes
+   */
+  public long getWriteCount() {
+    return writeCount;
+  }
+}
@@ -21,14 +21,55 @@ package de.mcs.hoglet;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang3.StringUtils;
 
+import de.mcs.hoglet.compaction.CompactionEngine;
+import de.mcs.hoglet.compaction.CompactionStatistics;
+import de.mcs.hoglet.memorytable.MemoryTable;
+import de.mcs.hoglet.memorytable.SkipListMemoryTable;
+import de.mcs.hoglet.sst.SSTIdentity;
+import de.mcs.hoglet.sst.SSTableList;
+import de.mcs.hoglet.sst.SSTableReader;
+import de.mcs.hoglet.sst.SSTableWriter;
 import de.mcs.hoglet.vlog.VLog;
+import de.mcs.hoglet.vlog.VLogCheckpoint;
+import de.mcs.hoglet.vlog.VLogChecksumVerifier;
+import de.mcs.hoglet.vlog.VLogChunkInputStream;
+import de.mcs.hoglet.vlog.VLogChunkList;
+import de.mcs.hoglet.vlog.VLogDescriptor;
+import de.mcs.hoglet.vlog.VLogEntryDescription;
 import de.mcs.hoglet.vlog.VLogEntryInfo;
+import de.mcs.hoglet.vlog.VLogEntryIterator;
+import de.mcs.hoglet.vlog.VLogGarbageCollector;
+import de.mcs.hoglet.vlog.VLogIndex;
+import de.mcs.hoglet.vlog.VLogLedger.VLogUsage;
 import de.mcs.hoglet.vlog.VLogList;
-import de.mcs.utils.ByteArrayUtils;
+import de.mcs.hoglet.vlog.VLogPosition;
+import de.mcs.hoglet.vlog.VLogSyncer;
 import de.mcs.utils.logging.Logger;
 
 /**
@@ -37,12 +78,30 @@ import de.mcs.utils.logging.Logger;
  */
 public class HogletDB implements Closeable {
   private Logger log = Logger.getLogger(this.getClass());
-  private static final String DEFAULT_COLLECTION = "default";
+  static final String DEFAULT_COLLECTION = "default";
+  // if more tables are waiting for the flush, writers will wait for the flush
+  private static final int MAX_WAITING_TABLES = 4;
   private Options options;
-  // TODO remove map implementation
-  private HashMap<String, byte[]> map;
+  private volatile MemoryTable memoryTable;
+  // full memory tables waiting for the flush, newest first
+  private Deque<MemoryTable> immutableTables;
+  // writers share the read lock, switching the memory table needs the write lock
+  private ReentrantReadWriteLock tableLock;
+  // readers share the read lock, applying a write batch to the memory table needs the write lock
+  private ReentrantReadWriteLock applyLock;
+  // the end of the vLog at the switch of the memory table, the checkpoint after the flush of the table
+  private Map<MemoryTable, VLogPosition> tableHeads;
+  private GroupCommit<PendingWrite> groupCommit;
+  private Durability durability;
+  private VLogSyncer vLogSyncer;
+  private ExecutorService flushExecutor;
+  // the blocking I/O of the asynchronous operations runs here, never on the thread of the caller
+  private ExecutorService ioExecutor;
 
   private VLogList vLogList;
+  private SSTableList sstList;
+  private CompactionEngine compactionEngine;
+  private VLogGarbageCollector vLogGarbageCollector;
 
   /**
    * create a new instance of the hoglet key value store with specifig options.
@@ -65,9 +124,93 @@ public class HogletDB implements Closeable {
     if (!dbFolder.exists()) {
       dbFolder.mkdirs();
     }
-    // TODO remove map implementation
-    map = new HashMap<String, byte[]>();
+    memoryTable = new SkipListMemoryTable(options);
+    immutableTables = new ConcurrentLinkedDeque<>();
+    tableLock = new ReentrantReadWriteLock();
+    applyLock = new ReentrantReadWriteLock();
+    tableHeads = new ConcurrentHashMap<>();
+    vLogSyncer = new VLogSyncer(options);
+    durability = vLogSyncer.getDurability();
+    if (options.isGroupCommit()) {
+      groupCommit = new GroupCommit<>(this::writeBatch, options.getGroupCommitMaxBatchBytes(),
+          options.getGroupCommitMaxWait());
+    }
+    flushExecutor = Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "hoglet-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    AtomicInteger ioThreadCount = new AtomicInteger();
+    ioExecutor = Executors.newFixedThreadPool(Math.max(1, options.getIoThreads()), r -> {
+      Thread thread = new Thread(r, "hoglet-io-" + ioThreadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
     vLogList = new VLogList(options);
+    try {
+      sstList = new SSTableList(options);
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    }
+    compactionEngine = new CompactionEngine(options, sstList);
+    compactionEngine.setListener(dropped -> dropped.forEach(this::addDead));
+    recover();
+    compactionEngine.maybeScheduleCompaction();
+    vLogGarbageCollector = new VLogGarbageCollector(options, vLogList, new GarbageCollectorIndex());
+  }
+
+  /**
+   * replaying all entries of the vLog after the checkpoint into the memory table. Only these entries could be lost, all
+   * entries before the checkpoint are persisted in the index files. A write batch is only replayed, if it's complete.
+   */
+  private void recover() throws HogletDBException {
+    VLogCheckpoint checkpoint = vLogList.getCheckpoint();
+    long count = 0;
+    for (String name : vLogList.getVLogNames()) {
+      long start = checkpoint.getReplayStart(name);
+      if (start < 0) {
+        continue;
+      }
+      try {
+        VLog vLog = vLogList.getVLog(name);
+        try (VLogEntryIterator iterator = vLog.getIterator(start)) {
+          while (iterator.hasNext()) {
+            VLogEntryDescription entry = iterator.next();
+            List<VLogEntryDescription> entries = new ArrayList<>();
+            if (entry.isBatchMarker()) {
+              int size = ByteBuffer.wrap(vLog.getValue(entry.getStartBinary(), (int) entry.getLength())).getInt();
+              while ((entries.size() < size) && iterator.hasNext()) {
+                entries.add(iterator.next());
+              }
+              if (entries.size() < size) {
+                log.warn(String.format("incomplete write batch in vlog %s skipped", name));
+                break;
+              }
+            } else if (!entry.isValueChunk() && !checkpoint.isDiscarded(name, entry.getStart())) {
+              // the chunks of a large value are only reachable over the chunk list
+              entries.add(entry);
+            }
+            for (VLogEntryDescription description : entries) {
+              memoryTable.add(MapKey.buildPrefixedKey(description.getCollection(), description.getKey()),
+                  description.getEntryInfo());
+              count++;
+            }
+            if (memoryTable.isFull()) {
+              // the entries behind the replay position are not in the table, the end of the vLog is no checkpoint yet
+              VLogEntryDescription last = entries.isEmpty() ? entry : entries.get(entries.size() - 1);
+              switchMemoryTable(false, new VLogPosition(name, last.getEnd() + 1));
+            }
+          }
+        }
+      } catch (IOException e) {
+        throw new HogletDBException(String.format("error recovering vlog %s", name), e);
+      } catch (UncheckedIOException e) {
+        throw new HogletDBException(String.format("error recovering vlog %s", name), e.getCause());
+      }
+    }
+    if (count > 0) {
+      log.info("%d entries recovered from the vlog.", count);
+    }
   }
 
   /**
@@ -102,7 +245,7 @@ public class HogletDB implements Closeable {
    * @return the value
    */
   public byte[] put(byte[] key, byte[] value) throws HogletDBException {
-    return putKey(DEFAULT_COLLECTION, key, value);
+    return putKey(DEFAULT_COLLECTION, key, value, durability);
   }
 
   /**
@@ -110,10 +253,10 @@ public class HogletDB implements Closeable {
    * 
    * @param key
    *          the key to remove
-   * @return the value
+   * @return <code>true</code> if the key was present
    */
-  public byte[] remove(byte[] key) throws HogletDBException {
-    return removeKey(DEFAULT_COLLECTION, key);
+  public boolean remove(byte[] key) throws HogletDBException {
+    return removeKey(DEFAULT_COLLECTION, key, durability);
   }
 
   /**
@@ -145,7 +288,28 @@ public class HogletDB implements Closeable {
    * @throws HogletDBException if something goes wrong 
    */
   public byte[] put(String collection, byte[] key, byte[] value) throws HogletDBException {
-    return putKey(collection, key, value);
+    return putKey(collection, key, value, durability);
+  }
+
+  /**
+   * putting a new key and value into the store with a durability differing from the durability of the database.
+   * {@link Durability#ALWAYS} syncs the vLog before returning, all other durabilities leave the sync to the database
+   * policy.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key for the value
+   * @param value
+   *          the value to set
+   * @param durability
+   *          the durability of this write
+   * @return the value
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public byte[] put(String collection, byte[] key, byte[] value, Durability durability) throws HogletDBException {
+    return putKey(collection, key, value, durability);
   }
 
   /**
@@ -154,35 +318,407 @@ public class HogletDB implements Closeable {
    * @param key
    * @return
    */
-  public byte[] remove(String collection, byte[] key) throws HogletDBException {
-    return removeKey(collection, key);
+  public boolean remove(String collection, byte[] key) throws HogletDBException {
+    return removeKey(collection, key, durability);
   }
 
   /**
-   * building the real key for the lsm tree store. A collection is only a prefix to the key.
+   * removes a key from a collection with a durability differing from the durability of the database.
    * 
    * @param collection
-   *          the collection to set
+   *          the collection
+   * @param key
+   *          the key to remove
+   * @param durability
+   *          the durability of this write
+   * @return <code>true</code> if the key was present
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public boolean remove(String collection, byte[] key, Durability durability) throws HogletDBException {
+    return removeKey(collection, key, durability);
+  }
+
+  /**
+   * getting the value of the key in the default collection without blocking the caller. The read is done by the I/O
+   * threads of the database, dependent stages without an executor of their own run there too.
+   * 
    * @param key
    *          the key to the value
-   * @return combination of collection and key
+   * @return future with the value, the value will be <code>null</code> if the key is not found
+   */
+  public CompletableFuture<byte[]> getAsync(byte[] key) {
+    return supplyAsync(() -> getKey(DEFAULT_COLLECTION, key));
+  }
+
+  /**
+   * getting the value of the key in a collection without blocking the caller.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key to the value
+   * @return future with the value, the value will be <code>null</code> if the key is not found
+   */
+  public CompletableFuture<byte[]> getAsync(String collection, byte[] key) {
+    return supplyAsync(() -> getKey(collection, key));
+  }
+
+  /**
+   * putting a new key and value into the default collection without blocking the caller.
+   * 
+   * @param key
+   *          the key for the value
+   * @param value
+   *          the value to set
+   * @return future with the value, completed after the write has the durability of the database
+   */
+  public CompletableFuture<byte[]> putAsync(byte[] key, byte[] value) {
+    return supplyAsync(() -> putKey(DEFAULT_COLLECTION, key, value, durability));
+  }
+
+  /**
+   * putting a new key and value into a collection without blocking the caller.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key for the value
+   * @param value
+   *          the value to set
+   * @return future with the value, completed after the write has the durability of the database
+   */
+  public CompletableFuture<byte[]> putAsync(String collection, byte[] key, byte[] value) {
+    return supplyAsync(() -> putKey(collection, key, value, durability));
+  }
+
+  /**
+   * putting a new key and value into a collection with a durability differing from the durability of the database
+   * without blocking the caller.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key for the value
+   * @param value
+   *          the value to set
+   * @param durability
+   *          the durability of this write
+   * @return future with the value, completed after the write has the requested durability
+   */
+  public CompletableFuture<byte[]> putAsync(String collection, byte[] key, byte[] value, Durability durability) {
+    return supplyAsync(() -> putKey(collection, key, value, durability));
+  }
+
+  /**
+   * removes a key from the default collection without blocking the caller.
+   * 
+   * @param key
+   *          the key to remove
+   * @return future with <code>true</code> if the key was present
+   */
+  public CompletableFuture<Boolean> removeAsync(byte[] key) {
+    return supplyAsync(() -> removeKey(DEFAULT_COLLECTION, key, durability));
+  }
+
+  /**
+   * removes a key from a collection without blocking the caller.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key to remove
+   * @return future with <code>true</code> if the key was present
+   */
+  public CompletableFuture<Boolean> removeAsync(String collection, byte[] key) {
+    return supplyAsync(() -> removeKey(collection, key, durability));
+  }
+
+  /**
+   * removes a key from a collection with a durability differing from the durability of the database without blocking
+   * the caller.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key to remove
+   * @param durability
+   *          the durability of this write
+   * @return future with <code>true</code> if the key was present
+   */
+  public CompletableFuture<Boolean> removeAsync(String collection, byte[] key, Durability durability) {
+    return supplyAsync(() -> removeKey(collection, key, durability));
+  }
+
+  /**
+   * running the operation on the I/O threads. Errors complete the future exceptionally, after closing the database
+   * every new operation fails with a {@link HogletDBException}.
+   */
+  private <T> CompletableFuture<T> supplyAsync(Callable<T> operation) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      ioExecutor.execute(() -> {
+        try {
+          future.complete(operation.call());
+        } catch (Exception e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(new HogletDBException("database is closed."));
+    }
+    return future;
+  }
+
+  /**
+   * putting a large value from a stream into the default collection. The value is stored in chunks of chunkSize, so
+   * the value never needs to be in memory as a whole.
+   * 
+   * @param key
+   *          the key for the value
+   * @param in
+   *          the stream with the value, will be read to the end, but not closed
+   * @return the length of the value
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public long put(byte[] key, InputStream in) throws HogletDBException {
+    return putStream(DEFAULT_COLLECTION, key, in, durability);
+  }
+
+  /**
+   * putting a large value from a stream. The value is stored in chunks of chunkSize, so the value never needs to be in
+   * memory as a whole.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key for the value
+   * @param in
+   *          the stream with the value, will be read to the end, but not closed
+   * @return the length of the value
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public long put(String collection, byte[] key, InputStream in) throws HogletDBException {
+    return putStream(collection, key, in, durability);
+  }
+
+  /**
+   * putting a large value from a stream with a durability differing from the durability of the database.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key for the value
+   * @param in
+   *          the stream with the value, will be read to the end, but not closed
+   * @param durability
+   *          the durability of this write
+   * @return the length of the value
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public long put(String collection, byte[] key, InputStream in, Durability durability) throws HogletDBException {
+    return putStream(collection, key, in, durability);
+  }
+
+  /**
+   * getting the value of a key from the default collection as a stream.
+   * 
+   * @param key
+   *          the key
+   * @return the stream of the value, <code>null</code> if the key is unknown
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public InputStream getAsStream(byte[] key) throws HogletDBException {
+    return getStream(DEFAULT_COLLECTION, key);
+  }
+
+  /**
+   * getting the value of a key as a stream. A value stored in chunks is read chunk by chunk, so even a very large value
+   * needs only the memory of one buffer.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key
+   * @return the stream of the value, <code>null</code> if the key is unknown
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public InputStream getAsStream(String collection, byte[] key) throws HogletDBException {
+    return getStream(collection, key);
+  }
+
+  /**
+   * getting the value of a key as a read only buffer. With memory mapped vLog files the buffer is a slice of the
+   * mapping of a sealed vLog file, so the value is not copied.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key
+   * @return the buffer with the value, <code>null</code> if the key is unknown
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public ByteBuffer getAsBuffer(String collection, byte[] key) throws HogletDBException {
+    checkCollectionName(collection);
+    MapKey mapKey = MapKey.buildPrefixedKey(collection, key);
+    VLogEntryInfo info = findEntry(mapKey);
+    if ((info == null) || info.isTombstone()) {
+      return null;
+    }
+    try {
+      if (!Operation.CHUNKED.equals(info.getOperation())) {
+        return vLogList.getVLog(info.getvLogName()).getValueBuffer(info.getStart(), info.getStartBinary(),
+            info.getBinarySize());
+      }
+    } catch (HogletDBException e) {
+      // moved by the garbage collection in the meantime, reading it like a chunked value
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    }
+    byte[] value = readValue(mapKey, info);
+    return value == null ? null : ByteBuffer.wrap(value).asReadOnlyBuffer();
+  }
+
+  /**
+   * transferring the value of a key from the default collection into a channel.
+   * 
+   * @param key
+   *          the key
+   * @param target
+   *          the channel to write the value to
+   * @return the count of transferred bytes, <code>-1</code> if the key is unknown
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public long get(byte[] key, WritableByteChannel target) throws HogletDBException {
+    return get(DEFAULT_COLLECTION, key, target);
+  }
+
+  /**
+   * transferring the value of a key into a channel. The bytes are transferred directly from the vLog file into the
+   * channel with {@link java.nio.channels.FileChannel#transferTo(long, long, WritableByteChannel)}, so the value is
+   * never copied onto the java heap. A value stored in chunks is transferred chunk by chunk. The channel must be in
+   * blocking mode, a value can't be transferred partially. The channel is not closed.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key
+   * @param target
+   *          the channel to write the value to
+   * @return the count of transferred bytes, <code>-1</code> if the key is unknown
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public long get(String collection, byte[] key, WritableByteChannel target) throws HogletDBException {
+    checkCollectionName(collection);
+    if ((target instanceof SelectableChannel) && !((SelectableChannel) target).isBlocking()) {
+      throw new HogletDBException("the channel must be in blocking mode");
+    }
+    MapKey mapKey = MapKey.buildPrefixedKey(collection, key);
+    VLogEntryInfo info = findEntry(mapKey);
+    if ((info == null) || info.isTombstone()) {
+      return -1;
+    }
+    try {
+      if (!Operation.CHUNKED.equals(info.getOperation())) {
+        VLog vLog;
+        try {
+          vLog = vLogList.getVLog(info.getvLogName());
+        } catch (HogletDBException e) {
+          // moved by the garbage collection in the meantime
+          VLogEntryInfo newInfo = findEntry(mapKey);
+          if ((newInfo == null) || newInfo.isTombstone() || newInfo.getvLogName().equals(info.getvLogName())) {
+            throw e;
+          }
+          return get(collection, key, target);
+        }
+        return vLog.transferTo(info.getStart(), info.getStartBinary(), info.getBinarySize(), target);
+      }
+      VLogChunkList chunkList = readChunkList(info);
+      long transferred = 0;
+      for (int i = 0; i < chunkList.getChunks().size(); i++) {
+        transferred += transferChunk(mapKey, chunkList, i, target);
+      }
+      return transferred;
+    } catch (HogletDBException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    }
+  }
+
+  /**
+   * writing a batch of puts and removes atomically with the durability of the database.
+   * 
+   * @param batch
+   *          the batch to write
+   * @throws HogletDBException
+   *           if something goes wrong
    */
-  private byte[] buildPrefixedKey(String collection, byte[] key) {
-    // todo create a faster key builder
-    byte[] colBytes = collection.getBytes();
-    byte[] buffer = new byte[colBytes.length + key.length + 1];
-    int x = 0;
-    for (int i = 0; i < colBytes.length; i++) {
-      buffer[x] = colBytes[i];
-      x++;
+  public void write(WriteBatch batch) throws HogletDBException {
+    write(batch, durability);
+  }
+
+  /**
+   * writing a batch of puts and removes atomically. All entries are written as one contiguous append into the vLog and
+   * are visible for the readers all at once. After a crash the batch is recovered completely or not at all.
+   * 
+   * @param batch
+   *          the batch to write
+   * @param durability
+   *          the durability of this batch
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public void write(WriteBatch batch, Durability durability) throws HogletDBException {
+    if (batch.size() == 0) {
+      return;
+    }
+    List<MapKey> mapKeys = new ArrayList<>(batch.size());
+    for (WriteBatch.Entry entry : batch.getEntries()) {
+      checkCollectionName(entry.getCollection());
+      mapKeys.add(MapKey.buildPrefixedKey(entry.getCollection(), entry.getKey()));
+    }
+    boolean sync = durability == Durability.ALWAYS;
+    List<VLogEntryInfo> previousInfos = new ArrayList<>();
+    tableLock.readLock().lock();
+    try (VLog vLog = vLogList.getNextAvailableVLog(batch.size() + 1)) {
+      List<VLogEntryInfo> infos = vLog.putBatch(batch, sync);
+      // all entries of the batch get visible at once
+      applyLock.writeLock().lock();
+      try {
+        for (int i = 0; i < infos.size(); i++) {
+          VLogEntryInfo info = infos.get(i);
+          if (!sync) {
+            vLogSyncer.written(vLog, info);
+          }
+          vLogList.getLedger().addLive(info);
+          VLogEntryInfo previous = memoryTable.add(mapKeys.get(i), info);
+          if (previous != null) {
+            previousInfos.add(previous);
+          }
+        }
+      } finally {
+        applyLock.writeLock().unlock();
+      }
+    } catch (HogletDBException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    } finally {
+      tableLock.readLock().unlock();
     }
-    buffer[x] = (byte) 0;
-    x++;
-    for (int i = 0; i < key.length; i++) {
-      buffer[x] = key[i];
-      x++;
+    previousInfos.forEach(this::addDead);
+    if (memoryTable.isFull()) {
+      switchMemoryTable(false);
     }
-    return buffer;
   }
 
   private void checkCollectionName(String collection) {
@@ -191,35 +727,627 @@ public class HogletDB implements Closeable {
     }
   }
 
-  private boolean containsKey(String collection, byte[] key) {
+  private boolean containsKey(String collection, byte[] key) throws HogletDBException {
     checkCollectionName(collection);
-    return map.containsKey(ByteArrayUtils.bytesAsHexString(key));
+    VLogEntryInfo info = findEntry(MapKey.buildPrefixedKey(collection, key));
+    return (info != null) && !info.isTombstone();
   }
 
-  private byte[] getKey(String collection, byte[] key) {
+  private byte[] getKey(String collection, byte[] key) throws HogletDBException {
     checkCollectionName(collection);
-    return map.get(ByteArrayUtils.bytesAsHexString(key));
+    MapKey mapKey = MapKey.buildPrefixedKey(collection, key);
+    return readValue(mapKey, findEntry(mapKey));
   }
 
-  private byte[] putKey(String collection, byte[] key, byte[] value) throws HogletDBException {
+  private byte[] putKey(String collection, byte[] key, byte[] value, Durability durability)
+      throws HogletDBException {
+    checkCollectionName(collection);
+    MapKey mapKey = MapKey.buildPrefixedKey(collection, key);
+    appendToVLog(mapKey, value.length, durability, (vLog, sync) -> vLog.put(collection, key, 0, value, sync));
+    return value;
+  }
+
+  /**
+   * every chunk is written as an own entry into the vLog, the chunks are not part of the memory table. At last the
+   * list of the chunks is written as the entry of the key.
+   */
+  private long putStream(String collection, byte[] key, InputStream in, Durability durability)
+      throws HogletDBException {
     checkCollectionName(collection);
+    MapKey mapKey = MapKey.buildPrefixedKey(collection, key);
+    VLogChunkList chunkList = new VLogChunkList();
+    byte[] buffer = new byte[options.getChunkSize()];
     try {
-      VLog vLog = vLogList.getNextAvailableVLog();
-      log.debug("putting into vlog file %s", vLog.getName());
-      VLogEntryInfo put = vLog.put(collection, key, 0, value);
+      int chunkNumber = 1;
+      int read;
+      while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+        byte[] chunk = read == buffer.length ? buffer : Arrays.copyOf(buffer, read);
+        VLogEntryInfo info;
+        try (VLog vLog = vLogList.getNextAvailableVLog()) {
+          info = vLog.put(collection, key, chunkNumber++, chunk, false);
+          vLogSyncer.written(vLog, info);
+        }
+        vLogList.getLedger().addLive(info);
+        chunkList.add(info);
+      }
+      if (durability == Durability.ALWAYS) {
+        vLogSyncer.sync();
+      }
     } catch (IOException e) {
+      // the written chunks are garbage now
+      chunkList.getChunks().forEach(vLogList.getLedger()::addDead);
+      if (e instanceof HogletDBException) {
+        throw (HogletDBException) e;
+      }
       throw new HogletDBException(e);
     }
-    return map.put(ByteArrayUtils.bytesAsHexString(key), value);
+    byte[] list = chunkList.toBytes();
+    appendToVLog(mapKey, list.length, durability,
+        (vLog, sync) -> vLog.put(collection, key, VLogDescriptor.CHUNK_LIST_CHUNK_NUMBER, list, sync));
+    return chunkList.getLength();
   }
 
-  private byte[] removeKey(String collection, byte[] key) {
+  private InputStream getStream(String collection, byte[] key) throws HogletDBException {
     checkCollectionName(collection);
-    return map.remove(ByteArrayUtils.bytesAsHexString(key));
+    MapKey mapKey = MapKey.buildPrefixedKey(collection, key);
+    VLogEntryInfo info = findEntry(mapKey);
+    if ((info == null) || info.isTombstone()) {
+      return null;
+    }
+    try {
+      if (!Operation.CHUNKED.equals(info.getOperation())) {
+        return vLogList.getVLog(info.getvLogName()).get(info.getStart(), info.getStartBinary(), info.getBinarySize());
+      }
+      VLogChunkList chunkList = readChunkList(info);
+      return new VLogChunkInputStream(index -> openChunk(mapKey, chunkList, index), chunkList.getChunks().size());
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    }
+  }
+
+  /**
+   * opening a chunk of a value. If the vLog file has been removed by the garbage collection in the meantime, the chunk
+   * has been moved and the actual chunk list is used.
+   */
+  private InputStream openChunk(MapKey mapKey, VLogChunkList chunkList, int index) throws IOException {
+    VLogEntryInfo chunk = chunkList.getChunks().get(index);
+    try {
+      return vLogList.getVLog(chunk.getvLogName()).get(chunk.getStart(), chunk.getStartBinary(), chunk.getBinarySize());
+    } catch (HogletDBException e) {
+      chunk = findMovedChunk(mapKey, chunkList, index, e);
+      return vLogList.getVLog(chunk.getvLogName()).get(chunk.getStart(), chunk.getStartBinary(), chunk.getBinarySize());
+    }
+  }
+
+  /**
+   * transferring a chunk of a value into a channel. A moved chunk is handled like in
+   * {@link #openChunk(MapKey, VLogChunkList, int)}.
+   */
+  private long transferChunk(MapKey mapKey, VLogChunkList chunkList, int index, WritableByteChannel target)
+      throws IOException {
+    VLogEntryInfo chunk = chunkList.getChunks().get(index);
+    VLog vLog;
+    try {
+      vLog = vLogList.getVLog(chunk.getvLogName());
+    } catch (HogletDBException e) {
+      chunk = findMovedChunk(mapKey, chunkList, index, e);
+      vLog = vLogList.getVLog(chunk.getvLogName());
+    }
+    return vLog.transferTo(chunk.getStart(), chunk.getStartBinary(), chunk.getBinarySize(), target);
+  }
+
+  private VLogEntryInfo findMovedChunk(MapKey mapKey, VLogChunkList chunkList, int index, HogletDBException e)
+      throws IOException {
+    VLogEntryInfo info = findEntry(mapKey);
+    if ((info == null) || !Operation.CHUNKED.equals(info.getOperation())) {
+      throw e;
+    }
+    VLogChunkList actualList = readChunkList(info);
+    if (actualList.getChunks().size() != chunkList.getChunks().size()) {
+      throw e;
+    }
+    return actualList.getChunks().get(index);
+  }
+
+  private VLogChunkList readChunkList(VLogEntryInfo info) throws IOException {
+    VLog vLog = vLogList.getVLog(info.getvLogName());
+    return VLogChunkList.fromBytes(vLog.getValue(info.getStart(), info.getStartBinary(), info.getBinarySize()));
+  }
+
+  /**
+   * the entry is replaced by a newer one, so the bytes in the vLog are garbage, for a chunked value all the chunks too.
+   */
+  private void addDead(VLogEntryInfo info) {
+    vLogList.getLedger().addDead(info);
+    if (Operation.CHUNKED.equals(info.getOperation())) {
+      try {
+        readChunkList(info).getChunks().forEach(vLogList.getLedger()::addDead);
+      } catch (IOException e) {
+        log.error("error reading chunk list", e);
+      }
+    }
+  }
+
+  /**
+   * the tombstone makes the delete persistent, it's only a small append to the vLog. The old value is never read, its
+   * entry is counted as dead like every replaced entry: at once if it's in the memory table, otherwise when the
+   * compaction drops it.
+   */
+  private boolean removeKey(String collection, byte[] key, Durability durability) throws HogletDBException {
+    checkCollectionName(collection);
+    MapKey mapKey = MapKey.buildPrefixedKey(collection, key);
+    VLogEntryInfo info = findEntry(mapKey);
+    if ((info == null) || info.isTombstone()) {
+      return false;
+    }
+    appendToVLog(mapKey, 0, durability, (vLog, sync) -> vLog.putTombstone(collection, key, sync));
+    return true;
+  }
+
+  /**
+   * searching the newest entry of a key, first in the actual memory table, than in the memory tables waiting for the
+   * flush and at last in the index files.
+   * 
+   * @param mapKey
+   *          the prefixed key
+   * @return the pointer into the vLog, a tombstone or <code>null</code> if the key is unknown
+   */
+  private VLogEntryInfo findEntry(MapKey mapKey) throws HogletDBException {
+    VLogEntryInfo info;
+    // a write batch is applied to the memory table under the write lock
+    applyLock.readLock().lock();
+    try {
+      info = memoryTable.get(mapKey);
+      if (info != null) {
+        return info;
+      }
+      for (MemoryTable table : immutableTables) {
+        info = table.get(mapKey);
+        if (info != null) {
+          return info;
+        }
+      }
+    } finally {
+      applyLock.readLock().unlock();
+    }
+    try {
+      return sstList.get(mapKey);
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    }
+  }
+
+  /**
+   * reading the value of an entry. If the vLog file has been removed by the garbage collection in the meantime, the
+   * entry is searched again, because the value must have been moved into another vLog file.
+   */
+  private byte[] readValue(MapKey mapKey, VLogEntryInfo info) throws HogletDBException {
+    try {
+      return readValue(info);
+    } catch (HogletDBException e) {
+      VLogEntryInfo newInfo = findEntry(mapKey);
+      if ((newInfo == null) || newInfo.isTombstone() || newInfo.getvLogName().equals(info.getvLogName())) {
+        throw e;
+      }
+      return readValue(newInfo);
+    }
+  }
+
+  private byte[] readValue(VLogEntryInfo info) throws HogletDBException {
+    if ((info == null) || info.isTombstone()) {
+      return null;
+    }
+    try {
+      VLog vLog = vLogList.getVLog(info.getvLogName());
+      if (!Operation.CHUNKED.equals(info.getOperation())) {
+        return vLog.getValue(info.getStart(), info.getStartBinary(), info.getBinarySize());
+      }
+      VLogChunkList chunkList = readChunkList(info);
+      if (chunkList.getLength() > Integer.MAX_VALUE - 8) {
+        throw new HogletDBException("value too large for an array, use getAsStream().");
+      }
+      byte[] value = new byte[(int) chunkList.getLength()];
+      int position = 0;
+      for (VLogEntryInfo chunk : chunkList.getChunks()) {
+        byte[] data = vLogList.getVLog(chunk.getvLogName()).getValue(chunk.getStart(), chunk.getStartBinary(),
+            chunk.getBinarySize());
+        System.arraycopy(data, 0, value, position, data.length);
+        position += data.length;
+      }
+      return value;
+    } catch (HogletDBException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    }
+  }
+
+  /**
+   * a write into the vLog.
+   */
+  private interface VLogWrite {
+    VLogEntryInfo write(VLog vLog, boolean sync) throws IOException;
+  }
+
+  /**
+   * a write waiting for the group commit.
+   */
+  private static class PendingWrite {
+    private MapKey mapKey;
+    private boolean sync;
+    private VLogWrite write;
+
+    private PendingWrite(MapKey mapKey, boolean sync, VLogWrite write) {
+      this.mapKey = mapKey;
+      this.sync = sync;
+      this.write = write;
+    }
+  }
+
+  /**
+   * appending an entry to the vLog and adding it to the memory table. Both is done while holding the read lock of the
+   * memory tables, so a switch of the memory table always happens between two complete writes and the end of the vLog
+   * at the switch is a valid checkpoint for the recovery.
+   */
+  private void appendToVLog(MapKey mapKey, long bytes, Durability durability, VLogWrite write)
+      throws HogletDBException {
+    boolean sync = durability == Durability.ALWAYS;
+    if (groupCommit != null) {
+      try {
+        groupCommit.commit(new PendingWrite(mapKey, sync, write), bytes);
+      } catch (HogletDBException e) {
+        throw e;
+      } catch (IOException e) {
+        throw new HogletDBException(e);
+      }
+      return;
+    }
+    VLogEntryInfo previous;
+    tableLock.readLock().lock();
+    try (VLog vLog = vLogList.getNextAvailableVLog()) {
+      VLogEntryInfo info = write.write(vLog, sync);
+      if (!sync) {
+        vLogSyncer.written(vLog, info);
+      }
+      vLogList.getLedger().addLive(info);
+      previous = memoryTable.add(mapKey, info);
+    } catch (HogletDBException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    } finally {
+      tableLock.readLock().unlock();
+    }
+    if (previous != null) {
+      addDead(previous);
+    }
+    if (memoryTable.isFull()) {
+      switchMemoryTable(false);
+    }
+  }
+
+  /**
+   * writing a batch of the group commit. All entries are written into the vLog without a sync, the vLog files are
+   * synced once, if one of the writes needs a sync, and afterwards the entries are added to the memory table.
+   */
+  private void writeBatch(List<PendingWrite> batch) throws IOException {
+    List<VLogEntryInfo> previousInfos = new ArrayList<>();
+    tableLock.readLock().lock();
+    try {
+      List<VLogEntryInfo> infos = new ArrayList<>(batch.size());
+      try {
+        boolean sync = false;
+        for (PendingWrite pending : batch) {
+          try (VLog vLog = vLogList.getNextAvailableVLog()) {
+            VLogEntryInfo info = pending.write.write(vLog, false);
+            infos.add(info);
+            vLogSyncer.written(vLog, info);
+          }
+          sync |= pending.sync;
+        }
+        if (sync) {
+          vLogSyncer.sync();
+        }
+      } catch (IOException | RuntimeException e) {
+        discard(infos);
+        throw e;
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        VLogEntryInfo info = infos.get(i);
+        vLogList.getLedger().addLive(info);
+        VLogEntryInfo previous = memoryTable.add(batch.get(i).mapKey, info);
+        if (previous != null) {
+          previousInfos.add(previous);
+        }
+      }
+    } finally {
+      tableLock.readLock().unlock();
+    }
+    previousInfos.forEach(this::addDead);
+    if (memoryTable.isFull()) {
+      switchMemoryTable(false);
+    }
+  }
+
+  /**
+   * the entries of a failed batch are in the vLog, but the writers got an error. They are marked in the checkpoint, so
+   * they are never replayed after a crash, and are garbage for the garbage collection.
+   */
+  private void discard(List<VLogEntryInfo> infos) {
+    if (infos.isEmpty()) {
+      return;
+    }
+    VLogCheckpoint checkpoint = vLogList.getCheckpoint();
+    for (VLogEntryInfo info : infos) {
+      checkpoint.addDiscarded(info.getvLogName(), info.getStart());
+      vLogList.getLedger().addLive(info);
+      vLogList.getLedger().addDead(info);
+    }
+    try {
+      checkpoint.save();
+    } catch (IOException e) {
+      log.error("error saving vlog checkpoint", e);
+    }
+  }
+
+  /**
+   * the actual memory table is full, so it will be put onto the list of the tables waiting for the flush and a new
+   * memory table is created. The flush itself is done in the background.
+   * 
+   * @param force
+   *          switching also a not full table
+   */
+  private void switchMemoryTable(boolean force) throws HogletDBException {
+    switchMemoryTable(force, null);
+  }
+
+  /**
+   * switching the memory table with the position in the vLog, up to which all entries are in this table or in an
+   * older one.
+   * 
+   * @param force
+   *          switching also a not full table
+   * @param head
+   *          the checkpoint after the flush of the table, <code>null</code> for the actual end of the vLog
+   */
+  private void switchMemoryTable(boolean force, VLogPosition head) throws HogletDBException {
+    Future<?> flush = null;
+    tableLock.writeLock().lock();
+    try {
+      if ((memoryTable.size() == 0) || (!force && !memoryTable.isFull())) {
+        return;
+      }
+      MemoryTable fullTable = memoryTable;
+      // all writes are done under the read lock, so all entries before the actual end of the vLog are in this table or
+      // in an older one
+      if (head != null) {
+        tableHeads.put(fullTable, head);
+      } else {
+        try {
+          tableHeads.put(fullTable, vLogList.getHead());
+        } catch (IOException e) {
+          log.error("error getting the vlog head", e);
+        }
+      }
+      // first make the table visible in the list, than replace it, so readers will always find the entries
+      immutableTables.addFirst(fullTable);
+      memoryTable = new SkipListMemoryTable(options);
+      log.debug("memory table full with %d entries, %d tables waiting for flush.", fullTable.size(),
+          immutableTables.size());
+      if (!flushExecutor.isShutdown()) {
+        flush = flushExecutor.submit(this::flushMemoryTables);
+      }
+    } finally {
+      tableLock.writeLock().unlock();
+    }
+    if ((flush != null) && (immutableTables.size() > MAX_WAITING_TABLES)) {
+      // the flush is slower than the writers, so slow down the writers
+      try {
+        flush.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        throw new HogletDBException(e.getCause());
+      }
+    }
+  }
+
+  /**
+   * writing all waiting memory tables into new level 0 index files, oldest first. A table will only be removed from the
+   * waiting list after the index file is readable, so every entry is always visible for readers.
+   * 
+   * @return <code>false</code> if a table could not be flushed
+   */
+  private synchronized boolean flushMemoryTables() {
+    MemoryTable table;
+    while ((table = immutableTables.peekLast()) != null) {
+      try {
+        // the index file must never point to data, which is not on the disk
+        vLogSyncer.sync();
+        SSTableReader reader = writeMemoryTable(table);
+        sstList.add(reader);
+        immutableTables.removeLastOccurrence(table);
+        saveCheckpoint(tableHeads.remove(table));
+        log.debug("memory table flushed into %s", reader.getIdentity().getFileName());
+      } catch (IOException e) {
+        log.error("error flushing memory table", e);
+        return false;
+      }
+      compactionEngine.maybeScheduleCompaction();
+    }
+    saveLedger();
+    return true;
+  }
+
+  private void saveCheckpoint(VLogPosition head) {
+    if (head == null) {
+      return;
+    }
+    VLogCheckpoint checkpoint = vLogList.getCheckpoint();
+    checkpoint.setHead(head);
+    try {
+      checkpoint.save();
+    } catch (IOException e) {
+      log.error("error saving vlog checkpoint", e);
+    }
+  }
+
+  private void saveLedger() {
+    try {
+      vLogList.getLedger().save();
+    } catch (IOException e) {
+      log.error("error saving vlog ledger", e);
+    }
+  }
+
+  private SSTableReader writeMemoryTable(MemoryTable table) throws IOException {
+    SSTIdentity identity = sstList.newIdentity(0);
+    SSTableWriter writer = new SSTableWriter(options, identity, identity.getNumber());
+    try {
+      for (Entry<MapKey, VLogEntryInfo> entry : table) {
+        writer.write(entry.getKey(), entry.getValue());
+      }
+      writer.close();
+    } catch (IOException e) {
+      writer.abort();
+      throw e;
+    }
+    return new SSTableReader(writer.getFile());
+  }
+
+  /**
+   * the index as seen by the vLog garbage collection.
+   */
+  private class GarbageCollectorIndex implements VLogIndex {
+
+    @Override
+    public VLogEntryInfo getEntry(MapKey key) throws IOException {
+      return findEntry(key);
+    }
+
+    @Override
+    public boolean relocate(MapKey key, VLogEntryInfo oldInfo, VLogEntryInfo newInfo) throws IOException {
+      // the write lock blocks all writers, so nobody can change the key between the check and the update
+      tableLock.writeLock().lock();
+      try {
+        VLogEntryInfo info = findEntry(key);
+        if ((info == null) || !oldInfo.getvLogName().equals(info.getvLogName())
+            || (oldInfo.getStart() != info.getStart())) {
+          return false;
+        }
+        VLogEntryInfo previous = memoryTable.add(key, newInfo);
+        if (previous != null) {
+          vLogList.getLedger().addDead(previous);
+        }
+      } finally {
+        tableLock.writeLock().unlock();
+      }
+      if (memoryTable.isFull()) {
+        switchMemoryTable(false);
+      }
+      return true;
+    }
+
+    @Override
+    public void sync() throws IOException {
+      switchMemoryTable(true);
+      if (!flushMemoryTables()) {
+        throw new HogletDBException("memory tables could not be flushed.");
+      }
+    }
+  }
+
+  /**
+   * running the garbage collection of the vLog files now, independent of the configured interval.
+   * 
+   * @return count of deleted vLog files
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public int runVLogGarbageCollection() throws HogletDBException {
+    try {
+      return vLogGarbageCollector.run();
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    }
+  }
+
+  /**
+   * running the recompression of the old vLog files now, independent of the configured interval.
+   * 
+   * @return count of recompressed vLog files
+   * @throws HogletDBException
+   *           if something goes wrong
+   */
+  public int runVLogRecompression() throws HogletDBException {
+    try {
+      return vLogGarbageCollector.recompress();
+    } catch (IOException e) {
+      throw new HogletDBException(e);
+    }
+  }
+
+  /**
+   * @return the live and dead bytes of every vLog file, without any I/O
+   */
+  public List<VLogUsage> getVLogUsages() {
+    return vLogList.getLedger().getUsages();
+  }
+
+  /**
+   * @return the verifier of the checksums on reading, with the counters of verified values and mismatches
+   */
+  public VLogChecksumVerifier getChecksumVerifier() {
+    return vLogList.getChecksumVerifier();
+  }
+
+  /**
+   * @return the garbage collection of the vLog files
+   */
+  public VLogGarbageCollector getVLogGarbageCollector() {
+    return vLogGarbageCollector;
+  }
+
+  /**
+   * @return the background syncer of the vLog
+   */
+  public VLogSyncer getVLogSyncer() {
+    return vLogSyncer;
+  }
+
+  /**
+   * @return the statistics of the compaction of the index files
+   */
+  public CompactionStatistics getCompactionStatistics() {
+    return compactionEngine.getStatistics();
   }
 
   @Override
   public void close() {
+    // pending asynchronous operations are finished before the tables are flushed
+    ioExecutor.shutdown();
+    try {
+      ioExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    vLogGarbageCollector.close();
+    try {
+      switchMemoryTable(true);
+    } catch (HogletDBException e) {
+      log.error(e);
+    }
+    flushExecutor.shutdown();
+    try {
+      flushExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushMemoryTables();
+    compactionEngine.close();
+    vLogSyncer.close();
+    saveLedger();
+    sstList.close();
     vLogList.close();
   }
 }
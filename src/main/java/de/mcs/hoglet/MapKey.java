@@ -0,0 +1,151 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import de.mcs.utils.ByteArrayUtils;
+
+/**
+ * The key as it is used in the memory table and the index files. A collection is only a prefix to the key, so the
+ * key bytes are the collection name, a null byte as separator and the raw key. Keys are compared unsigned byte by
+ * byte, so all keys of one collection are sorted next to each other.
+ * 
+ * @author w.klaas
+ *
+ */
+public class MapKey implements Comparable<MapKey> {
+
+  private final byte[] key;
+  private final int hash;
+
+  /**
+   * building the real key for the lsm tree store.
+   * 
+   * @param collection
+   *          the collection to set
+   * @param key
+   *          the key to the value
+   * @return combination of collection and key
+   */
+  public static MapKey buildPrefixedKey(String collection, byte[] key) {
+    byte[] colBytes = collection.getBytes(StandardCharsets.UTF_8);
+    byte[] buffer = new byte[colBytes.length + key.length + 1];
+    System.arraycopy(colBytes, 0, buffer, 0, colBytes.length);
+    buffer[colBytes.length] = (byte) 0;
+    System.arraycopy(key, 0, buffer, colBytes.length + 1, key.length);
+    return new MapKey(buffer);
+  }
+
+  /**
+   * wrapping an already prefixed key.
+   * 
+   * @param prefixedKey
+   *          the key with the collection prefix
+   */
+  public MapKey(byte[] prefixedKey) {
+    this.key = prefixedKey;
+    this.hash = Arrays.hashCode(prefixedKey);
+  }
+
+  /**
+   * @return the prefixed key bytes, should not be modified
+   */
+  public byte[] getKey() {
+    return key;
+  }
+
+  /**
+   * @return the length of the prefixed key in bytes
+   */
+  public int length() {
+    return key.length;
+  }
+
+  /**
+   * @return the collection part of this key
+   */
+  public String getCollection() {
+    return new String(key, 0, separatorIndex(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return the raw key without the collection prefix
+   */
+  public byte[] getKeyWithoutCollection() {
+    int start = separatorIndex() + 1;
+    return Arrays.copyOfRange(key, start, key.length);
+  }
+
+  private int separatorIndex() {
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] == 0) {
+        return i;
+      }
+    }
+    return key.length;
+  }
+
+  @Override
+  public int compareTo(MapKey o) {
+    return compare(key, o.key);
+  }
+
+  /**
+   * comparing two byte arrays unsigned and lexicographic.
+   * 
+   * @param left
+   *          left array
+   * @param right
+   *          right array
+   * @return a negative value, zero, or a positive value as the left array is less than, equal to, or greater than the
+   *         right array
+   */
+  public static int compare(byte[] left, byte[] right) {
+    int length = Math.min(left.length, right.length);
+    for (int i = 0; i < length; i++) {
+      int a = left[i] & 0xff;
+      int b = right[i] & 0xff;
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return left.length - right.length;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof MapKey)) {
+      return false;
+    }
+    MapKey other = (MapKey) obj;
+    return (hash == other.hash) && Arrays.equals(key, other.key);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s:%s", getCollection(), ByteArrayUtils.bytesAsHexString(getKeyWithoutCollection()));
+  }
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet;
+
+/**
+ * The operation behind an entry of the memory table or the index. A DELETE entry is a tombstone, which hides all older
+ * entries of the same key. A CHUNKED entry adds a large value, stored in chunks, the entry points to the list of the
+ * chunks.
+ * 
+ * @author w.klaas
+ *
+ */
+public enum Operation {
+  ADD, DELETE, CHUNKED;
+}
@@ -18,6 +18,7 @@ package de.mcs.hoglet;
 
 import java.io.StringWriter;
 
+import de.mcs.hoglet.compaction.CompactionStyle;
 import de.mcs.utils.GsonUtils;
 
 /**
@@ -34,7 +35,19 @@ public class Options {
   public static Options defaultOptions() {
     return new Options().withVCntCompressAge(0).withVCntDeleteTreshHold(10).withVLogAge(1 * 60 * 60 * 1000)
         .withVlogMaxChunkCount(10000).withVlogMaxSize(100 * 1024 * 1024).withVlogMaxFileCount(10)
-        .withChunkSize(1024 * 1024);
+        .withChunkSize(1024 * 1024).withMemTableMaxSize(16 * 1024 * 1024)
+        .withSstBlockSize(4 * 1024).withCompactionThreads(1).withLevelZeroMaxFiles(4)
+        .withLevelBaseSize(32L * 1024L * 1024L).withLevelSizeMultiplier(10).withMaxLevels(7)
+        .withSstMaxFileSize(8L * 1024L * 1024L).withCompactionStyle(CompactionStyle.LEVELED).withTieredSizeRatio(20)
+        .withTieredMinMergeWidth(2).withTieredMaxMergeWidth(10).withTieredMaxSizeAmplification(200)
+        .withVLogGcInterval(10L * 60L * 1000L).withVLogGcMaxBytesPerSecond(16L * 1024L * 1024L)
+        .withGroupCommit(false).withGroupCommitMaxBatchBytes(1024L * 1024L).withGroupCommitMaxWait(0)
+        .withDurability(Durability.ALWAYS).withSyncInterval(1000).withSyncBytes(4L * 1024L * 1024L)
+        .withVLogMemoryMapped(false).withVlogPreallocationSize(16L * 1024L * 1024L)
+        .withVCntCompressionMode(0).withVCntCompressionMinSize(512).withVCntCompressionDictionary(false)
+        .withVCntDictionarySampleSize(128 * 1024).withVCntCompressAgeMode(2).withChecksumType(ChecksumType.CRC32C)
+        .withChecksumVerification(ChecksumVerification.NEVER).withChecksumSampleRate(100).withIoThreads(4)
+        .withVCntDictionarySampleMemory(4 * 1024 * 1024);
   }
 
   /**
@@ -59,7 +72,14 @@ public class Options {
   long vCntCompressAge;
 
   /**
-   * mode of the compression
+   * mode of the compression of old containers, this is the id of the codec, normally a stronger one than the
+   * vCntCompressionMode. Default is 2, deflate with the best compression.
+   */
+  int vCntCompressAgeMode;
+
+  /**
+   * mode of the compression, this is the id of the codec used for new values. 0 = no compression, 1 = deflate,
+   * other ids are looked up in the registered codecs.
    */
   int vCntCompressionMode;
 
@@ -99,6 +119,167 @@ public class Options {
    */
   long vLogAge;
 
+  /**
+   * maximum size of the memory table in bytes. If the memory table is bigger than that, it will be flushed.
+   */
+  private long memTableMaxSize;
+
+  /**
+   * size of a data block in the index files. A point lookup reads exactly one block.
+   */
+  private int sstBlockSize;
+
+  /**
+   * count of threads for the background compaction of the index files
+   */
+  private int compactionThreads;
+
+  /**
+   * count of index files in level 0, which will trigger a compaction into level 1
+   */
+  private int levelZeroMaxFiles;
+
+  /**
+   * maximum size of all index files in level 1 in bytes. Every following level can be
+   * levelSizeMultiplier times bigger.
+   */
+  private long levelBaseSize;
+
+  /**
+   * size factor between two levels
+   */
+  private int levelSizeMultiplier;
+
+  /**
+   * maximum count of levels
+   */
+  private int maxLevels;
+
+  /**
+   * maximum size of an index file written by a compaction
+   */
+  private long sstMaxFileSize;
+
+  /**
+   * strategy of the compaction of the index files, leveled for read heavy, tiered for write heavy workloads
+   */
+  private CompactionStyle compactionStyle;
+
+  /**
+   * tiered compaction: a run is merged with the younger runs, if it is at most this percent bigger than their sum
+   */
+  private int tieredSizeRatio;
+
+  /**
+   * tiered compaction: minimal count of runs merged together
+   */
+  private int tieredMinMergeWidth;
+
+  /**
+   * tiered compaction: maximal count of runs merged together
+   */
+  private int tieredMaxMergeWidth;
+
+  /**
+   * tiered compaction: if all younger runs together are bigger than this percent of the oldest run, all runs are merged
+   */
+  private int tieredMaxSizeAmplification;
+
+  /**
+   * interval in milliseconds between two runs of the vLog garbage collection. 0 = no automatic garbage collection
+   */
+  private long vLogGcInterval;
+
+  /**
+   * maximum bytes per second the vLog garbage collection reads and writes, so foreground writes are not starved.
+   * 0 = unlimited
+   */
+  private long vLogGcMaxBytesPerSecond;
+
+  /**
+   * group commit: concurrent writers are collected into a batch, written by one leader thread with a single sync
+   */
+  private boolean groupCommit;
+
+  /**
+   * group commit: maximum size in bytes of the values of one batch
+   */
+  private long groupCommitMaxBatchBytes;
+
+  /**
+   * group commit: maximum time in ms the leader waits for more writers, before writing the batch. 0 for no waiting
+   */
+  private long groupCommitMaxWait;
+
+  /**
+   * durability of the writes, when the vLog is synced to the disk
+   */
+  private Durability durability;
+
+  /**
+   * durability INTERVAL: time in ms between two syncs of the vLog
+   */
+  private long syncInterval;
+
+  /**
+   * durability BYTES: the vLog is synced after this count of written bytes
+   */
+  private long syncBytes;
+
+  /**
+   * reading sealed vLog files over a shared memory mapping instead of opening the file for every read.
+   * The mapping is released, when the vLog is removed from the read cache.
+   */
+  private boolean vLogMemoryMapped;
+
+  /**
+   * a vLog file is preallocated in extents of this size while it fills, up to the vlogMaxSize. 0 = no
+   * preallocation
+   */
+  private long vlogPreallocationSize;
+
+  /**
+   * values smaller than this size (in bytes) will not be compressed. Default value is 512 bytes.
+   */
+  private int vCntCompressionMinSize;
+
+  /**
+   * compressing the values of every collection with a preset dictionary, trained from the first values of the
+   * collection. Only used, if the codec of the compression mode supports dictionaries.
+   */
+  private boolean vCntCompressionDictionary;
+
+  /**
+   * bytes of values sampled per collection for training the dictionary. Default value is 128KB.
+   */
+  private int vCntDictionarySampleSize;
+
+  /**
+   * the checksum over the data of every new vLog entry. Default is crc32c.
+   */
+  private ChecksumType checksumType;
+
+  /**
+   * when the checksum of a value is verified on reading. Default is never.
+   */
+  private ChecksumVerification checksumVerification;
+
+  /**
+   * with the sampled checksum verification every n-th read is verified. Default value is 100.
+   */
+  private int checksumSampleRate;
+
+  /**
+   * count of the threads executing the asynchronous operations of the database
+   */
+  private int ioThreads;
+
+  /**
+   * bytes of values sampled over all collections without a dictionary. If there are more, the samples of the
+   * collections with the fewest samples are dropped. Default value is 4MB.
+   */
+  private int vCntDictionarySampleMemory;
+
   /**
    * @return the vCntDeleteTreshHold
    */
@@ -149,6 +330,54 @@ public class Options {
     return this;
   }
 
+  /**
+   * @return the vCntCompressAgeMode
+   */
+  public int getvCntCompressAgeMode() {
+    return vCntCompressAgeMode;
+  }
+
+  /**
+   * @param vCntCompressAgeMode
+   *          the vCntCompressAgeMode to set
+   */
+  public void setvCntCompressAgeMode(int vCntCompressAgeMode) {
+    this.vCntCompressAgeMode = vCntCompressAgeMode;
+  }
+
+  /**
+   * @param vCntCompressAgeMode
+   *          the vCntCompressAgeMode to set
+   */
+  public Options withVCntCompressAgeMode(int vCntCompressAgeMode) {
+    this.vCntCompressAgeMode = vCntCompressAgeMode;
+    return this;
+  }
+
+  /**
+   * @return the vCntCompressionMode
+   */
+  public int getvCntCompressionMode() {
+    return vCntCompressionMode;
+  }
+
+  /**
+   * @param vCntCompressionMode
+   *          the vCntCompressionMode to set
+   */
+  public void setvCntCompressionMode(int vCntCompressionMode) {
+    this.vCntCompressionMode = vCntCompressionMode;
+  }
+
+  /**
+   * @param vCntCompressionMode
+   *          the vCntCompressionMode to set
+   */
+  public Options withVCntCompressionMode(int vCntCompressionMode) {
+    this.vCntCompressionMode = vCntCompressionMode;
+    return this;
+  }
+
   /**
    * @return the vlogMaxSize
    */
@@ -361,4 +590,779 @@ public class Options {
     this.vCntMaxChunkCount = vCntMaxChunkCount;
     return this;
   }
+
+  /**
+   * @return the memTableMaxSize
+   */
+  public long getMemTableMaxSize() {
+    return memTableMaxSize;
+  }
+
+  /**
+   * @param memTableMaxSize
+   *          the memTableMaxSize to set
+   */
+  public void setMemTableMaxSize(long memTableMaxSize) {
+    this.memTableMaxSize = memTableMaxSize;
+  }
+
+  /**
+   * @param memTableMaxSize
+   *          the memTableMaxSize to set
+   * @return
+   */
+  public Options withMemTableMaxSize(long memTableMaxSize) {
+    this.memTableMaxSize = memTableMaxSize;
+    return this;
+  }
+
+  /**
+   * @return the sstBlockSize
+   */
+  public int getSstBlockSize() {
+    return sstBlockSize;
+  }
+
+  /**
+   * @param sstBlockSize
+   *          the sstBlockSize to set
+   */
+  public void setSstBlockSize(int sstBlockSize) {
+    this.sstBlockSize = sstBlockSize;
+  }
+
+  /**
+   * @param sstBlockSize
+   *          the sstBlockSize to set
+   * @return
+   */
+  public Options withSstBlockSize(int sstBlockSize) {
+    this.sstBlockSize = sstBlockSize;
+    return this;
+  }
+
+  /**
+   * @return the compactionThreads
+   */
+  public int getCompactionThreads() {
+    return compactionThreads;
+  }
+
+  /**
+   * @param compactionThreads
+   *          the compactionThreads to set
+   */
+  public void setCompactionThreads(int compactionThreads) {
+    this.compactionThreads = compactionThreads;
+  }
+
+  /**
+   * @param compactionThreads
+   *          the compactionThreads to set
+   * @return
+   */
+  public Options withCompactionThreads(int compactionThreads) {
+    this.compactionThreads = compactionThreads;
+    return this;
+  }
+
+  /**
+   * @return the levelZeroMaxFiles
+   */
+  public int getLevelZeroMaxFiles() {
+    return levelZeroMaxFiles;
+  }
+
+  /**
+   * @param levelZeroMaxFiles
+   *          the levelZeroMaxFiles to set
+   */
+  public void setLevelZeroMaxFiles(int levelZeroMaxFiles) {
+    this.levelZeroMaxFiles = levelZeroMaxFiles;
+  }
+
+  /**
+   * @param levelZeroMaxFiles
+   *          the levelZeroMaxFiles to set
+   * @return
+   */
+  public Options withLevelZeroMaxFiles(int levelZeroMaxFiles) {
+    this.levelZeroMaxFiles = levelZeroMaxFiles;
+    return this;
+  }
+
+  /**
+   * @return the levelBaseSize
+   */
+  public long getLevelBaseSize() {
+    return levelBaseSize;
+  }
+
+  /**
+   * @param levelBaseSize
+   *          the levelBaseSize to set
+   */
+  public void setLevelBaseSize(long levelBaseSize) {
+    this.levelBaseSize = levelBaseSize;
+  }
+
+  /**
+   * @param levelBaseSize
+   *          the levelBaseSize to set
+   * @return
+   */
+  public Options withLevelBaseSize(long levelBaseSize) {
+    this.levelBaseSize = levelBaseSize;
+    return this;
+  }
+
+  /**
+   * @return the levelSizeMultiplier
+   */
+  public int getLevelSizeMultiplier() {
+    return levelSizeMultiplier;
+  }
+
+  /**
+   * @param levelSizeMultiplier
+   *          the levelSizeMultiplier to set
+   */
+  public void setLevelSizeMultiplier(int levelSizeMultiplier) {
+    this.levelSizeMultiplier = levelSizeMultiplier;
+  }
+
+  /**
+   * @param levelSizeMultiplier
+   *          the levelSizeMultiplier to set
+   * @return
+   */
+  public Options withLevelSizeMultiplier(int levelSizeMultiplier) {
+    this.levelSizeMultiplier = levelSizeMultiplier;
+    return this;
+  }
+
+  /**
+   * @return the maxLevels
+   */
+  public int getMaxLevels() {
+    return maxLevels;
+  }
+
+  /**
+   * @param maxLevels
+   *          the maxLevels to set
+   */
+  public void setMaxLevels(int maxLevels) {
+    this.maxLevels = maxLevels;
+  }
+
+  /**
+   * @param maxLevels
+   *          the maxLevels to set
+   * @return
+   */
+  public Options withMaxLevels(int maxLevels) {
+    this.maxLevels = maxLevels;
+    return this;
+  }
+
+  /**
+   * @return the sstMaxFileSize
+   */
+  public long getSstMaxFileSize() {
+    return sstMaxFileSize;
+  }
+
+  /**
+   * @param sstMaxFileSize
+   *          the sstMaxFileSize to set
+   */
+  public void setSstMaxFileSize(long sstMaxFileSize) {
+    this.sstMaxFileSize = sstMaxFileSize;
+  }
+
+  /**
+   * @param sstMaxFileSize
+   *          the sstMaxFileSize to set
+   * @return
+   */
+  public Options withSstMaxFileSize(long sstMaxFileSize) {
+    this.sstMaxFileSize = sstMaxFileSize;
+    return this;
+  }
+
+  /**
+   * @return the compactionStyle
+   */
+  public CompactionStyle getCompactionStyle() {
+    return compactionStyle;
+  }
+
+  /**
+   * @param compactionStyle
+   *          the compactionStyle to set
+   */
+  public void setCompactionStyle(CompactionStyle compactionStyle) {
+    this.compactionStyle = compactionStyle;
+  }
+
+  /**
+   * @param compactionStyle
+   *          the compactionStyle to set
+   * @return
+   */
+  public Options withCompactionStyle(CompactionStyle compactionStyle) {
+    this.compactionStyle = compactionStyle;
+    return this;
+  }
+
+  /**
+   * @return the tieredSizeRatio
+   */
+  public int getTieredSizeRatio() {
+    return tieredSizeRatio;
+  }
+
+  /**
+   * @param tieredSizeRatio
+   *          the tieredSizeRatio to set
+   */
+  public void setTieredSizeRatio(int tieredSizeRatio) {
+    this.tieredSizeRatio = tieredSizeRatio;
+  }
+
+  /**
+   * @param tieredSizeRatio
+   *          the tieredSizeRatio to set
+   * @return
+   */
+  public Options withTieredSizeRatio(int tieredSizeRatio) {
+    this.tieredSizeRatio = tieredSizeRatio;
+    return this;
+  }
+
+  /**
+   * @return the tieredMinMergeWidth
+   */
+  public int getTieredMinMergeWidth() {
+    return tieredMinMergeWidth;
+  }
+
+  /**
+   * @param tieredMinMergeWidth
+   *          the tieredMinMergeWidth to set
+   */
+  public void setTieredMinMergeWidth(int tieredMinMergeWidth) {
+    this.tieredMinMergeWidth = tieredMinMergeWidth;
+  }
+
+  /**
+   * @param tieredMinMergeWidth
+   *          the tieredMinMergeWidth to set
+   * @return
+   */
+  public Options withTieredMinMergeWidth(int tieredMinMergeWidth) {
+    this.tieredMinMergeWidth = tieredMinMergeWidth;
+    return this;
+  }
+
+  /**
+   * @return the tieredMaxMergeWidth
+   */
+  public int getTieredMaxMergeWidth() {
+    return tieredMaxMergeWidth;
+  }
+
+  /**
+   * @param tieredMaxMergeWidth
+   *          the tieredMaxMergeWidth to set
+   */
+  public void setTieredMaxMergeWidth(int tieredMaxMergeWidth) {
+    this.tieredMaxMergeWidth = tieredMaxMergeWidth;
+  }
+
+  /**
+   * @param tieredMaxMergeWidth
+   *          the tieredMaxMergeWidth to set
+   * @return
+   */
+  public Options withTieredMaxMergeWidth(int tieredMaxMergeWidth) {
+    this.tieredMaxMergeWidth = tieredMaxMergeWidth;
+    return this;
+  }
+
+  /**
+   * @return the tieredMaxSizeAmplification
+   */
+  public int getTieredMaxSizeAmplification() {
+    return tieredMaxSizeAmplification;
+  }
+
+  /**
+   * @param tieredMaxSizeAmplification
+   *          the tieredMaxSizeAmplification to set
+   */
+  public void setTieredMaxSizeAmplification(int tieredMaxSizeAmplification) {
+    this.tieredMaxSizeAmplification = tieredMaxSizeAmplification;
+  }
+
+  /**
+   * @param tieredMaxSizeAmplification
+   *          the tieredMaxSizeAmplification to set
+   * @return
+   */
+  public Options withTieredMaxSizeAmplification(int tieredMaxSizeAmplification) {
+    this.tieredMaxSizeAmplification = tieredMaxSizeAmplification;
+    return this;
+  }
+
+  /**
+   * @return the vLogGcInterval
+   */
+  public long getVLogGcInterval() {
+    return vLogGcInterval;
+  }
+
+  /**
+   * @param vLogGcInterval
+   *          the vLogGcInterval to set
+   */
+  public void setVLogGcInterval(long vLogGcInterval) {
+    this.vLogGcInterval = vLogGcInterval;
+  }
+
+  /**
+   * @param vLogGcInterval
+   *          the vLogGcInterval to set
+   * @return
+   */
+  public Options withVLogGcInterval(long vLogGcInterval) {
+    this.vLogGcInterval = vLogGcInterval;
+    return this;
+  }
+
+  /**
+   * @return the vLogGcMaxBytesPerSecond
+   */
+  public long getVLogGcMaxBytesPerSecond() {
+    return vLogGcMaxBytesPerSecond;
+  }
+
+  /**
+   * @param vLogGcMaxBytesPerSecond
+   *          the vLogGcMaxBytesPerSecond to set
+   */
+  public void setVLogGcMaxBytesPerSecond(long vLogGcMaxBytesPerSecond) {
+    this.vLogGcMaxBytesPerSecond = vLogGcMaxBytesPerSecond;
+  }
+
+  /**
+   * @param vLogGcMaxBytesPerSecond
+   *          the vLogGcMaxBytesPerSecond to set
+   * @return
+   */
+  public Options withVLogGcMaxBytesPerSecond(long vLogGcMaxBytesPerSecond) {
+    this.vLogGcMaxBytesPerSecond = vLogGcMaxBytesPerSecond;
+    return this;
+  }
+
+  /**
+   * @return the groupCommit
+   */
+  public boolean isGroupCommit() {
+    return groupCommit;
+  }
+
+  /**
+   * @param groupCommit
+   *          the groupCommit to set
+   */
+  public void setGroupCommit(boolean groupCommit) {
+    this.groupCommit = groupCommit;
+  }
+
+  /**
+   * @param groupCommit
+   *          the groupCommit to set
+   * @return
+   */
+  public Options withGroupCommit(boolean groupCommit) {
+    this.groupCommit = groupCommit;
+    return this;
+  }
+
+  /**
+   * @return the groupCommitMaxBatchBytes
+   */
+  public long getGroupCommitMaxBatchBytes() {
+    return groupCommitMaxBatchBytes;
+  }
+
+  /**
+   * @param groupCommitMaxBatchBytes
+   *          the groupCommitMaxBatchBytes to set
+   */
+  public void setGroupCommitMaxBatchBytes(long groupCommitMaxBatchBytes) {
+    this.groupCommitMaxBatchBytes = groupCommitMaxBatchBytes;
+  }
+
+  /**
+   * @param groupCommitMaxBatchBytes
+   *          the groupCommitMaxBatchBytes to set
+   * @return
+   */
+  public Options withGroupCommitMaxBatchBytes(long groupCommitMaxBatchBytes) {
+    this.groupCommitMaxBatchBytes = groupCommitMaxBatchBytes;
+    return this;
+  }
+
+  /**
+   * @return the groupCommitMaxWait
+   */
+  public long getGroupCommitMaxWait() {
+    return groupCommitMaxWait;
+  }
+
+  /**
+   * @param groupCommitMaxWait
+   *          the groupCommitMaxWait to set
+   */
+  public void setGroupCommitMaxWait(long groupCommitMaxWait) {
+    this.groupCommitMaxWait = groupCommitMaxWait;
+  }
+
+  /**
+   * @param groupCommitMaxWait
+   *          the groupCommitMaxWait to set
+   * @return
+   */
+  public Options withGroupCommitMaxWait(long groupCommitMaxWait) {
+    this.groupCommitMaxWait = groupCommitMaxWait;
+    return this;
+  }
+
+  /**
+   * @return the durability
+   */
+  public Durability getDurability() {
+    return durability;
+  }
+
+  /**
+   * @param durability
+   *          the durability to set
+   */
+  public void setDurability(Durability durability) {
+    this.durability = durability;
+  }
+
+  /**
+   * @param durability
+   *          the durability to set
+   * @return
+   */
+  public Options withDurability(Durability durability) {
+    this.durability = durability;
+    return this;
+  }
+
+  /**
+   * @return the syncInterval
+   */
+  public long getSyncInterval() {
+    return syncInterval;
+  }
+
+  /**
+   * @param syncInterval
+   *          the syncInterval to set
+   */
+  public void setSyncInterval(long syncInterval) {
+    this.syncInterval = syncInterval;
+  }
+
+  /**
+   * @param syncInterval
+   *          the syncInterval to set
+   * @return
+   */
+  public Options withSyncInterval(long syncInterval) {
+    this.syncInterval = syncInterval;
+    return this;
+  }
+
+  /**
+   * @return the syncBytes
+   */
+  public long getSyncBytes() {
+    return syncBytes;
+  }
+
+  /**
+   * @param syncBytes
+   *          the syncBytes to set
+   */
+  public void setSyncBytes(long syncBytes) {
+    this.syncBytes = syncBytes;
+  }
+
+  /**
+   * @param syncBytes
+   *          the syncBytes to set
+   * @return
+   */
+  public Options withSyncBytes(long syncBytes) {
+    this.syncBytes = syncBytes;
+    return this;
+  }
+
+  /**
+   * @return the vLogMemoryMapped
+   */
+  public boolean isVLogMemoryMapped() {
+    return vLogMemoryMapped;
+  }
+
+  /**
+   * @param vLogMemoryMapped
+   *          the vLogMemoryMapped to set
+   */
+  public void setVLogMemoryMapped(boolean vLogMemoryMapped) {
+    this.vLogMemoryMapped = vLogMemoryMapped;
+  }
+
+  /**
+   * @param vLogMemoryMapped
+   *          the vLogMemoryMapped to set
+   * @return
+   */
+  public Options withVLogMemoryMapped(boolean vLogMemoryMapped) {
+    this.vLogMemoryMapped = vLogMemoryMapped;
+    return this;
+  }
+
+  /**
+   * @return the vlogPreallocationSize
+   */
+  public long getVlogPreallocationSize() {
+    return vlogPreallocationSize;
+  }
+
+  /**
+   * @param vlogPreallocationSize
+   *          the vlogPreallocationSize to set
+   */
+  public void setVlogPreallocationSize(long vlogPreallocationSize) {
+    this.vlogPreallocationSize = vlogPreallocationSize;
+  }
+
+  /**
+   * @param vlogPreallocationSize
+   *          the vlogPreallocationSize to set
+   * @return
+   */
+  public Options withVlogPreallocationSize(long vlogPreallocationSize) {
+    this.vlogPreallocationSize = vlogPreallocationSize;
+    return this;
+  }
+
+  /**
+   * @return the vCntCompressionMinSize
+   */
+  public int getvCntCompressionMinSize() {
+    return vCntCompressionMinSize;
+  }
+
+  /**
+   * @param vCntCompressionMinSize
+   *          the vCntCompressionMinSize to set
+   */
+  public void setvCntCompressionMinSize(int vCntCompressionMinSize) {
+    this.vCntCompressionMinSize = vCntCompressionMinSize;
+  }
+
+  /**
+   * @param vCntCompressionMinSize
+   *          the vCntCompressionMinSize to set
+   * @return
+   */
+  public Options withVCntCompressionMinSize(int vCntCompressionMinSize) {
+    this.vCntCompressionMinSize = vCntCompressionMinSize;
+    return this;
+  }
+
+  /**
+   * @return the vCntCompressionDictionary
+   */
+  public boolean isvCntCompressionDictionary() {
+    return vCntCompressionDictionary;
+  }
+
+  /**
+   * @param vCntCompressionDictionary
+   *          the vCntCompressionDictionary to set
+   */
+  public void setvCntCompressionDictionary(boolean vCntCompressionDictionary) {
+    this.vCntCompressionDictionary = vCntCompressionDictionary;
+  }
+
+  /**
+   * @param vCntCompressionDictionary
+   *          the vCntCompressionDictionary to set
+   * @return
+   */
+  public Options withVCntCompressionDictionary(boolean vCntCompressionDictionary) {
+    this.vCntCompressionDictionary = vCntCompressionDictionary;
+    return this;
+  }
+
+  /**
+   * @return the vCntDictionarySampleSize
+   */
+  public int getvCntDictionarySampleSize() {
+    return vCntDictionarySampleSize;
+  }
+
+  /**
+   * @param vCntDictionarySampleSize
+   *          the vCntDictionarySampleSize to set
+   */
+  public void setvCntDictionarySampleSize(int vCntDictionarySampleSize) {
+    this.vCntDictionarySampleSize = vCntDictionarySampleSize;
+  }
+
+  /**
+   * @param vCntDictionarySampleSize
+   *          the vCntDictionarySampleSize to set
+   * @return
+   */
+  public Options withVCntDictionarySampleSize(int vCntDictionarySampleSize) {
+    this.vCntDictionarySampleSize = vCntDictionarySampleSize;
+    return this;
+  }
+
+  /**
+   * @return the checksumType
+   */
+  public ChecksumType getChecksumType() {
+    return checksumType;
+  }
+
+  /**
+   * @param checksumType
+   *          the checksumType to set
+   */
+  public void setChecksumType(ChecksumType checksumType) {
+    this.checksumType = checksumType;
+  }
+
+  /**
+   * @param checksumType
+   *          the checksumType to set
+   * @return
+   */
+  public Options withChecksumType(ChecksumType checksumType) {
+    this.checksumType = checksumType;
+    return this;
+  }
+
+  /**
+   * @return the checksumVerification
+   */
+  public ChecksumVerification getChecksumVerification() {
+    return checksumVerification;
+  }
+
+  /**
+   * @param checksumVerification
+   *          the checksumVerification to set
+   */
+  public void setChecksumVerification(ChecksumVerification checksumVerification) {
+    this.checksumVerification = checksumVerification;
+  }
+
+  /**
+   * @param checksumVerification
+   *          the checksumVerification to set
+   * @return
+   */
+  public Options withChecksumVerification(ChecksumVerification checksumVerification) {
+    this.checksumVerification = checksumVerification;
+    return this;
+  }
+
+  /**
+   * @return the checksumSampleRate
+   */
+  public int getChecksumSampleRate() {
+    return checksumSampleRate;
+  }
+
+  /**
+   * @param checksumSampleRate
+   *          the checksumSampleRate to set
+   */
+  public void setChecksumSampleRate(int checksumSampleRate) {
+    this.checksumSampleRate = checksumSampleRate;
+  }
+
+  /**
+   * @param checksumSampleRate
+   *          the checksumSampleRate to set
+   * @return
+   */
+  public Options withChecksumSampleRate(int checksumSampleRate) {
+    this.checksumSampleRate = checksumSampleRate;
+    return this;
+  }
+
+  /**
+   * @return the ioThreads
+   */
+  public int getIoThreads() {
+    return ioThreads;
+  }
+
+  /**
+   * @param ioThreads
+   *          the ioThreads to set
+   */
+  public void setIoThreads(int ioThreads) {
+    this.ioThreads = ioThreads;
+  }
+
+  /**
+   * @param ioThreads
+   *          the ioThreads to set
+   * @return
+   */
+  public Options withIoThreads(int ioThreads) {
+    this.ioThreads = ioThreads;
+    return this;
+  }
+
+  /**
+   * @return the vCntDictionarySampleMemory
+   */
+  public int getvCntDictionarySampleMemory() {
+    return vCntDictionarySampleMemory;
+  }
+
+  /**
+   * @param vCntDictionarySampleMemory
+   *          the vCntDictionarySampleMemory to set
+   */
+  public void setvCntDictionarySampleMemory(int vCntDictionarySampleMemory) {
+    this.vCntDictionarySampleMemory = vCntDictionarySampleMemory;
+  }
+
+  /**
+   * @param vCntDictionarySampleMemory
+   *          the vCntDictionarySampleMemory to set
+   * @return
+   */
+  public Options withVCntDictionarySampleMemory(int vCntDictionarySampleMemory) {
+    this.vCntDictionarySampleMemory = vCntDictionarySampleMemory;
+    return this;
+  }
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of puts and removes over several collections. The batch is written with {@link HogletDB#write(WriteBatch)}
+ * as one contiguous append to the vLog and applied atomically, either all writes of the batch are visible and
+ * recovered after a crash or none of them.
+ * 
+ * @author w.klaas
+ *
+ */
+public class WriteBatch {
+
+  /**
+   * a single write of the batch.
+   */
+  public static class Entry {
+    private String collection;
+    private byte[] key;
+    private byte[] value;
+
+    private Entry(String collection, byte[] key, byte[] value) {
+      this.collection = collection;
+      this.key = key;
+      this.value = value;
+    }
+
+    /**
+     * @return the collection
+     */
+    public String getCollection() {
+      return collection;
+    }
+
+    /**
+     * @return the key
+     */
+    public byte[] getKey() {
+      return key;
+    }
+
+    /**
+     * @return the value, <code>null</code> for a remove
+     */
+    public byte[] getValue() {
+      return value;
+    }
+
+    /**
+     * @return <code>true</code> if this write removes the key
+     */
+    public boolean isRemove() {
+      return value == null;
+    }
+  }
+
+  private List<Entry> entries;
+  private long byteSize;
+
+  public WriteBatch() {
+    entries = new ArrayList<>();
+  }
+
+  /**
+   * putting a key and value into the default collection.
+   * 
+   * @param key
+   *          the key for the value
+   * @param value
+   *          the value to set
+   * @return this batch
+   */
+  public WriteBatch put(byte[] key, byte[] value) {
+    return put(HogletDB.DEFAULT_COLLECTION, key, value);
+  }
+
+  /**
+   * putting a key and value into a collection.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key for the value
+   * @param value
+   *          the value to set
+   * @return this batch
+   */
+  public WriteBatch put(String collection, byte[] key, byte[] value) {
+    if (value == null) {
+      throw new IllegalArgumentException("value should not be null.");
+    }
+    entries.add(new Entry(collection, key, value));
+    byteSize += value.length;
+    return this;
+  }
+
+  /**
+   * removing a key from the default collection.
+   * 
+   * @param key
+   *          the key to remove
+   * @return this batch
+   */
+  public WriteBatch remove(byte[] key) {
+    return remove(HogletDB.DEFAULT_COLLECTION, key);
+  }
+
+  /**
+   * removing a key from a collection.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key to remove
+   * @return this batch
+   */
+  public WriteBatch remove(String collection, byte[] key) {
+    entries.add(new Entry(collection, key, null));
+    return this;
+  }
+
+  /**
+   * @return all writes of this batch in the order of adding
+   */
+  public List<Entry> getEntries() {
+    return Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * @return count of writes in this batch
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the sum of the value sizes
+   */
+  public long getByteSize() {
+    return byteSize;
+  }
+
+  /**
+   * removing all writes from this batch.
+   * 
+   * @return this batch
+   */
+  public WriteBatch clear() {
+    entries.clear();
+    byteSize = 0;
+    return this;
+  }
+}
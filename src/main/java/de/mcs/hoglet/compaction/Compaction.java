@@ -0,0 +1,107 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import java.util.List;
+
+import de.mcs.hoglet.sst.SSTableReader;
+
+/**
+ * One unit of work for the compaction engine: the files to merge and the level of the new files.
+ * 
+ * @author w.klaas
+ *
+ */
+public class Compaction {
+
+  private List<SSTableReader> inputs;
+  private int outputLevel;
+  private boolean trivialMove;
+  private boolean splitOutput = true;
+
+  /**
+   * @param inputs
+   *          the files to merge
+   * @param outputLevel
+   *          the level of the new files
+   */
+  public Compaction(List<SSTableReader> inputs, int outputLevel) {
+    this.inputs = inputs;
+    this.outputLevel = outputLevel;
+  }
+
+  /**
+   * @return the inputs
+   */
+  public List<SSTableReader> getInputs() {
+    return inputs;
+  }
+
+  /**
+   * @return the outputLevel
+   */
+  public int getOutputLevel() {
+    return outputLevel;
+  }
+
+  /**
+   * @return <code>true</code> if the only input file can be moved into the output level without rewriting
+   */
+  public boolean isTrivialMove() {
+    return trivialMove;
+  }
+
+  /**
+   * @param trivialMove
+   *          the trivialMove to set
+   * @return
+   */
+  public Compaction setTrivialMove(boolean trivialMove) {
+    this.trivialMove = trivialMove;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the output is split into files of sstMaxFileSize, otherwise one file is written
+   */
+  public boolean isSplitOutput() {
+    return splitOutput;
+  }
+
+  /**
+   * @param splitOutput
+   *          the splitOutput to set
+   * @return
+   */
+  public Compaction setSplitOutput(boolean splitOutput) {
+    this.splitOutput = splitOutput;
+    return this;
+  }
+
+  public long getInputSize() {
+    long size = 0;
+    for (SSTableReader reader : inputs) {
+      size += reader.getFileSize();
+    }
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("compaction of %s into level %d%s", inputs.toString(), outputLevel,
+        trivialMove ? " (move)" : "");
+  }
+}
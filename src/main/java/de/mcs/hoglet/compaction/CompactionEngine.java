@@ -0,0 +1,297 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.mcs.hoglet.HogletDBException;
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.sst.SSTIdentity;
+import de.mcs.hoglet.sst.SSTableList;
+import de.mcs.hoglet.sst.SSTableReader;
+import de.mcs.hoglet.sst.SSTableWriter;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+import de.mcs.utils.logging.Logger;
+
+/**
+ * Background engine merging the index files. The strategy decides what to merge, the engine does the merging on it's
+ * own thread pool. As the values are stored in the vLog, a compaction only rewrites the small key/pointer entries.
+ * 
+ * @author w.klaas
+ *
+ */
+public class CompactionEngine implements Closeable {
+
+  private Logger log = Logger.getLogger(this.getClass());
+
+  private Options options;
+  private SSTableList sstList;
+  private CompactionStrategy strategy;
+  private CompactionStatistics statistics;
+  private ExecutorService executor;
+  private Set<SSTableReader> inCompaction;
+  private AtomicInteger scheduled;
+  private CompactionListener listener;
+  private volatile boolean closed;
+
+  public CompactionEngine(Options options, SSTableList sstList) {
+    this.options = options;
+    this.sstList = sstList;
+    CompactionStyle style = options.getCompactionStyle();
+    if (style == null) {
+      style = CompactionStyle.LEVELED;
+    }
+    this.strategy = style.createStrategy(options);
+    this.statistics = new CompactionStatistics();
+    this.inCompaction = new HashSet<>();
+    this.scheduled = new AtomicInteger();
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(Math.max(1, options.getCompactionThreads()), r -> {
+      Thread thread = new Thread(r, "hoglet-compaction-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.NORM_PRIORITY - 1);
+      return thread;
+    });
+  }
+
+  /**
+   * checking if the index files need a compaction, if so a compaction is started in the background. Should be called
+   * after every change of the index files.
+   */
+  public void maybeScheduleCompaction() {
+    if (closed || !strategy.needsCompaction(sstList)) {
+      return;
+    }
+    if (scheduled.incrementAndGet() > Math.max(1, options.getCompactionThreads())) {
+      scheduled.decrementAndGet();
+      return;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          compactionRound();
+        } finally {
+          scheduled.decrementAndGet();
+        }
+        maybeScheduleCompaction();
+      });
+    } catch (RejectedExecutionException e) {
+      // engine is closing
+      scheduled.decrementAndGet();
+    }
+  }
+
+  private void compactionRound() {
+    if (closed) {
+      return;
+    }
+    Compaction compaction;
+    synchronized (inCompaction) {
+      compaction = strategy.pickCompaction(sstList, inCompaction);
+      if (compaction == null) {
+        return;
+      }
+      inCompaction.addAll(compaction.getInputs());
+    }
+    try {
+      compact(compaction);
+    } catch (IOException | UncheckedIOException e) {
+      log.error(String.format("error in %s", compaction.toString()), e);
+    } finally {
+      synchronized (inCompaction) {
+        inCompaction.removeAll(compaction.getInputs());
+      }
+    }
+  }
+
+  /**
+   * executing a compaction.
+   * 
+   * @param compaction
+   *          the compaction to do
+   * @throws IOException
+   *           if something goes wrong
+   */
+  void compact(Compaction compaction) throws IOException {
+    log.debug("starting %s", compaction.toString());
+    if (compaction.isTrivialMove() && (compaction.getInputs().size() == 1)) {
+      sstList.move(compaction.getInputs().get(0), compaction.getOutputLevel());
+      statistics.addTrivialMove();
+      return;
+    }
+    long startTime = System.currentTimeMillis();
+    List<SSTableReader> inputs = new ArrayList<>(compaction.getInputs());
+    // newest data first: lower levels are newer, inside a level the higher sequence
+    inputs.sort(Comparator.comparingInt((SSTableReader r) -> r.getIdentity().getLevel())
+        .thenComparing(Comparator.comparingLong(SSTableReader::getSequence).reversed()));
+    long sequence = 0;
+    for (SSTableReader reader : inputs) {
+      sequence = Math.max(sequence, reader.getSequence());
+    }
+
+    List<SSTableReader> olderFiles = getOlderFiles(compaction);
+    long tombstonesDropped = 0;
+
+    List<SSTableWriter> outputs = new ArrayList<>();
+    SSTableWriter writer = null;
+    long entries = 0;
+    long written = 0;
+    List<VLogEntryInfo> dropped = new ArrayList<>();
+    MergingIterator iterator = new MergingIterator(inputs).setDroppedListener(info -> {
+      if (info.getvLogName() != null) {
+        dropped.add(info);
+      }
+    });
+    boolean committing = false;
+    try {
+      while (iterator.hasNext()) {
+        Entry<MapKey, VLogEntryInfo> entry = iterator.next();
+        if (entry.getValue().isTombstone() && !isInRange(olderFiles, entry.getKey())) {
+          // no older entry of the key left, so the tombstone is obsolete
+          tombstonesDropped++;
+          VLogEntryInfo info = entry.getValue();
+          if (info.getvLogName() != null) {
+            dropped.add(info);
+          }
+          continue;
+        }
+        if (writer == null) {
+          SSTIdentity identity = sstList.newIdentity(compaction.getOutputLevel());
+          writer = new SSTableWriter(options, identity, sequence);
+          outputs.add(writer);
+        }
+        writer.write(entry.getKey(), entry.getValue());
+        entries++;
+        if (compaction.isSplitOutput() && (writer.getFileSize() >= options.getSstMaxFileSize())) {
+          writer.finish();
+          written += writer.getTmpFile().length();
+          writer = null;
+        }
+      }
+      if (writer != null) {
+        writer.finish();
+        written += writer.getTmpFile().length();
+      }
+      if (closed) {
+        throw new HogletDBException("compaction engine closed.");
+      }
+      committing = true;
+      sstList.replace(compaction.getInputs(), outputs);
+    } catch (IOException | RuntimeException e) {
+      // after the commit started, the new files are needed to finish the commit on the next start
+      if (!committing) {
+        for (SSTableWriter output : outputs) {
+          output.abort();
+        }
+      }
+      throw e;
+    }
+    if ((listener != null) && !dropped.isEmpty()) {
+      listener.entriesDropped(dropped);
+    }
+    long time = System.currentTimeMillis() - startTime;
+    statistics.addCompaction(compaction.getInputSize(), written, entries, iterator.getDroppedCount(), time);
+    statistics.addTombstonesDropped(tombstonesDropped);
+    log.debug("%s done in %d ms, %d entries written, %d dropped", compaction.toString(), time, entries,
+        iterator.getDroppedCount());
+  }
+
+  /**
+   * @return all files not part of the compaction, which may contain older entries of the keys of the compaction
+   */
+  private List<SSTableReader> getOlderFiles(Compaction compaction) {
+    long minSequence = Long.MAX_VALUE;
+    for (SSTableReader reader : compaction.getInputs()) {
+      minSequence = Math.min(minSequence, reader.getSequence());
+    }
+    List<SSTableReader> olderFiles = new ArrayList<>();
+    for (int level = compaction.getOutputLevel(); level < sstList.getLevelCount(); level++) {
+      for (SSTableReader reader : sstList.getLevel(level)) {
+        if (compaction.getInputs().contains(reader)) {
+          continue;
+        }
+        // the files of the output level are only older in level 0, all other levels have disjunct key ranges
+        if ((level > compaction.getOutputLevel()) || ((level == 0) && (reader.getSequence() < minSequence))) {
+          olderFiles.add(reader);
+        }
+      }
+    }
+    return olderFiles;
+  }
+
+  private static boolean isInRange(List<SSTableReader> files, MapKey key) {
+    for (SSTableReader reader : files) {
+      if (reader.isInRange(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the statistics
+   */
+  public CompactionStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * @param listener
+   *          the listener for the results of the compactions
+   * @return
+   */
+  public CompactionEngine setListener(CompactionListener listener) {
+    this.listener = listener;
+    return this;
+  }
+
+  /**
+   * @return the strategy
+   */
+  public CompactionStrategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * stopping the engine, a running compaction will be finished.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        log.error("compaction engine not stopped in time.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import java.util.List;
+
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+
+/**
+ * Listener for the results of the compaction engine.
+ * 
+ * @author w.klaas
+ *
+ */
+public interface CompactionListener {
+
+  /**
+   * called after a compaction has been committed. The dropped entries are not referenced by the index anymore, so
+   * their values in the vLog files are garbage, for a chunked value all the chunks too.
+   * 
+   * @param dropped
+   *          the pointers of the dropped entries
+   */
+  void entriesDropped(List<VLogEntryInfo> dropped);
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the compaction engine, independent of the used strategy.
+ * 
+ * @author w.klaas
+ *
+ */
+public class CompactionStatistics {
+
+  private AtomicLong compactionCount = new AtomicLong();
+  private AtomicLong trivialMoveCount = new AtomicLong();
+  private AtomicLong bytesRead = new AtomicLong();
+  private AtomicLong bytesWritten = new AtomicLong();
+  private AtomicLong entriesWritten = new AtomicLong();
+  private AtomicLong entriesDropped = new AtomicLong();
+  private AtomicLong tombstonesDropped = new AtomicLong();
+  private AtomicLong compactionTime = new AtomicLong();
+
+  void addCompaction(long read, long written, long entries, long dropped, long time) {
+    compactionCount.incrementAndGet();
+    bytesRead.addAndGet(read);
+    bytesWritten.addAndGet(written);
+    entriesWritten.addAndGet(entries);
+    entriesDropped.addAndGet(dropped);
+    compactionTime.addAndGet(time);
+  }
+
+  void addTombstonesDropped(long count) {
+    tombstonesDropped.addAndGet(count);
+  }
+
+  void addTrivialMove() {
+    trivialMoveCount.incrementAndGet();
+  }
+
+  /**
+   * @return count of merging compactions
+   */
+  public long getCompactionCount() {
+    return compactionCount.get();
+  }
+
+  /**
+   * @return count of files moved into the next level without rewriting
+   */
+  public long getTrivialMoveCount() {
+    return trivialMoveCount.get();
+  }
+
+  /**
+   * @return bytes of index files read by compactions
+   */
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  /**
+   * @return bytes of index files written by compactions
+   */
+  public long getBytesWritten() {
+    return bytesWritten.get();
+  }
+
+  /**
+   * @return entries written by compactions
+   */
+  public long getEntriesWritten() {
+    return entriesWritten.get();
+  }
+
+  /**
+   * @return older entries, which has been dropped by compactions
+   */
+  public long getEntriesDropped() {
+    return entriesDropped.get();
+  }
+
+  /**
+   * @return obsolete tombstones, which has been dropped by compactions, because no older entry of the key was left
+   */
+  public long getTombstonesDropped() {
+    return tombstonesDropped.get();
+  }
+
+  /**
+   * @return the time spent in compactions in milliseconds
+   */
+  public long getCompactionTime() {
+    return compactionTime.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "compactions: %d, moves: %d, read: %d bytes, written: %d bytes, entries: %d, dropped: %d, tombstones: %d, "
+            + "time: %d ms",
+        getCompactionCount(), getTrivialMoveCount(), getBytesRead(), getBytesWritten(), getEntriesWritten(),
+        getEntriesDropped(), getTombstonesDropped(), getCompactionTime());
+  }
+}
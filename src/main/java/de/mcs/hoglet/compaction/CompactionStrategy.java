@@ -0,0 +1,49 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import java.util.Set;
+
+import de.mcs.hoglet.sst.SSTableList;
+import de.mcs.hoglet.sst.SSTableReader;
+
+/**
+ * A strategy decides, which index files should be merged next. The merging itself is done by the
+ * {@link CompactionEngine}.
+ * 
+ * @author w.klaas
+ *
+ */
+public interface CompactionStrategy {
+
+  /**
+   * @param sstList
+   *          the actual index files
+   * @return <code>true</code> if the index files are in a state, which needs a compaction
+   */
+  boolean needsCompaction(SSTableList sstList);
+
+  /**
+   * selecting the next compaction.
+   * 
+   * @param sstList
+   *          the actual index files
+   * @param inCompaction
+   *          files already used by running compactions, should not be selected
+   * @return the next compaction or <code>null</code> if there is nothing to do
+   */
+  Compaction pickCompaction(SSTableList sstList, Set<SSTableReader> inCompaction);
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import de.mcs.hoglet.Options;
+
+/**
+ * The available compaction strategies.
+ * 
+ * @author w.klaas
+ *
+ */
+public enum CompactionStyle {
+  /**
+   * {@link LeveledCompactionStrategy}, low read and space amplification, good for read heavy workloads
+   */
+  LEVELED,
+  /**
+   * {@link TieredCompactionStrategy}, low write amplification, good for write heavy workloads
+   */
+  TIERED;
+
+  /**
+   * @param options
+   *          the options of the database
+   * @return a new strategy of this style
+   */
+  public CompactionStrategy createStrategy(Options options) {
+    switch (this) {
+    case TIERED:
+      return new TieredCompactionStrategy(options);
+    default:
+      return new LeveledCompactionStrategy(options);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.sst.SSTableList;
+import de.mcs.hoglet.sst.SSTableReader;
+
+/**
+ * Leveled compaction like in LevelDB. Level 0 contains the flushed memory tables with overlapping key ranges, all
+ * other levels contain files with disjunct key ranges. Every level can be levelSizeMultiplier times bigger than the
+ * level before. If a level is too big, one file of it is merged with the overlapping files of the next level. This
+ * keeps the read amplification at one file per level.
+ * 
+ * @author w.klaas
+ *
+ */
+public class LeveledCompactionStrategy implements CompactionStrategy {
+
+  private Options options;
+  // the last compacted key per level, the next compaction of this level starts after that key
+  private MapKey[] compactPointers;
+
+  public LeveledCompactionStrategy(Options options) {
+    this.options = options;
+    this.compactPointers = new MapKey[options.getMaxLevels()];
+  }
+
+  @Override
+  public boolean needsCompaction(SSTableList sstList) {
+    for (int level = 0; level < options.getMaxLevels() - 1; level++) {
+      if (getScore(sstList, level) >= 1.0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * the score of a level, a level with a score >= 1 needs a compaction.
+   */
+  double getScore(SSTableList sstList, int level) {
+    if (level == 0) {
+      return (double) sstList.getLevel(0).size() / (double) options.getLevelZeroMaxFiles();
+    }
+    return (double) sstList.getLevelSize(level) / (double) getMaxLevelSize(level);
+  }
+
+  /**
+   * @param level
+   *          the level, starting with 1
+   * @return the maximum size of the level in bytes
+   */
+  long getMaxLevelSize(int level) {
+    long size = options.getLevelBaseSize();
+    for (int i = 1; i < level; i++) {
+      size *= options.getLevelSizeMultiplier();
+    }
+    return size;
+  }
+
+  @Override
+  public synchronized Compaction pickCompaction(SSTableList sstList, Set<SSTableReader> inCompaction) {
+    int bestLevel = -1;
+    double bestScore = 1.0;
+    for (int level = 0; level < options.getMaxLevels() - 1; level++) {
+      double score = getScore(sstList, level);
+      if (score >= bestScore) {
+        bestScore = score;
+        bestLevel = level;
+      }
+    }
+    if (bestLevel < 0) {
+      return null;
+    }
+    if (bestLevel == 0) {
+      return pickLevelZero(sstList, inCompaction);
+    }
+    return pickLevel(sstList, inCompaction, bestLevel);
+  }
+
+  /**
+   * all files of level 0 overlapping each other, so all of them are merged with the overlapping files of level 1.
+   */
+  private Compaction pickLevelZero(SSTableList sstList, Set<SSTableReader> inCompaction) {
+    List<SSTableReader> inputs = sstList.getLevel(0);
+    if (inputs.isEmpty() || containsAny(inCompaction, inputs)) {
+      return null;
+    }
+    List<SSTableReader> overlapping = getOverlapping(sstList.getLevel(1), getMinKey(inputs), getMaxKey(inputs));
+    if (containsAny(inCompaction, overlapping)) {
+      return null;
+    }
+    inputs.addAll(overlapping);
+    return new Compaction(inputs, 1);
+  }
+
+  /**
+   * taking the next file of the level after the compact pointer and merging it with the overlapping files of the next
+   * level.
+   */
+  private Compaction pickLevel(SSTableList sstList, Set<SSTableReader> inCompaction, int level) {
+    List<SSTableReader> files = sstList.getLevel(level);
+    files.sort(Comparator.comparing(SSTableReader::getMinKey, Comparator.nullsFirst(Comparator.naturalOrder())));
+    List<SSTableReader> candidates = new ArrayList<>();
+    MapKey pointer = compactPointers[level];
+    for (SSTableReader reader : files) {
+      if ((pointer == null) || (reader.getMinKey().compareTo(pointer) > 0)) {
+        candidates.add(reader);
+      }
+    }
+    // wrapping around
+    for (SSTableReader reader : files) {
+      if (!candidates.contains(reader)) {
+        candidates.add(reader);
+      }
+    }
+    List<SSTableReader> nextLevel = sstList.getLevel(level + 1);
+    for (SSTableReader candidate : candidates) {
+      if (inCompaction.contains(candidate) || (candidate.getMinKey() == null)) {
+        continue;
+      }
+      List<SSTableReader> overlapping = getOverlapping(nextLevel, candidate.getMinKey(), candidate.getMaxKey());
+      if (containsAny(inCompaction, overlapping)) {
+        continue;
+      }
+      compactPointers[level] = candidate.getMaxKey();
+      List<SSTableReader> inputs = new ArrayList<>();
+      inputs.add(candidate);
+      inputs.addAll(overlapping);
+      return new Compaction(inputs, level + 1).setTrivialMove(overlapping.isEmpty());
+    }
+    return null;
+  }
+
+  static List<SSTableReader> getOverlapping(List<SSTableReader> files, MapKey minKey, MapKey maxKey) {
+    List<SSTableReader> overlapping = new ArrayList<>();
+    if (minKey == null) {
+      return overlapping;
+    }
+    for (SSTableReader reader : files) {
+      if (reader.getMinKey() == null) {
+        continue;
+      }
+      if ((reader.getMaxKey().compareTo(minKey) >= 0) && (reader.getMinKey().compareTo(maxKey) <= 0)) {
+        overlapping.add(reader);
+      }
+    }
+    return overlapping;
+  }
+
+  static MapKey getMinKey(List<SSTableReader> files) {
+    MapKey minKey = null;
+    for (SSTableReader reader : files) {
+      if ((reader.getMinKey() != null) && ((minKey == null) || (reader.getMinKey().compareTo(minKey) < 0))) {
+        minKey = reader.getMinKey();
+      }
+    }
+    return minKey;
+  }
+
+  static MapKey getMaxKey(List<SSTableReader> files) {
+    MapKey maxKey = null;
+    for (SSTableReader reader : files) {
+      if ((reader.getMaxKey() != null) && ((maxKey == null) || (reader.getMaxKey().compareTo(maxKey) > 0))) {
+        maxKey = reader.getMaxKey();
+      }
+    }
+    return maxKey;
+  }
+
+  static boolean containsAny(Set<SSTableReader> inCompaction, List<SSTableReader> files) {
+    for (SSTableReader reader : files) {
+      if (inCompaction.contains(reader)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
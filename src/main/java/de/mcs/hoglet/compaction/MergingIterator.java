@@ -0,0 +1,130 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+
+/**
+ * Merging sorted iterators into one sorted iterator. If a key is in more than one source, only the entry of the source
+ * with the lowest index survives, so the sources have to be given newest first.
+ * 
+ * @author w.klaas
+ *
+ */
+public class MergingIterator implements Iterator<Entry<MapKey, VLogEntryInfo>> {
+
+  private static class Source implements Comparable<Source> {
+    private Iterator<Entry<MapKey, VLogEntryInfo>> iterator;
+    private int rank;
+    private Entry<MapKey, VLogEntryInfo> current;
+
+    Source(Iterator<Entry<MapKey, VLogEntryInfo>> iterator, int rank) {
+      this.iterator = iterator;
+      this.rank = rank;
+    }
+
+    boolean advance() {
+      if (iterator.hasNext()) {
+        current = iterator.next();
+        return true;
+      }
+      current = null;
+      return false;
+    }
+
+    @Override
+    public int compareTo(Source o) {
+      int compare = current.getKey().compareTo(o.current.getKey());
+      if (compare == 0) {
+        return Integer.compare(rank, o.rank);
+      }
+      return compare;
+    }
+  }
+
+  private PriorityQueue<Source> queue;
+  private long droppedCount;
+  private Consumer<VLogEntryInfo> droppedListener;
+
+  /**
+   * @param sources
+   *          the sorted sources, newest first
+   */
+  public MergingIterator(List<? extends Iterable<Entry<MapKey, VLogEntryInfo>>> sources) {
+    queue = new PriorityQueue<>(Math.max(1, sources.size()));
+    int rank = 0;
+    for (Iterable<Entry<MapKey, VLogEntryInfo>> iterable : sources) {
+      Source source = new Source(iterable.iterator(), rank++);
+      if (source.advance()) {
+        queue.add(source);
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return !queue.isEmpty();
+  }
+
+  @Override
+  public Entry<MapKey, VLogEntryInfo> next() {
+    Source source = queue.poll();
+    if (source == null) {
+      throw new NoSuchElementException();
+    }
+    Entry<MapKey, VLogEntryInfo> entry = source.current;
+    if (source.advance()) {
+      queue.add(source);
+    }
+    // dropping all older entries of the same key
+    while (!queue.isEmpty() && queue.peek().current.getKey().equals(entry.getKey())) {
+      Source older = queue.poll();
+      droppedCount++;
+      if (droppedListener != null) {
+        droppedListener.accept(older.current.getValue());
+      }
+      if (older.advance()) {
+        queue.add(older);
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * @param droppedListener
+   *          will be called for every dropped older entry
+   * @return
+   */
+  public MergingIterator setDroppedListener(Consumer<VLogEntryInfo> droppedListener) {
+    this.droppedListener = droppedListener;
+    return this;
+  }
+
+  /**
+   * @return count of older entries, which has been dropped so far
+   */
+  public long getDroppedCount() {
+    return droppedCount;
+  }
+}
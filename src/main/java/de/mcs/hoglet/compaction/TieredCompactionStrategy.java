@@ -0,0 +1,128 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.sst.SSTableList;
+import de.mcs.hoglet.sst.SSTableReader;
+
+/**
+ * Tiered (universal) compaction for write heavy workloads. All files stay in level 0, every file is a sorted run. Runs
+ * of similar size, which are neighbours in age, are merged into one bigger run. Every entry is rewritten only a few
+ * times, at the costs of more files to search on a read and more space for outdated entries.
+ * <p>
+ * A compaction is needed, if there are more than levelZeroMaxFiles runs. Than the runs are checked in this order:
+ * <ol>
+ * <li>size amplification: if the younger runs together are bigger than tieredMaxSizeAmplification percent of the
+ * oldest run, all runs are merged.</li>
+ * <li>size ratio: starting with the youngest run, the following older runs are added, as long as the next run is not
+ * more than tieredSizeRatio percent bigger than the sum of the runs so far.</li>
+ * <li>file count: the youngest runs are merged to get below levelZeroMaxFiles.</li>
+ * </ol>
+ * Only runs neighboured in age are merged, so the merged run takes the age of the youngest input and the order of the
+ * runs stays correct for lookups.
+ * 
+ * @author w.klaas
+ *
+ */
+public class TieredCompactionStrategy implements CompactionStrategy {
+
+  private Options options;
+
+  public TieredCompactionStrategy(Options options) {
+    this.options = options;
+  }
+
+  @Override
+  public boolean needsCompaction(SSTableList sstList) {
+    return sstList.getLevel(0).size() >= Math.max(2, options.getLevelZeroMaxFiles());
+  }
+
+  @Override
+  public synchronized Compaction pickCompaction(SSTableList sstList, Set<SSTableReader> inCompaction) {
+    if (!needsCompaction(sstList)) {
+      return null;
+    }
+    // newest first
+    List<SSTableReader> runs = sstList.getLevel(0);
+    List<SSTableReader> inputs = pickSizeAmplification(runs, inCompaction);
+    if (inputs == null) {
+      inputs = pickSizeRatio(runs, inCompaction);
+    }
+    if (inputs == null) {
+      inputs = pickFileCount(runs, inCompaction);
+    }
+    if (inputs == null) {
+      return null;
+    }
+    return new Compaction(inputs, 0).setSplitOutput(false);
+  }
+
+  private List<SSTableReader> pickSizeAmplification(List<SSTableReader> runs, Set<SSTableReader> inCompaction) {
+    if (LeveledCompactionStrategy.containsAny(inCompaction, runs)) {
+      return null;
+    }
+    long oldestSize = runs.get(runs.size() - 1).getFileSize();
+    long youngerSize = 0;
+    for (int i = 0; i < runs.size() - 1; i++) {
+      youngerSize += runs.get(i).getFileSize();
+    }
+    if (youngerSize * 100L < oldestSize * options.getTieredMaxSizeAmplification()) {
+      return null;
+    }
+    return new ArrayList<>(runs);
+  }
+
+  private List<SSTableReader> pickSizeRatio(List<SSTableReader> runs, Set<SSTableReader> inCompaction) {
+    int minWidth = Math.max(2, options.getTieredMinMergeWidth());
+    int maxWidth = Math.max(minWidth, options.getTieredMaxMergeWidth());
+    for (int start = 0; start < runs.size(); start++) {
+      List<SSTableReader> candidate = new ArrayList<>();
+      long size = 0;
+      for (int i = start; (i < runs.size()) && (candidate.size() < maxWidth); i++) {
+        SSTableReader run = runs.get(i);
+        if (inCompaction.contains(run)) {
+          break;
+        }
+        if (!candidate.isEmpty() && (size * (100L + options.getTieredSizeRatio()) < run.getFileSize() * 100L)) {
+          break;
+        }
+        candidate.add(run);
+        size += run.getFileSize();
+      }
+      if (candidate.size() >= minWidth) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private List<SSTableReader> pickFileCount(List<SSTableReader> runs, Set<SSTableReader> inCompaction) {
+    int width = Math.max(Math.max(2, options.getTieredMinMergeWidth()),
+        runs.size() - options.getLevelZeroMaxFiles() + 1);
+    for (int start = 0; start + width <= runs.size(); start++) {
+      List<SSTableReader> candidate = runs.subList(start, start + width);
+      if (!LeveledCompactionStrategy.containsAny(inCompaction, candidate)) {
+        return new ArrayList<>(candidate);
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * 
+ */
+package de.mcs.hoglet.compression;
+
+import java.io.IOException;
+
+/**
+ * A codec for compressing the values of a vLog. The id of the codec is written into the header of every compressed
+ * entry, so an id must never change once data has been written with it. Own codecs can be registered with
+ * {@link Codecs#register(Codec)} or as a service via <code>META-INF/services/de.mcs.hoglet.compression.Codec</code>.
+ * 
+ * @author w.klaas
+ *
+ */
+public interface Codec {
+
+  /**
+   * id of uncompressed data
+   */
+  int NONE = 0;
+
+  /**
+   * @return the id of this codec, 1..127, the ids below 16 are reserved for the built in codecs
+   */
+  int getId();
+
+  /**
+   * compressing a value.
+   * 
+   * @param data
+   *          the uncompressed value
+   * @return the compressed value
+   * @throws IOException
+   *           if something goes wrong
+   */
+  byte[] compress(byte[] data) throws IOException;
+
+  /**
+   * decompressing a value.
+   * 
+   * @param data
+   *          the array with the compressed value
+   * @param offset
+   *          the offset of the compressed value in the array
+   * @param length
+   *          the length of the compressed value
+   * @param rawLength
+   *          the length of the uncompressed value
+   * @return the uncompressed value
+   * @throws IOException
+   *           if the data could not be decompressed
+   */
+  byte[] decompress(byte[] data, int offset, int length, int rawLength) throws IOException;
+
+  /**
+   * @return <code>true</code> if this codec can compress with a preset dictionary
+   */
+  default boolean isDictionarySupported() {
+    return false;
+  }
+
+  /**
+   * compressing a value with a preset dictionary.
+   * 
+   * @param data
+   *          the uncompressed value
+   * @param dictionary
+   *          the dictionary
+   * @return the compressed value
+   * @throws IOException
+   *           if something goes wrong
+   */
+  default byte[] compress(byte[] data, byte[] dictionary) throws IOException {
+    throw new IOException(String.format("codec %d doesn't support dictionaries", getId()));
+  }
+
+  /**
+   * decompressing a value, which has been compressed with a preset dictionary.
+   * 
+   * @param data
+   *          the array with the compressed value
+   * @param offset
+   *          the offset of the compressed value in the array
+   * @param length
+   *          the length of the compressed value
+   * @param rawLength
+   *          the length of the uncompressed value
+   * @param dictionary
+   *          the dictionary used for the compression
+   * @return the uncompressed value
+   * @throws IOException
+   *           if the data could not be decompressed
+   */
+  default byte[] decompress(byte[] data, int offset, int length, int rawLength, byte[] dictionary)
+      throws IOException {
+    throw new IOException(String.format("codec %d doesn't support dictionaries", getId()));
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * 
+ */
+package de.mcs.hoglet.compression;
+
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+
+import de.mcs.utils.logging.Logger;
+
+/**
+ * Registry of the known codecs. The built in codecs are always present, other codecs are loaded with the
+ * {@link ServiceLoader} or registered manually.
+ * 
+ * @author w.klaas
+ *
+ */
+public class Codecs {
+
+  /**
+   * the highest codec id, the high bit of the codec byte in the vLog header marks the use of a dictionary
+   */
+  public static final int MAX_ID = 127;
+
+  private static final Logger log = Logger.getLogger(Codecs.class);
+  private static final Map<Integer, Codec> CODECS = new ConcurrentHashMap<>();
+
+  static {
+    register(new DeflateCodec());
+    register(new DeflateCodec(DeflateCodec.BEST_ID, Deflater.BEST_COMPRESSION));
+    try {
+      for (Codec codec : ServiceLoader.load(Codec.class)) {
+        if (CODECS.putIfAbsent(codec.getId(), codec) != null) {
+          log.warn(String.format("codec %s ignored, id %d is already in use.", codec.getClass().getName(),
+              codec.getId()));
+        }
+      }
+    } catch (ServiceConfigurationError e) {
+      log.error("can't load codecs", e);
+    }
+  }
+
+  private Codecs() {
+  }
+
+  /**
+   * registering a codec, replacing a codec with the same id.
+   * 
+   * @param codec
+   *          the codec
+   */
+  public static void register(Codec codec) {
+    if ((codec.getId() <= Codec.NONE) || (codec.getId() > MAX_ID)) {
+      throw new IllegalArgumentException(String.format("codec id %d not in range 1..%d", codec.getId(), MAX_ID));
+    }
+    CODECS.put(codec.getId(), codec);
+  }
+
+  /**
+   * @param id
+   *          the id of the codec
+   * @return the codec or <code>null</code> for {@link Codec#NONE} or an unknown id
+   */
+  public static Codec getCodec(int id) {
+    return CODECS.get(id);
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * 
+ */
+package de.mcs.hoglet.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec with the deflate implementation of the jdk. The level doesn't change the format, so there are two codecs
+ * with the same format: the fast one for new values and the strong one for the recompression of old vLog files.
+ * 
+ * @author w.klaas
+ *
+ */
+public class DeflateCodec implements Codec {
+
+  /**
+   * the id of the fast codec
+   */
+  public static final int ID = 1;
+  /**
+   * the id of the codec with the best compression
+   */
+  public static final int BEST_ID = 2;
+
+  private int id;
+  private int level;
+
+  public DeflateCodec() {
+    this(ID, Deflater.BEST_SPEED);
+  }
+
+  /**
+   * @param id
+   *          the id of the codec
+   * @param level
+   *          the compression level of the deflater
+   */
+  public DeflateCodec(int id, int level) {
+    this.id = id;
+    this.level = level;
+  }
+
+  @Override
+  public int getId() {
+    return id;
+  }
+
+  @Override
+  public byte[] compress(byte[] data) throws IOException {
+    return compress(data, null);
+  }
+
+  @Override
+  public boolean isDictionarySupported() {
+    return true;
+  }
+
+  @Override
+  public byte[] compress(byte[] data, byte[] dictionary) throws IOException {
+    Deflater deflater = new Deflater(level, true);
+    try {
+      if (dictionary != null) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(data);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+      byte[] buffer = new byte[Math.min(data.length + 16, 64 * 1024)];
+      while (!deflater.finished()) {
+        int count = deflater.deflate(buffer);
+        out.write(buffer, 0, count);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  @Override
+  public byte[] decompress(byte[] data, int offset, int length, int rawLength) throws IOException {
+    return decompress(data, offset, length, rawLength, null);
+  }
+
+  @Override
+  public byte[] decompress(byte[] data, int offset, int length, int rawLength, byte[] dictionary)
+      throws IOException {
+    Inflater inflater = new Inflater(true);
+    try {
+      if (dictionary != null) {
+        // raw deflate data doesn't ask for the dictionary, so it has to be set in front
+        inflater.setDictionary(dictionary);
+      }
+      inflater.setInput(data, offset, length);
+      byte[] raw = new byte[rawLength];
+      int pos = 0;
+      while (pos < rawLength) {
+        int count = inflater.inflate(raw, pos, rawLength - pos);
+        if ((count == 0) && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        pos += count;
+      }
+      if (pos != rawLength) {
+        throw new IOException(String.format("corrupt compressed value, %d of %d bytes", pos, rawLength));
+      }
+      return raw;
+    } catch (DataFormatException e) {
+      throw new IOException("corrupt compressed value", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.memorytable;
+
+import java.util.Map.Entry;
+
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+
+/**
+ * The memory table holds the newest part of the index. For every prefixed key only the pointer into the vLog is
+ * stored, never the value itself. Iterating returns the entries sorted by key, as needed for writing an index file.
+ * 
+ * @author w.klaas
+ *
+ */
+public interface MemoryTable extends Iterable<Entry<MapKey, VLogEntryInfo>> {
+
+  /**
+   * adding or replacing the pointer of a key.
+   * 
+   * @param key
+   *          the prefixed key
+   * @param info
+   *          the pointer into the vLog, for deletions a tombstone
+   * @return the pointer stored before, or <code>null</code>
+   */
+  VLogEntryInfo add(MapKey key, VLogEntryInfo info);
+
+  /**
+   * @param key
+   *          the prefixed key
+   * @return the pointer of the key, could also be a tombstone, or <code>null</code> if this table doesn't know the key
+   */
+  VLogEntryInfo get(MapKey key);
+
+  /**
+   * @param key
+   *          the prefixed key
+   * @return <code>true</code> if this table has an entry (even a tombstone) for the key
+   */
+  boolean containsKey(MapKey key);
+
+  /**
+   * @return count of entries in this table
+   */
+  int size();
+
+  /**
+   * @return the approximately heap usage of this table in bytes
+   */
+  long getByteSize();
+
+  /**
+   * @return <code>true</code> if the byte budget of this table is exhausted and the table should be flushed
+   */
+  boolean isFull();
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.memorytable;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+
+/**
+ * Memory table based on a concurrent skip list. Readers never block, writers only compete on the skip list nodes.
+ * 
+ * @author w.klaas
+ *
+ */
+public class SkipListMemoryTable implements MemoryTable {
+
+  /**
+   * estimated heap usage of one entry without the key bytes: skip list node and index, the key object, the pointer
+   * object with its hash
+   */
+  static final int ENTRY_OVERHEAD = 160;
+
+  private ConcurrentSkipListMap<MapKey, VLogEntryInfo> map;
+  private AtomicLong byteSize;
+  private long maxByteSize;
+
+  public SkipListMemoryTable(Options options) {
+    this.map = new ConcurrentSkipListMap<>();
+    this.byteSize = new AtomicLong();
+    this.maxByteSize = options.getMemTableMaxSize();
+  }
+
+  @Override
+  public VLogEntryInfo add(MapKey key, VLogEntryInfo info) {
+    VLogEntryInfo old = map.put(key, info);
+    if (old == null) {
+      byteSize.addAndGet(key.length() + ENTRY_OVERHEAD);
+    }
+    return old;
+  }
+
+  @Override
+  public VLogEntryInfo get(MapKey key) {
+    return map.get(key);
+  }
+
+  @Override
+  public boolean containsKey(MapKey key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public long getByteSize() {
+    return byteSize.get();
+  }
+
+  @Override
+  public boolean isFull() {
+    return byteSize.get() >= maxByteSize;
+  }
+
+  @Override
+  public Iterator<Entry<MapKey, VLogEntryInfo>> iterator() {
+    return map.entrySet().iterator();
+  }
+
+}
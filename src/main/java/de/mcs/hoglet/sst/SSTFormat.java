@@ -0,0 +1,122 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.sst;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Operation;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+
+/**
+ * The layout of an index file. The file starts with the data blocks, each block is a sequence of entries sorted by
+ * key:
+ * 
+ * <pre>
+ * entry:  short keyLength, key, byte operation, short vLogNameLength, vLogName, long start, long startBinary,
+ *         long end, byte hashLength, hash
+ * </pre>
+ * 
+ * After the data blocks follows the block index with the last key of every block, so a lookup only has to read one
+ * block:
+ * 
+ * <pre>
+ * index:  int blockCount, blockCount * (short lastKeyLength, lastKey, long offset, int length, int crc),
+ *         short minKeyLength, minKey
+ * footer: long indexOffset, int indexLength, long entryCount, long sequence, int version, long magic
+ * </pre>
+ * 
+ * @author w.klaas
+ *
+ */
+final class SSTFormat {
+
+  static final long MAGIC = 0x486F676C65745353L;
+  static final int VERSION = 1;
+  static final int FOOTER_LENGTH = 8 + 4 + 8 + 8 + 4 + 8;
+  static final String TMP_EXTENSION = ".tmp";
+
+  private static final Operation[] OPERATIONS = Operation.values();
+
+  private SSTFormat() {
+  }
+
+  static void writeEntry(DataOutput out, MapKey key, VLogEntryInfo info) throws IOException {
+    writeBytes(out, key.getKey());
+    out.writeByte(info.getOperation().ordinal());
+    String vLogName = info.getvLogName();
+    writeBytes(out, vLogName == null ? new byte[0] : vLogName.getBytes(StandardCharsets.UTF_8));
+    out.writeLong(info.getStart());
+    out.writeLong(info.getStartBinary());
+    out.writeLong(info.getEnd());
+    byte[] hash = info.getHash();
+    if (hash == null) {
+      out.writeByte(0);
+    } else {
+      out.writeByte(hash.length);
+      out.write(hash);
+    }
+  }
+
+  static byte[] readKey(ByteBuffer buffer) {
+    return readBytes(buffer);
+  }
+
+  static VLogEntryInfo readInfo(ByteBuffer buffer) {
+    VLogEntryInfo info = new VLogEntryInfo();
+    info.setOperation(OPERATIONS[buffer.get()]);
+    byte[] vLogName = readBytes(buffer);
+    if (vLogName.length > 0) {
+      info.setvLogName(new String(vLogName, StandardCharsets.UTF_8));
+    }
+    info.setStart(buffer.getLong());
+    info.setStartBinary(buffer.getLong());
+    info.setEnd(buffer.getLong());
+    int hashLength = buffer.get() & 0xff;
+    if (hashLength > 0) {
+      byte[] hash = new byte[hashLength];
+      buffer.get(hash);
+      info.setHash(hash);
+    }
+    return info;
+  }
+
+  /**
+   * skipping the value part of an entry, if the key doesn't match.
+   */
+  static void skipInfo(ByteBuffer buffer) {
+    buffer.get();
+    int nameLength = buffer.getShort() & 0xffff;
+    buffer.position(buffer.position() + nameLength + 8 + 8 + 8);
+    int hashLength = buffer.get() & 0xff;
+    buffer.position(buffer.position() + hashLength);
+  }
+
+  static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  static byte[] readBytes(ByteBuffer buffer) {
+    int length = buffer.getShort() & 0xffff;
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
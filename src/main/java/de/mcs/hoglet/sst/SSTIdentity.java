@@ -0,0 +1,74 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.sst;
+
+import java.io.File;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Identity of an index file, consisting of the level and a unique number. Both are part of the file name.
+ * 
+ * @author w.klaas
+ *
+ */
+public class SSTIdentity {
+
+  private static final Pattern FILE_PATTERN = Pattern.compile("sst_(\\d+)_(\\d+)\\.sst");
+
+  private int level;
+  private long number;
+
+  public static SSTIdentity fromFile(File file) {
+    Matcher matcher = FILE_PATTERN.matcher(file.getName());
+    if (!matcher.matches()) {
+      return null;
+    }
+    return new SSTIdentity(Integer.parseInt(matcher.group(1)), Long.parseLong(matcher.group(2)));
+  }
+
+  public SSTIdentity(int level, long number) {
+    this.level = level;
+    this.number = number;
+  }
+
+  /**
+   * @return the level
+   */
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * @return the number
+   */
+  public long getNumber() {
+    return number;
+  }
+
+  public String getFileName() {
+    return String.format("sst_%02d_%06d.sst", level, number);
+  }
+
+  public File getFile(File path) {
+    return new File(path, getFileName());
+  }
+
+  @Override
+  public String toString() {
+    return getFileName();
+  }
+}
@@ -0,0 +1,370 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.sst;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import de.mcs.hoglet.HogletDBException;
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+import de.mcs.utils.logging.Logger;
+
+/**
+ * The list of all index files of the database, organized in levels. Inside a level the files are sorted newest first,
+ * so the first hit of a lookup is always the newest entry of a key.
+ * 
+ * @author w.klaas
+ *
+ */
+public class SSTableList implements Closeable {
+
+  /**
+   * newest data first, on same age the newer file first
+   */
+  static final Comparator<SSTableReader> NEWEST_FIRST = Comparator.comparingLong(SSTableReader::getSequence)
+      .thenComparingLong(r -> r.getIdentity().getNumber()).reversed();
+
+  private static final Pattern COMMIT_PATTERN = Pattern.compile("compaction_\\d+\\.log");
+  private static final String COMMIT_INPUT = "input ";
+  private static final String COMMIT_OUTPUT = "output ";
+
+  private Logger log = Logger.getLogger(this.getClass());
+
+  private Options options;
+  private File path;
+  private List<List<SSTableReader>> levels;
+  private ReentrantReadWriteLock lock;
+  private AtomicLong nextNumber;
+
+  public SSTableList(Options options) throws IOException {
+    this.options = options;
+    this.path = new File(options.getPath());
+    this.levels = new ArrayList<>();
+    this.lock = new ReentrantReadWriteLock();
+    this.nextNumber = new AtomicLong(1);
+    init();
+  }
+
+  private void init() throws IOException {
+    File[] files = path.listFiles();
+    if (files == null) {
+      return;
+    }
+    // first finish all compactions, which are committed but not completely executed
+    for (File file : files) {
+      if (COMMIT_PATTERN.matcher(file.getName()).matches()) {
+        redoCommit(file);
+      }
+    }
+    files = path.listFiles();
+    long maxNumber = 0;
+    int count = 0;
+    for (File file : files) {
+      if (file.getName().endsWith(SSTFormat.TMP_EXTENSION)) {
+        log.info("deleting unfinished index file %s", file.getName());
+        file.delete();
+        continue;
+      }
+      SSTIdentity identity = SSTIdentity.fromFile(file);
+      if (identity != null) {
+        SSTableReader reader = new SSTableReader(file);
+        getLevelList(identity.getLevel()).add(reader);
+        maxNumber = Math.max(maxNumber, identity.getNumber());
+        count++;
+      }
+    }
+    for (List<SSTableReader> level : levels) {
+      level.sort(NEWEST_FIRST);
+    }
+    nextNumber.set(maxNumber + 1);
+    log.debug("%d index files loaded", count);
+  }
+
+  private List<SSTableReader> getLevelList(int level) {
+    while (levels.size() <= level) {
+      levels.add(new ArrayList<>());
+    }
+    return levels.get(level);
+  }
+
+  /**
+   * @param level
+   *          the level of the new file
+   * @return a new unique identity for an index file
+   */
+  public SSTIdentity newIdentity(int level) {
+    return new SSTIdentity(level, nextNumber.getAndIncrement());
+  }
+
+  /**
+   * adding a new written index file.
+   * 
+   * @param reader
+   *          the reader of the new file
+   */
+  public void add(SSTableReader reader) {
+    lock.writeLock().lock();
+    try {
+      List<SSTableReader> level = getLevelList(reader.getIdentity().getLevel());
+      level.add(reader);
+      level.sort(NEWEST_FIRST);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * replacing the input files of a compaction with the new output files. First a commit file with all inputs and outputs
+   * is written, than the outputs are renamed and made visible and at last the inputs are deleted. If the process stops
+   * in between, the commit file will be used on the next start to finish the replacement.
+   * 
+   * @param inputs
+   *          the compacted files
+   * @param outputs
+   *          the finished but not committed writers of the new files
+   * @return the readers of the new files
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public List<SSTableReader> replace(List<SSTableReader> inputs, List<SSTableWriter> outputs) throws IOException {
+    File commitFile = writeCommit(inputs, outputs);
+    List<SSTableReader> readers = new ArrayList<>();
+    for (SSTableWriter writer : outputs) {
+      writer.commit();
+      readers.add(new SSTableReader(writer.getFile()));
+    }
+    lock.writeLock().lock();
+    try {
+      for (SSTableReader input : inputs) {
+        getLevelList(input.getIdentity().getLevel()).remove(input);
+      }
+      for (SSTableReader reader : readers) {
+        getLevelList(reader.getIdentity().getLevel()).add(reader);
+      }
+      for (List<SSTableReader> level : levels) {
+        level.sort(NEWEST_FIRST);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    // readers holding the read lock while reading, so nobody is using the inputs anymore
+    for (SSTableReader input : inputs) {
+      input.close();
+      Files.deleteIfExists(input.getFile().toPath());
+    }
+    Files.delete(commitFile.toPath());
+    return readers;
+  }
+
+  /**
+   * moving a file into another level without rewriting it, only the file name changes.
+   * 
+   * @param reader
+   *          the file to move
+   * @param newLevel
+   *          the new level
+   * @return the reader of the moved file
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public SSTableReader move(SSTableReader reader, int newLevel) throws IOException {
+    SSTIdentity identity = new SSTIdentity(newLevel, reader.getIdentity().getNumber());
+    File newFile = identity.getFile(path);
+    lock.writeLock().lock();
+    try {
+      reader.close();
+      Files.move(reader.getFile().toPath(), newFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      SSTableReader newReader = new SSTableReader(newFile);
+      getLevelList(reader.getIdentity().getLevel()).remove(reader);
+      List<SSTableReader> level = getLevelList(newLevel);
+      level.add(newReader);
+      level.sort(NEWEST_FIRST);
+      return newReader;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private File writeCommit(List<SSTableReader> inputs, List<SSTableWriter> outputs) throws IOException {
+    long number = outputs.isEmpty() ? nextNumber.getAndIncrement() : outputs.get(0).getIdentity().getNumber();
+    File commitFile = new File(path, String.format("compaction_%06d.log", number));
+    StringBuilder b = new StringBuilder();
+    for (SSTableReader input : inputs) {
+      b.append(COMMIT_INPUT).append(input.getFile().getName()).append('\n');
+    }
+    for (SSTableWriter output : outputs) {
+      b.append(COMMIT_OUTPUT).append(output.getFile().getName()).append('\n');
+    }
+    try (FileOutputStream out = new FileOutputStream(commitFile)) {
+      out.write(b.toString().getBytes(StandardCharsets.UTF_8));
+      out.getFD().sync();
+    }
+    return commitFile;
+  }
+
+  private void redoCommit(File commitFile) throws IOException {
+    log.info("finishing compaction %s", commitFile.getName());
+    for (String line : Files.readAllLines(commitFile.toPath(), StandardCharsets.UTF_8)) {
+      if (line.startsWith(COMMIT_OUTPUT)) {
+        File file = new File(path, line.substring(COMMIT_OUTPUT.length()));
+        File tmpFile = new File(path, file.getName() + SSTFormat.TMP_EXTENSION);
+        if (tmpFile.exists()) {
+          Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (!file.exists()) {
+          throw new HogletDBException(String.format("index file %s of compaction missing.", file.getName()));
+        }
+      }
+    }
+    for (String line : Files.readAllLines(commitFile.toPath(), StandardCharsets.UTF_8)) {
+      if (line.startsWith(COMMIT_INPUT)) {
+        Files.deleteIfExists(new File(path, line.substring(COMMIT_INPUT.length())).toPath());
+      }
+    }
+    Files.delete(commitFile.toPath());
+  }
+
+  /**
+   * searching the newest entry of a key in all index files.
+   * 
+   * @param key
+   *          the prefixed key
+   * @return the pointer into the vLog, a tombstone or <code>null</code> if the key is unknown
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLogEntryInfo get(MapKey key) throws IOException {
+    lock.readLock().lock();
+    try {
+      for (List<SSTableReader> level : levels) {
+        for (SSTableReader reader : level) {
+          VLogEntryInfo info = reader.get(key);
+          if (info != null) {
+            return info;
+          }
+        }
+      }
+      return null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param level
+   *          the level
+   * @return a copy of the file list of the level, newest first
+   */
+  public List<SSTableReader> getLevel(int level) {
+    lock.readLock().lock();
+    try {
+      if (level >= levels.size()) {
+        return new ArrayList<>();
+      }
+      return new ArrayList<>(levels.get(level));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return count of levels with files
+   */
+  public int getLevelCount() {
+    lock.readLock().lock();
+    try {
+      return levels.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param level
+   *          the level
+   * @return sum of the file sizes of the level
+   */
+  public long getLevelSize(int level) {
+    lock.readLock().lock();
+    try {
+      if (level >= levels.size()) {
+        return 0;
+      }
+      long size = 0;
+      for (SSTableReader reader : levels.get(level)) {
+        size += reader.getFileSize();
+      }
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return count of all index files
+   */
+  public int getFileCount() {
+    lock.readLock().lock();
+    try {
+      int count = 0;
+      for (List<SSTableReader> level : levels) {
+        count += level.size();
+      }
+      return count;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      for (List<SSTableReader> level : levels) {
+        for (SSTableReader reader : level) {
+          try {
+            reader.close();
+          } catch (IOException e) {
+            log.error(e);
+          }
+        }
+        level.clear();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return the options
+   */
+  public Options getOptions() {
+    return options;
+  }
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.sst;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+import de.mcs.hoglet.HogletDBException;
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+import de.mcs.utils.logging.Logger;
+
+/**
+ * Reading an immutable index file. On opening only the footer and the block index are read and hold in memory. A point
+ * lookup than needs exactly one block read.
+ * 
+ * @author w.klaas
+ *
+ */
+public class SSTableReader implements Closeable, Iterable<Entry<MapKey, VLogEntryInfo>> {
+
+  private Logger log = Logger.getLogger(this.getClass());
+
+  private SSTIdentity identity;
+  private File file;
+  private RandomAccessFile raf;
+  private FileChannel fileChannel;
+  private long fileSize;
+  private long entryCount;
+  private long sequence;
+
+  private byte[][] blockLastKeys;
+  private long[] blockOffsets;
+  private int[] blockLengths;
+  private int[] blockCrcs;
+  private MapKey minKey;
+  private MapKey maxKey;
+
+  public SSTableReader(File file) throws IOException {
+    this.file = file;
+    this.identity = SSTIdentity.fromFile(file);
+    if (identity == null) {
+      throw new HogletDBException(String.format("not an index file: %s", file.getName()));
+    }
+    raf = new RandomAccessFile(file, "r");
+    fileChannel = raf.getChannel();
+    try {
+      readIndex();
+    } catch (IOException | RuntimeException e) {
+      raf.close();
+      throw e;
+    }
+  }
+
+  private void readIndex() throws IOException {
+    fileSize = fileChannel.size();
+    if (fileSize < SSTFormat.FOOTER_LENGTH) {
+      throw new HogletDBException(String.format("index file %s is too short.", file.getName()));
+    }
+    ByteBuffer footer = read(fileSize - SSTFormat.FOOTER_LENGTH, SSTFormat.FOOTER_LENGTH);
+    long indexOffset = footer.getLong();
+    int indexLength = footer.getInt();
+    entryCount = footer.getLong();
+    sequence = footer.getLong();
+    int version = footer.getInt();
+    long magic = footer.getLong();
+    if (magic != SSTFormat.MAGIC) {
+      throw new HogletDBException(String.format("index file %s has a wrong magic.", file.getName()));
+    }
+    if (version > SSTFormat.VERSION) {
+      throw new HogletDBException(String.format("index file %s has unknown version %d.", file.getName(), version));
+    }
+
+    ByteBuffer index = read(indexOffset, indexLength);
+    int blockCount = index.getInt();
+    blockLastKeys = new byte[blockCount][];
+    blockOffsets = new long[blockCount];
+    blockLengths = new int[blockCount];
+    blockCrcs = new int[blockCount];
+    for (int i = 0; i < blockCount; i++) {
+      blockLastKeys[i] = SSTFormat.readBytes(index);
+      blockOffsets[i] = index.getLong();
+      blockLengths[i] = index.getInt();
+      blockCrcs[i] = index.getInt();
+    }
+    if (blockCount > 0) {
+      minKey = new MapKey(SSTFormat.readBytes(index));
+      maxKey = new MapKey(blockLastKeys[blockCount - 1]);
+    }
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      int read = fileChannel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new HogletDBException(String.format("unexpected end of index file %s", file.getName()));
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private ByteBuffer readBlock(int block) throws IOException {
+    ByteBuffer buffer = read(blockOffsets[block], blockLengths[block]);
+    CRC32 crc32 = new CRC32();
+    crc32.update(buffer.array(), 0, blockLengths[block]);
+    if ((int) crc32.getValue() != blockCrcs[block]) {
+      throw new HogletDBException(String.format("checksum error in block %d of index file %s", block, file.getName()));
+    }
+    return buffer;
+  }
+
+  /**
+   * @param key
+   *          the key to test
+   * @return <code>true</code> if the key is inside the key range of this file
+   */
+  public boolean isInRange(MapKey key) {
+    if (minKey == null) {
+      return false;
+    }
+    return (minKey.compareTo(key) <= 0) && (maxKey.compareTo(key) >= 0);
+  }
+
+  /**
+   * point lookup of a key.
+   * 
+   * @param key
+   *          the prefixed key
+   * @return the pointer into the vLog, a tombstone or <code>null</code> if this file doesn't contain the key
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLogEntryInfo get(MapKey key) throws IOException {
+    if (!isInRange(key)) {
+      return null;
+    }
+    int block = findBlock(key.getKey());
+    if (block < 0) {
+      return null;
+    }
+    ByteBuffer buffer = readBlock(block);
+    byte[] search = key.getKey();
+    while (buffer.hasRemaining()) {
+      byte[] entryKey = SSTFormat.readKey(buffer);
+      int compare = MapKey.compare(entryKey, search);
+      if (compare == 0) {
+        return SSTFormat.readInfo(buffer);
+      }
+      if (compare > 0) {
+        return null;
+      }
+      SSTFormat.skipInfo(buffer);
+    }
+    return null;
+  }
+
+  /**
+   * binary search for the first block with a last key greater or equal to the key.
+   */
+  private int findBlock(byte[] key) {
+    int low = 0;
+    int high = blockLastKeys.length - 1;
+    int found = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (MapKey.compare(blockLastKeys[mid], key) >= 0) {
+        found = mid;
+        high = mid - 1;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * iterating over all entries in key order, reading block by block.
+   */
+  @Override
+  public Iterator<Entry<MapKey, VLogEntryInfo>> iterator() {
+    return new Iterator<Entry<MapKey, VLogEntryInfo>>() {
+      private int block = 0;
+      private ByteBuffer buffer = null;
+
+      @Override
+      public boolean hasNext() {
+        while ((buffer == null) || !buffer.hasRemaining()) {
+          if (block >= blockOffsets.length) {
+            return false;
+          }
+          try {
+            buffer = readBlock(block);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          block++;
+        }
+        return true;
+      }
+
+      @Override
+      public Entry<MapKey, VLogEntryInfo> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        MapKey key = new MapKey(SSTFormat.readKey(buffer));
+        return new SimpleImmutableEntry<>(key, SSTFormat.readInfo(buffer));
+      }
+    };
+  }
+
+  /**
+   * @return the identity
+   */
+  public SSTIdentity getIdentity() {
+    return identity;
+  }
+
+  /**
+   * @return the file
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return the fileSize
+   */
+  public long getFileSize() {
+    return fileSize;
+  }
+
+  /**
+   * @return the entryCount
+   */
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * @return the age of the data, higher values are newer
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return the smallest key in this file, or <code>null</code> for an empty file
+   */
+  public MapKey getMinKey() {
+    return minKey;
+  }
+
+  /**
+   * @return the greatest key in this file, or <code>null</code> for an empty file
+   */
+  public MapKey getMaxKey() {
+    return maxKey;
+  }
+
+  @Override
+  public void close() throws IOException {
+    log.debug("closing index file %s", file.getName());
+    fileChannel.close();
+    raf.close();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s (seq: %d, entries: %d, size: %d)", identity.getFileName(), sequence, entryCount,
+        fileSize);
+  }
+}
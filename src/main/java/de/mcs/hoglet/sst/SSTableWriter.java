@@ -0,0 +1,246 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.sst;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+import de.mcs.hoglet.HogletDBException;
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+import de.mcs.utils.logging.Logger;
+
+/**
+ * Writing a new immutable index file. The entries has to be written in ascending key order. The file is written with a
+ * temporary name and only renamed to the real name on close, so a half written file will never be read.
+ * 
+ * @author w.klaas
+ *
+ */
+public class SSTableWriter implements Closeable {
+
+  private Logger log = Logger.getLogger(this.getClass());
+
+  private SSTIdentity identity;
+  private long sequence;
+  private File file;
+  private File tmpFile;
+  private FileOutputStream fileOut;
+  private FileChannel fileChannel;
+  private int blockSize;
+
+  private ByteArrayOutputStream blockBuffer;
+  private DataOutputStream block;
+  private ByteArrayOutputStream indexBuffer;
+  private DataOutputStream index;
+  private int blockCount;
+  private long entryCount;
+  private MapKey minKey;
+  private MapKey lastKey;
+  private boolean closed;
+
+  /**
+   * creating a new index file.
+   * 
+   * @param options
+   *          the options of the database
+   * @param identity
+   *          level and number of the new file
+   * @param sequence
+   *          the age of the data in this file, higher values are newer
+   * @throws IOException
+   */
+  public SSTableWriter(Options options, SSTIdentity identity, long sequence) throws IOException {
+    this.identity = identity;
+    this.sequence = sequence;
+    this.blockSize = options.getSstBlockSize();
+    this.file = identity.getFile(new File(options.getPath()));
+    this.tmpFile = new File(file.getParentFile(), file.getName() + SSTFormat.TMP_EXTENSION);
+    this.fileOut = new FileOutputStream(tmpFile);
+    this.fileChannel = fileOut.getChannel();
+    this.blockBuffer = new ByteArrayOutputStream(blockSize * 2);
+    this.block = new DataOutputStream(blockBuffer);
+    this.indexBuffer = new ByteArrayOutputStream();
+    this.index = new DataOutputStream(indexBuffer);
+    log.debug("creating index file %s", file.getName());
+  }
+
+  /**
+   * writing the next entry into the file.
+   * 
+   * @param key
+   *          the prefixed key, must be greater than the last written key
+   * @param info
+   *          the pointer into the vLog or a tombstone
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public void write(MapKey key, VLogEntryInfo info) throws IOException {
+    if ((lastKey != null) && (lastKey.compareTo(key) >= 0)) {
+      throw new HogletDBException(String.format("keys not in ascending order: %s, %s", lastKey, key));
+    }
+    if (minKey == null) {
+      minKey = key;
+    }
+    SSTFormat.writeEntry(block, key, info);
+    lastKey = key;
+    entryCount++;
+    if (blockBuffer.size() >= blockSize) {
+      writeBlock();
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    if (blockBuffer.size() == 0) {
+      return;
+    }
+    block.flush();
+    byte[] data = blockBuffer.toByteArray();
+    CRC32 crc32 = new CRC32();
+    crc32.update(data);
+
+    long offset = fileChannel.position();
+    writeFully(ByteBuffer.wrap(data));
+
+    SSTFormat.writeBytes(index, lastKey.getKey());
+    index.writeLong(offset);
+    index.writeInt(data.length);
+    index.writeInt((int) crc32.getValue());
+    blockCount++;
+    blockBuffer.reset();
+  }
+
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      fileChannel.write(buffer);
+    }
+  }
+
+  /**
+   * @return count of entries written so far
+   */
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * @return the size of the file written so far, without the actual block
+   */
+  public long getFileSize() throws IOException {
+    return fileChannel.position() + blockBuffer.size();
+  }
+
+  /**
+   * @return the identity of this file
+   */
+  public SSTIdentity getIdentity() {
+    return identity;
+  }
+
+  /**
+   * @return the temporary file, used until the file is committed
+   */
+  public File getTmpFile() {
+    return tmpFile;
+  }
+
+  /**
+   * @return the final file
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * writing the last block, the block index and the footer. After that the file is renamed to it's final name.
+   */
+  @Override
+  public void close() throws IOException {
+    finish();
+    commit();
+  }
+
+  /**
+   * writing the last block, the block index and the footer. The file keeps it's temporary name until
+   * {@link #commit()} is called.
+   */
+  public void finish() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      writeBlock();
+      index.flush();
+
+      ByteArrayOutputStream indexSection = new ByteArrayOutputStream(indexBuffer.size() + 256);
+      DataOutputStream out = new DataOutputStream(indexSection);
+      out.writeInt(blockCount);
+      indexBuffer.writeTo(out);
+      SSTFormat.writeBytes(out, minKey == null ? new byte[0] : minKey.getKey());
+      out.flush();
+
+      long indexOffset = fileChannel.position();
+      writeFully(ByteBuffer.wrap(indexSection.toByteArray()));
+
+      ByteBuffer footer = ByteBuffer.allocate(SSTFormat.FOOTER_LENGTH);
+      footer.putLong(indexOffset);
+      footer.putInt(indexSection.size());
+      footer.putLong(entryCount);
+      footer.putLong(sequence);
+      footer.putInt(SSTFormat.VERSION);
+      footer.putLong(SSTFormat.MAGIC);
+      footer.flip();
+      writeFully(footer);
+      fileChannel.force(true);
+    } finally {
+      fileOut.close();
+    }
+    log.debug("index file %s written, %d entries, %d blocks", file.getName(), entryCount, blockCount);
+  }
+
+  /**
+   * renaming the finished file to it's final name, so it will be found on the next start.
+   */
+  public void commit() throws IOException {
+    if (tmpFile.exists()) {
+      Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  /**
+   * dropping a not finished file.
+   */
+  public void abort() {
+    closed = true;
+    try {
+      fileOut.close();
+    } catch (IOException e) {
+      log.error(e);
+    }
+    tmpFile.delete();
+  }
+}
@@ -21,9 +21,13 @@ package de.mcs.hoglet.vlog;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
+import de.mcs.hoglet.WriteBatch;
 import de.mcs.utils.logging.Logger;
 
 /**
@@ -55,6 +59,13 @@ public class VLog implements Closeable {
     return writeLock.tryLock();
   }
 
+  /**
+   * waiting for the exclusive write access, must be released by {@link #close()}.
+   */
+  public void lockForWriting() {
+    writeLock.lock();
+  }
+
   @Override
   public void close() throws IOException {
     writeLock.unlock();
@@ -75,6 +86,27 @@ public class VLog implements Closeable {
     return getvLogFile().put(collection, key, chunkNumber, chunk);
   }
 
+  public VLogEntryInfo putTombstone(String collection, byte[] key) throws IOException {
+    return getvLogFile().putTombstone(collection, key);
+  }
+
+  public VLogEntryInfo put(String collection, byte[] key, int chunkNumber, byte[] chunk, boolean sync)
+      throws IOException {
+    return getvLogFile().put(collection, key, chunkNumber, chunk, sync);
+  }
+
+  public VLogEntryInfo putTombstone(String collection, byte[] key, boolean sync) throws IOException {
+    return getvLogFile().putTombstone(collection, key, sync);
+  }
+
+  public List<VLogEntryInfo> putBatch(WriteBatch batch, boolean sync) throws IOException {
+    return getvLogFile().putBatch(batch, sync);
+  }
+
+  public void sync() throws IOException {
+    vLogFile.sync();
+  }
+
   public void forReading() {
   }
 
@@ -82,6 +114,35 @@ public class VLog implements Closeable {
     return vLogFile.get(startBinary, binarySize);
   }
 
+  public byte[] getValue(long startBinary, int binarySize) throws IOException {
+    return vLogFile.getValue(startBinary, binarySize);
+  }
+
+  public ByteBuffer getValueBuffer(long startBinary, int binarySize) throws IOException {
+    return vLogFile.getValueBuffer(startBinary, binarySize);
+  }
+
+  public long transferTo(long startBinary, int binarySize, WritableByteChannel target) throws IOException {
+    return vLogFile.transferTo(startBinary, binarySize, target);
+  }
+
+  public InputStream get(long start, long startBinary, int binarySize) throws IOException {
+    return vLogFile.get(start, startBinary, binarySize);
+  }
+
+  public byte[] getValue(long start, long startBinary, int binarySize) throws IOException {
+    return vLogFile.getValue(start, startBinary, binarySize);
+  }
+
+  public ByteBuffer getValueBuffer(long start, long startBinary, int binarySize) throws IOException {
+    return vLogFile.getValueBuffer(start, startBinary, binarySize);
+  }
+
+  public long transferTo(long start, long startBinary, int binarySize, WritableByteChannel target)
+      throws IOException {
+    return vLogFile.transferTo(start, startBinary, binarySize, target);
+  }
+
   public boolean isAvailbleForWriting() {
     boolean available = true;
     if (!vLogFile.isAvailbleForWriting()) {
@@ -99,8 +160,16 @@ public class VLog implements Closeable {
     return writeLock.isLocked();
   }
 
-  public Iterator<VLogEntryDescription> getIterator() throws IOException {
+  public VLogEntryIterator getIterator() throws IOException {
     return vLogFile.iterator();
   }
 
+  public VLogEntryIterator getIterator(long startOffset) throws IOException {
+    return vLogFile.iterator(startOffset);
+  }
+
+  public Stream<VLogEntryDescription> stream() throws IOException {
+    return vLogFile.stream();
+  }
+
 }
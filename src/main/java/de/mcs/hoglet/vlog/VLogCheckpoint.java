@@ -0,0 +1,231 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.mcs.utils.logging.Logger;
+
+/**
+ * The checkpoint for the recovery. The head is the position in the vLog stream, up to which all entries are persisted
+ * in the index files. On startup only the entries after the head has to be replayed into the memory table. vLog files
+ * with a lower number than the head file are completely persisted.
+ * <p>
+ * The vLog files written by the garbage collection are never replayed: the old entries are only deleted after the
+ * index is persisted, so a crash before that only leaves some garbage. Entries of a failed group commit are written,
+ * but the writers got an error, so they are discarded and never replayed.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogCheckpoint {
+
+  public static final String CHECKPOINT_FILE_NAME = "vlog.checkpoint";
+  private static final String HEAD = "head";
+  private static final String SKIP = "skip";
+  private static final String COMPRESSED = "compressed";
+  private static final String DISCARD = "discard";
+
+  private Logger log = Logger.getLogger(this.getClass());
+  private File path;
+  private File checkpointFile;
+  private volatile VLogPosition head;
+  private Set<String> skipped;
+  private Set<String> compressed;
+  private Map<String, Set<Long>> discarded;
+
+  public VLogCheckpoint(File path) {
+    this.path = path;
+    this.checkpointFile = new File(path, CHECKPOINT_FILE_NAME);
+    this.skipped = ConcurrentHashMap.newKeySet();
+    this.compressed = ConcurrentHashMap.newKeySet();
+    this.discarded = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * @param head
+   *          the new head, all entries before are persisted in the index files
+   */
+  public void setHead(VLogPosition head) {
+    this.head = head;
+  }
+
+  /**
+   * @return the head, <code>null</code> if there is no checkpoint
+   */
+  public VLogPosition getHead() {
+    return head;
+  }
+
+  /**
+   * @param name
+   *          name of a vLog file, which should never be replayed
+   */
+  public void addSkipped(String name) {
+    skipped.add(name);
+  }
+
+  /**
+   * @param name
+   *          name of a vLog file
+   * @return <code>true</code> if the vLog file should never be replayed
+   */
+  public boolean isSkipped(String name) {
+    return skipped.contains(name);
+  }
+
+  /**
+   * @param name
+   *          name of a vLog file written by the recompression of old vLog files
+   */
+  public void addCompressed(String name) {
+    compressed.add(name);
+  }
+
+  /**
+   * @param name
+   *          name of a vLog file
+   * @return <code>true</code> if the vLog file has been written by the recompression and must not be compressed again
+   */
+  public boolean isCompressed(String name) {
+    return compressed.contains(name);
+  }
+
+  /**
+   * @param name
+   *          name of a vLog file
+   * @param start
+   *          start of an entry, which must never be replayed
+   */
+  public void addDiscarded(String name, long start) {
+    discarded.computeIfAbsent(name, n -> ConcurrentHashMap.newKeySet()).add(start);
+  }
+
+  /**
+   * @param name
+   *          name of a vLog file
+   * @param start
+   *          start of an entry
+   * @return <code>true</code> if the entry has been discarded and must not be replayed
+   */
+  public boolean isDiscarded(String name, long start) {
+    Set<Long> starts = discarded.get(name);
+    return (starts != null) && starts.contains(start);
+  }
+
+  /**
+   * @param name
+   *          name of a vLog file
+   * @return the offset in the vLog file, where the replay should start, -1 if nothing is to replay
+   */
+  public long getReplayStart(String name) {
+    if (isSkipped(name)) {
+      return -1;
+    }
+    VLogPosition actualHead = head;
+    if (actualHead == null) {
+      return 0;
+    }
+    int compare = Integer.compare(VLogFile.getNumber(name), VLogFile.getNumber(actualHead.getvLogName()));
+    if (compare < 0) {
+      return -1;
+    }
+    if (compare == 0) {
+      return actualHead.getOffset();
+    }
+    return 0;
+  }
+
+  /**
+   * loading the checkpoint.
+   * 
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public void load() throws IOException {
+    head = null;
+    skipped.clear();
+    compressed.clear();
+    discarded.clear();
+    if (!checkpointFile.exists()) {
+      return;
+    }
+    for (String line : Files.readAllLines(checkpointFile.toPath(), StandardCharsets.UTF_8)) {
+      String[] parts = line.trim().split(" ");
+      try {
+        if (HEAD.equals(parts[0]) && (parts.length == 3)) {
+          head = new VLogPosition(parts[1], Long.parseLong(parts[2]));
+        } else if (SKIP.equals(parts[0]) && (parts.length == 2)) {
+          skipped.add(parts[1]);
+        } else if (COMPRESSED.equals(parts[0]) && (parts.length == 2)) {
+          compressed.add(parts[1]);
+        } else if (DISCARD.equals(parts[0]) && (parts.length == 3)) {
+          addDiscarded(parts[1], Long.parseLong(parts[2]));
+        }
+      } catch (NumberFormatException e) {
+        log.warn(String.format("illegal line in vlog checkpoint: %s", line));
+      }
+    }
+  }
+
+  /**
+   * saving the checkpoint atomically, skipped and compressed files not existing anymore are removed, like discarded
+   * entries before the head.
+   * 
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public synchronized void save() throws IOException {
+    StringBuilder b = new StringBuilder();
+    VLogPosition actualHead = head;
+    if (actualHead != null) {
+      b.append(HEAD).append(' ').append(actualHead.getvLogName()).append(' ').append(actualHead.getOffset())
+          .append('\n');
+    }
+    skipped.removeIf(name -> !new File(path, name).exists());
+    for (String name : skipped) {
+      b.append(SKIP).append(' ').append(name).append('\n');
+    }
+    compressed.removeIf(name -> !new File(path, name).exists());
+    for (String name : compressed) {
+      b.append(COMPRESSED).append(' ').append(name).append('\n');
+    }
+    for (Map.Entry<String, Set<Long>> entry : discarded.entrySet()) {
+      String name = entry.getKey();
+      long replayStart = new File(path, name).exists() ? getReplayStart(name) : -1;
+      entry.getValue().removeIf(start -> (replayStart < 0) || (start < replayStart));
+      for (long start : entry.getValue()) {
+        b.append(DISCARD).append(' ').append(name).append(' ').append(start).append('\n');
+      }
+    }
+    discarded.values().removeIf(Set::isEmpty);
+    File tmpFile = new File(path, CHECKPOINT_FILE_NAME + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+      out.write(b.toString().getBytes(StandardCharsets.UTF_8));
+      out.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * 
+ */
+package de.mcs.hoglet.vlog;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Checksum;
+
+import de.mcs.hoglet.ChecksumType;
+import de.mcs.hoglet.ChecksumVerification;
+import de.mcs.hoglet.HogletDBException;
+import de.mcs.hoglet.Options;
+import de.mcs.utils.ByteArrayUtils;
+import de.mcs.utils.logging.Logger;
+
+/**
+ * Verification of the checksums of the values read from the vLog files, depending on the checksumVerification of the
+ * options. The counters are shared by all vLog files of a database.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogChecksumVerifier {
+
+  private static final int BLOCK_SIZE = 8192;
+
+  private Logger log = Logger.getLogger(this.getClass());
+  private ChecksumVerification verification;
+  private int sampleRate;
+  private AtomicLong reads = new AtomicLong();
+  private AtomicLong verified = new AtomicLong();
+  private AtomicLong mismatches = new AtomicLong();
+
+  public VLogChecksumVerifier(Options options) {
+    this.verification = options.getChecksumVerification() == null ? ChecksumVerification.NEVER
+        : options.getChecksumVerification();
+    this.sampleRate = Math.max(1, options.getChecksumSampleRate());
+  }
+
+  /**
+   * @return <code>true</code> if the next read should be verified
+   */
+  public boolean shouldVerify() {
+    switch (verification) {
+    case ALWAYS:
+      return true;
+    case SAMPLED:
+      return reads.incrementAndGet() % sampleRate == 0;
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * verifying the stored data of an entry against the hash of its header.
+   * 
+   * @param descriptor
+   *          the header of the entry
+   * @param data
+   *          the array with the stored data
+   * @param offset
+   *          start of the data in the array
+   * @param length
+   *          length of the data
+   * @param vLogName
+   *          name of the vLog file, for the error message
+   * @throws HogletDBException
+   *           if the checksum doesn't match or the checksum of the header is unknown
+   */
+  public void verify(VLogDescriptor descriptor, byte[] data, int offset, int length, String vLogName)
+      throws HogletDBException {
+    ChecksumType type = getType(descriptor, vLogName);
+    if (type == ChecksumType.NONE) {
+      return;
+    }
+    Checksum checksum = type.newChecksum();
+    checksum.update(data, offset, length);
+    check(descriptor, type, checksum, vLogName);
+  }
+
+  /**
+   * verifying the stored data of an entry in a buffer, e.g. a memory mapped slice of the file, against the hash of its
+   * header. The data is copied in small blocks, never as a whole, onto the heap. The position of the buffer is not
+   * changed.
+   * 
+   * @param descriptor
+   *          the header of the entry
+   * @param data
+   *          the buffer with the stored data between position and limit
+   * @param vLogName
+   *          name of the vLog file, for the error message
+   * @throws HogletDBException
+   *           if the checksum doesn't match or the checksum of the header is unknown
+   */
+  public void verify(VLogDescriptor descriptor, ByteBuffer data, String vLogName) throws HogletDBException {
+    ChecksumType type = getType(descriptor, vLogName);
+    if (type == ChecksumType.NONE) {
+      return;
+    }
+    Checksum checksum = type.newChecksum();
+    ByteBuffer source = data.duplicate();
+    byte[] block = new byte[Math.min(BLOCK_SIZE, source.remaining())];
+    while (source.hasRemaining()) {
+      int length = Math.min(block.length, source.remaining());
+      source.get(block, 0, length);
+      checksum.update(block, 0, length);
+    }
+    check(descriptor, type, checksum, vLogName);
+  }
+
+  private ChecksumType getType(VLogDescriptor descriptor, String vLogName) throws HogletDBException {
+    ChecksumType type = ChecksumType.fromId(descriptor.checksum);
+    if (type == null) {
+      String message = String.format("unknown checksum %d in vlog file %s", descriptor.checksum, vLogName);
+      log.error(message);
+      throw new HogletDBException(message);
+    }
+    return type;
+  }
+
+  private void check(VLogDescriptor descriptor, ChecksumType type, Checksum checksum, String vLogName)
+      throws HogletDBException {
+    verified.incrementAndGet();
+    if (checksum.getValue() != ByteArrayUtils.bytesToLong(descriptor.hash)) {
+      mismatches.incrementAndGet();
+      String message = String.format("checksum mismatch of %s in vlog file %s", type, vLogName);
+      log.error(message);
+      throw new HogletDBException(message);
+    }
+  }
+
+  /**
+   * @return count of verified values
+   */
+  public long getVerifiedCount() {
+    return verified.get();
+  }
+
+  /**
+   * @return count of values with a wrong checksum
+   */
+  public long getMismatchCount() {
+    return mismatches.get();
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reading a large value chunk by chunk. The chunks are opened lazily, only one chunk is open at a time.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogChunkInputStream extends InputStream {
+
+  /**
+   * opening the stream of a chunk.
+   */
+  public interface ChunkOpener {
+    InputStream open(int index) throws IOException;
+  }
+
+  private ChunkOpener opener;
+  private int chunkCount;
+  private int nextChunk;
+  private InputStream actual;
+
+  /**
+   * @param opener
+   *          opener of the chunk streams
+   * @param chunkCount
+   *          count of chunks of the value
+   */
+  public VLogChunkInputStream(ChunkOpener opener, int chunkCount) {
+    this.opener = opener;
+    this.chunkCount = chunkCount;
+  }
+
+  private void closeActual() throws IOException {
+    if (actual != null) {
+      actual.close();
+      actual = null;
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] buffer = new byte[1];
+    int read = read(buffer, 0, 1);
+    return read < 0 ? -1 : buffer[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (true) {
+      if (actual == null) {
+        if (nextChunk >= chunkCount) {
+          return -1;
+        }
+        actual = opener.open(nextChunk++);
+      }
+      int read = actual.read(b, off, len);
+      if (read > 0) {
+        return read;
+      }
+      // chunk is exhausted
+      closeActual();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    nextChunk = chunkCount;
+    closeActual();
+  }
+}
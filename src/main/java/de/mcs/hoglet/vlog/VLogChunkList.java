@@ -0,0 +1,131 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The list of the chunks of a large value. The chunks are stored as own entries in the vLog, numbered from 1, the list
+ * is the entry the index points to.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogChunkList {
+
+  private List<VLogEntryInfo> chunks;
+  private long length;
+
+  public VLogChunkList() {
+    chunks = new ArrayList<>();
+  }
+
+  /**
+   * @param info
+   *          the next chunk of the value
+   * @return this list
+   */
+  public VLogChunkList add(VLogEntryInfo info) {
+    chunks.add(info);
+    length += info.getBinarySize();
+    return this;
+  }
+
+  /**
+   * replacing a chunk, e.g. after moving it into another vLog file.
+   * 
+   * @param index
+   *          the index of the chunk
+   * @param info
+   *          the new chunk
+   * @return this list
+   */
+  public VLogChunkList set(int index, VLogEntryInfo info) {
+    chunks.set(index, info);
+    return this;
+  }
+
+  /**
+   * @param vLogName
+   *          name of the vLog file
+   * @param start
+   *          start of the entry
+   * @return the index of the chunk at this position, -1 if it is not part of this list
+   */
+  public int indexOf(String vLogName, long start) {
+    for (int i = 0; i < chunks.size(); i++) {
+      VLogEntryInfo info = chunks.get(i);
+      if ((info.getStart() == start) && vLogName.equals(info.getvLogName())) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return all chunks in the order of the value
+   */
+  public List<VLogEntryInfo> getChunks() {
+    return Collections.unmodifiableList(chunks);
+  }
+
+  /**
+   * @return the length of the whole value
+   */
+  public long getLength() {
+    return length;
+  }
+
+  public byte[] toBytes() {
+    List<byte[]> names = new ArrayList<>(chunks.size());
+    int size = 4;
+    for (VLogEntryInfo info : chunks) {
+      byte[] name = info.getvLogName().getBytes(StandardCharsets.UTF_8);
+      names.add(name);
+      size += 2 + name.length + 3 * 8;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(chunks.size());
+    for (int i = 0; i < chunks.size(); i++) {
+      VLogEntryInfo info = chunks.get(i);
+      buffer.putShort((short) names.get(i).length);
+      buffer.put(names.get(i));
+      buffer.putLong(info.getStart());
+      buffer.putLong(info.getStartBinary());
+      buffer.putLong(info.getEnd());
+    }
+    return buffer.array();
+  }
+
+  public static VLogChunkList fromBytes(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    VLogChunkList list = new VLogChunkList();
+    int count = buffer.getInt();
+    for (int i = 0; i < count; i++) {
+      byte[] name = new byte[buffer.getShort()];
+      buffer.get(name);
+      VLogEntryInfo info = new VLogEntryInfo().setStart(buffer.getLong()).setStartBinary(buffer.getLong())
+          .setEnd(buffer.getLong());
+      info.setvLogName(new String(name, StandardCharsets.UTF_8));
+      list.add(info);
+    }
+    return list;
+  }
+}
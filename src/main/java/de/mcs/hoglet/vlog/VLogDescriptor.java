@@ -18,26 +18,58 @@
  */
 package de.mcs.hoglet.vlog;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
+import de.mcs.hoglet.ChecksumType;
+import de.mcs.hoglet.compression.Codec;
 import de.mcs.utils.ByteArrayUtils;
 
 /**
+ * The header in front of every entry of a vLog file. The version is part of the doc start. Version 1 has a fixed
+ * length, zero padded to the maximal length of collection and key. Version 2 stores the lengths, the chunk number and
+ * the data length as varints without any padding. Version 3 adds the id of the codec the data is
+ * compressed with and, for compressed data, the length of the uncompressed data. If the high bit of the codec is
+ * set, the id of the compression dictionary follows the codec. Version 4, the written one, adds the id of the
+ * checksum in front of the hash, the hash of older versions is always a crc32.
+ * 
  * @author w.klaas
  *
  */
 public class VLogDescriptor {
-  static final String VLOG_VERSION = "1";
+  static final String VLOG_VERSION_1 = "1";
+  static final String VLOG_VERSION_2 = "2";
+  static final String VLOG_VERSION_3 = "3";
+  static final String VLOG_VERSION = "4";
+  static final byte[] DOC_START_V1 = ("@@@" + VLOG_VERSION_1).getBytes(StandardCharsets.UTF_8);
+  static final byte[] DOC_START_V2 = ("@@@" + VLOG_VERSION_2).getBytes(StandardCharsets.UTF_8);
+  static final byte[] DOC_START_V3 = ("@@@" + VLOG_VERSION_3).getBytes(StandardCharsets.UTF_8);
   static final byte[] DOC_START = ("@@@" + VLOG_VERSION).getBytes(StandardCharsets.UTF_8);
   static final byte[] DOC_LIMITER = "#".getBytes(StandardCharsets.UTF_8);
   static final int KEY_MAX_LENGTH = 255;
   static final int HASH_LENGTH = ByteArrayUtils.LONGBYTES;
+  static final int DICTIONARY_FLAG = 0x80;
+  /**
+   * reserved chunk number of a tombstone, an entry without data marking the deletion of the key
+   */
+  public static final int TOMBSTONE_CHUNK_NUMBER = Integer.MAX_VALUE;
+  /**
+   * reserved chunk number of the marker in front of a write batch, the data is the count of the following entries
+   */
+  public static final int BATCH_CHUNK_NUMBER = Integer.MAX_VALUE - 1;
+  /**
+   * reserved chunk number of the list of the chunks of a large value, the chunks itself are numbered from 1
+   */
+  public static final int CHUNK_LIST_CHUNK_NUMBER = Integer.MAX_VALUE - 2;
 
-  // because of the headerstructure, 4 bytes DOC_START + 1 byte KEY_LENGTH +
+  // because of the headerstructure of version 1, 4 bytes DOC_START + 1 byte KEY_LENGTH +
   // COLLECTION + 1 byte KEY_LENGTH + KEY
-  // itself + 4 bytes Chunknumber + 8 byte length + 32 byte hash + 1 byte
+  // itself + 4 bytes Chunknumber + 8 byte length + 8 byte hash + 1 byte
   // DOC_LIMITER
   private static final int HEADER_MAX_LENGTH = DOC_START.length + 1 + KEY_MAX_LENGTH + 1 + KEY_MAX_LENGTH + 4 + 8
       + HASH_LENGTH + DOC_LIMITER.length;
@@ -47,20 +79,142 @@ public class VLogDescriptor {
   int chunkNumber;
   long length;
   byte[] hash;
+  int version;
+  int codec;
+  int dictionary;
+  long rawLength;
+  int checksum;
 
   VLogDescriptor() {
     length = 0;
     hash = new byte[HASH_LENGTH];
+    version = 4;
+    codec = Codec.NONE;
+    checksum = ChecksumType.CRC32.getId();
   }
 
   String getHashAsString() {
     return ByteArrayUtils.bytesAsHexString(hash);
   }
 
+  /**
+   * @return the header in the format of the version of this descriptor
+   */
   public ByteBuffer getBytes() {
+    if (version == 1) {
+      return getBytesV1();
+    }
+    ByteBuffer header = ByteBuffer.allocate(getHeaderLength());
+    if (version == 2) {
+      header.put(DOC_START_V2);
+      putHeaderWithoutStart(header, collectionBytes, key, chunkNumber, length);
+      header.putLong(ByteArrayUtils.bytesToLong(hash));
+      header.put(DOC_LIMITER);
+    } else {
+      putHeader(header, version, collectionBytes, key, chunkNumber, codec, dictionary, rawLength, length, checksum,
+          ByteArrayUtils.bytesToLong(hash));
+    }
+    header.flip();
+    return header;
+  }
+
+  /**
+   * writing a version 4 header into a buffer, without creating a descriptor.
+   * 
+   * @param header
+   *          the buffer, with at least {@link #maxHeaderLength()} bytes remaining
+   * @param collectionBytes
+   *          the collection
+   * @param key
+   *          the key
+   * @param chunkNumber
+   *          the chunk number
+   * @param codec
+   *          the id of the codec the data is compressed with, {@link Codec#NONE} for uncompressed data
+   * @param dictionary
+   *          the id of the dictionary the data is compressed with, 0 for none
+   * @param rawLength
+   *          the length of the uncompressed data, only written for compressed data
+   * @param length
+   *          the length of the stored data
+   * @param checksum
+   *          the id of the checksum type of the hash
+   * @param hash
+   *          the hash of the stored data
+   */
+  static void putHeader(ByteBuffer header, byte[] collectionBytes, byte[] key, int chunkNumber, int codec,
+      int dictionary, long rawLength, long length, int checksum, long hash) {
+    putHeader(header, 4, collectionBytes, key, chunkNumber, codec, dictionary, rawLength, length, checksum, hash);
+  }
+
+  /**
+   * @return the length of a version 4 header, written by
+   *         {@link #putHeader(ByteBuffer, byte[], byte[], int, int, int, long, long, int, long)}
+   */
+  static int headerLength(byte[] collectionBytes, byte[] key, int chunkNumber, int codec, int dictionary,
+      long rawLength, long length) {
+    int headerLength = DOC_START.length + ByteArrayUtils.varLongSize(collectionBytes.length) + collectionBytes.length
+        + ByteArrayUtils.varLongSize(key.length) + key.length + ByteArrayUtils.varLongSize(chunkNumber) + 1
+        + ByteArrayUtils.varLongSize(length) + 1 + HASH_LENGTH + DOC_LIMITER.length;
+    if (dictionary != 0) {
+      headerLength += ByteArrayUtils.varLongSize(dictionary);
+    }
+    if (codec != Codec.NONE) {
+      headerLength += ByteArrayUtils.varLongSize(rawLength);
+    }
+    return headerLength;
+  }
+
+  private static void putHeader(ByteBuffer header, int version, byte[] collectionBytes, byte[] key, int chunkNumber,
+      int codec, int dictionary, long rawLength, long length, int checksum, long hash) {
+    header.put(version == 3 ? DOC_START_V3 : DOC_START);
+    ByteArrayUtils.putVarLong(header, collectionBytes.length);
+    header.put(collectionBytes);
+    ByteArrayUtils.putVarLong(header, key.length);
+    header.put(key);
+    ByteArrayUtils.putVarLong(header, chunkNumber);
+    if (dictionary != 0) {
+      header.put((byte) (codec | DICTIONARY_FLAG));
+      ByteArrayUtils.putVarLong(header, dictionary);
+    } else {
+      header.put((byte) codec);
+    }
+    if (codec != Codec.NONE) {
+      ByteArrayUtils.putVarLong(header, rawLength);
+    }
+    ByteArrayUtils.putVarLong(header, length);
+    if (version > 3) {
+      header.put((byte) checksum);
+    }
+    header.putLong(hash);
+    header.put(DOC_LIMITER);
+  }
+
+  private static void putHeaderWithoutStart(ByteBuffer header, byte[] collectionBytes, byte[] key, int chunkNumber,
+      long length) {
+    ByteArrayUtils.putVarLong(header, collectionBytes.length);
+    header.put(collectionBytes);
+    ByteArrayUtils.putVarLong(header, key.length);
+    header.put(key);
+    ByteArrayUtils.putVarLong(header, chunkNumber);
+    ByteArrayUtils.putVarLong(header, length);
+  }
+
+  /**
+   * @return the maximal length of a version 4 header
+   */
+  static int maxHeaderLength() {
+    return 1 + DOC_START.length + ByteArrayUtils.varLongSize(KEY_MAX_LENGTH) + KEY_MAX_LENGTH
+        + ByteArrayUtils.varLongSize(KEY_MAX_LENGTH) + KEY_MAX_LENGTH + ByteArrayUtils.varLongSize(Integer.MAX_VALUE)
+        + 1 + ByteArrayUtils.varLongSize(Integer.MAX_VALUE) + ByteArrayUtils.varLongSize(Long.MAX_VALUE)
+        + ByteArrayUtils.varLongSize(Long.MAX_VALUE) + HASH_LENGTH
+        + DOC_LIMITER.length;
+  }
+
+  private ByteBuffer getBytesV1() {
     ByteBuffer header = ByteBuffer.allocateDirect(HEADER_MAX_LENGTH);
     header.rewind();
-    header.put(DOC_START);
+    header.put(DOC_START_V1);
     header.put((byte) collectionBytes.length);
     header.put(collectionBytes);
     header.put((byte) key.length);
@@ -76,9 +230,72 @@ public class VLogDescriptor {
     return header;
   }
 
+  /**
+   * @return the length of the header in the file, including the doc start
+   */
+  public int getHeaderLength() {
+    if (version == 1) {
+      return HEADER_MAX_LENGTH;
+    }
+    int headerLength = DOC_START.length + ByteArrayUtils.varLongSize(collectionBytes.length) + collectionBytes.length
+        + ByteArrayUtils.varLongSize(key.length) + key.length + ByteArrayUtils.varLongSize(chunkNumber)
+        + ByteArrayUtils.varLongSize(length) + HASH_LENGTH + DOC_LIMITER.length;
+    if (version > 3) {
+      headerLength += 1;
+    }
+    if (version > 2) {
+      headerLength += 1;
+      if (dictionary != 0) {
+        headerLength += ByteArrayUtils.varLongSize(dictionary);
+      }
+      if (codec != Codec.NONE) {
+        headerLength += ByteArrayUtils.varLongSize(rawLength);
+      }
+    }
+    return headerLength;
+  }
+
+  /**
+   * @param start
+   *          the first bytes of an entry
+   * @return <code>true</code> if this is the doc start of a known header version
+   */
+  public static boolean isDocStart(byte[] start) {
+    return Arrays.equals(DOC_START, start) || Arrays.equals(DOC_START_V3, start) || Arrays.equals(DOC_START_V2, start)
+        || Arrays.equals(DOC_START_V1, start);
+  }
+
+  /**
+   * parsing a complete header of any version.
+   * 
+   * @param byteArray
+   *          the header, starting with the doc start
+   * @return the descriptor
+   */
   public static VLogDescriptor fromBytes(byte[] byteArray) {
+    byte[] start = Arrays.copyOf(byteArray, DOC_START.length);
+    if (Arrays.equals(DOC_START_V1, start)) {
+      return fromBytesV1(byteArray);
+    }
+    try {
+      VLogDescriptor descriptor = null;
+      if (!Arrays.equals(DOC_START_V1, start) && isDocStart(start)) {
+        InputStream in = new ByteArrayInputStream(byteArray, DOC_START.length, byteArray.length - DOC_START.length);
+        descriptor = fromStreamWithoutStart(start, in);
+      }
+      if (descriptor == null) {
+        throw new IllegalArgumentException("no valid vlog header");
+      }
+      return descriptor;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("no valid vlog header", e);
+    }
+  }
+
+  private static VLogDescriptor fromBytesV1(byte[] byteArray) {
     ByteBuffer buffer = ByteBuffer.wrap(byteArray);
     VLogDescriptor vLogPostFix = new VLogDescriptor();
+    vLogPostFix.version = 1;
     // don't read the doc seperator
     buffer.get(new byte[4]);
     int collectionLength = buffer.get();
@@ -91,11 +308,103 @@ public class VLogDescriptor {
 
     vLogPostFix.chunkNumber = buffer.getInt();
     vLogPostFix.length = buffer.getLong();
+    vLogPostFix.rawLength = vLogPostFix.length;
     vLogPostFix.hash = new byte[HASH_LENGTH];
     buffer.get(vLogPostFix.hash);
     return vLogPostFix;
   }
 
+  /**
+   * reading the rest of a header from a stream, after the doc start has been read.
+   * 
+   * @param start
+   *          the doc start, identifying the version of the header
+   * @param in
+   *          the stream positioned behind the doc start
+   * @return the descriptor or <code>null</code>, if the header is not valid or not complete
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public static VLogDescriptor fromStreamWithoutStart(byte[] start, InputStream in) throws IOException {
+    if (Arrays.equals(DOC_START_V1, start)) {
+      byte[] header = in.readNBytes(lengthWithoutStart());
+      if (header.length != lengthWithoutStart()) {
+        return null;
+      }
+      return fromBytesWithoutStart(header);
+    }
+    boolean version2 = Arrays.equals(DOC_START_V2, start);
+    boolean version3 = Arrays.equals(DOC_START_V3, start);
+    if (!version2 && !version3 && !Arrays.equals(DOC_START, start)) {
+      return null;
+    }
+    try {
+      VLogDescriptor vLogPostFix = new VLogDescriptor();
+      vLogPostFix.collectionBytes = readBytes(in);
+      vLogPostFix.key = readBytes(in);
+      long chunkNumber = ByteArrayUtils.readVarLong(in);
+      if (version2) {
+        vLogPostFix.version = 2;
+      } else {
+        int codec = in.read();
+        if (codec < 0) {
+          return null;
+        }
+        vLogPostFix.codec = codec & ~DICTIONARY_FLAG;
+        if ((codec & DICTIONARY_FLAG) != 0) {
+          long dictionary = ByteArrayUtils.readVarLong(in);
+          if ((dictionary < 1) || (dictionary > Integer.MAX_VALUE)) {
+            return null;
+          }
+          vLogPostFix.dictionary = (int) dictionary;
+        }
+        if (vLogPostFix.codec != Codec.NONE) {
+          vLogPostFix.rawLength = ByteArrayUtils.readVarLong(in);
+        }
+      }
+      vLogPostFix.length = ByteArrayUtils.readVarLong(in);
+      if (vLogPostFix.codec == Codec.NONE) {
+        vLogPostFix.rawLength = vLogPostFix.length;
+      }
+      if (version3) {
+        vLogPostFix.version = 3;
+      } else if (!version2) {
+        // an unknown checksum is kept, the reader decides how to handle the corrupt header
+        vLogPostFix.checksum = in.read();
+        if (vLogPostFix.checksum < 0) {
+          return null;
+        }
+      }
+      vLogPostFix.hash = in.readNBytes(HASH_LENGTH);
+      if ((vLogPostFix.collectionBytes == null) || (vLogPostFix.key == null) || (chunkNumber > Integer.MAX_VALUE)
+          || (vLogPostFix.length < 0) || (vLogPostFix.rawLength < 0) || (vLogPostFix.hash.length != HASH_LENGTH)
+          || !Arrays.equals(DOC_LIMITER, in.readNBytes(DOC_LIMITER.length))) {
+        return null;
+      }
+      vLogPostFix.chunkNumber = (int) chunkNumber;
+      return vLogPostFix;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  private static byte[] readBytes(InputStream in) throws IOException {
+    long length = ByteArrayUtils.readVarLong(in);
+    // an empty key or collection is valid
+    if ((length < 0) || (length > KEY_MAX_LENGTH)) {
+      return null;
+    }
+    byte[] bytes = in.readNBytes((int) length);
+    return bytes.length == length ? bytes : null;
+  }
+
+  /**
+   * parsing a version 1 header without the doc start.
+   * 
+   * @param byteArray
+   *          the header
+   * @return the descriptor or <code>null</code>, if the header is not valid
+   */
   public static VLogDescriptor fromBytesWithoutStart(byte[] byteArray) {
     ByteBuffer buffer = ByteBuffer.wrap(byteArray);
     return fromByteBufferWithoutStart(buffer);
@@ -103,6 +412,7 @@ public class VLogDescriptor {
 
   public static VLogDescriptor fromByteBufferWithoutStart(ByteBuffer buffer) {
     VLogDescriptor vLogPostFix = new VLogDescriptor();
+    vLogPostFix.version = 1;
     int collectionLength = buffer.get();
     if (collectionLength < 1) {
       return null;
@@ -125,11 +435,15 @@ public class VLogDescriptor {
     if (vLogPostFix.length < 0) {
       return null;
     }
+    vLogPostFix.rawLength = vLogPostFix.length;
     vLogPostFix.hash = new byte[HASH_LENGTH];
     buffer.get(vLogPostFix.hash);
     return vLogPostFix;
   }
 
+  /**
+   * @return the fixed length of a version 1 header
+   */
   public static int length() {
     return HEADER_MAX_LENGTH;
   }
@@ -189,6 +503,20 @@ public class VLogDescriptor {
     return this;
   }
 
+  /**
+   * @return <code>true</code> if this entry marks the deletion of the key
+   */
+  public boolean isTombstone() {
+    return chunkNumber == TOMBSTONE_CHUNK_NUMBER;
+  }
+
+  /**
+   * @return <code>true</code> if this entry starts a write batch
+   */
+  public boolean isBatchMarker() {
+    return chunkNumber == BATCH_CHUNK_NUMBER;
+  }
+
   /**
    * @return the length
    */
@@ -206,6 +534,81 @@ public class VLogDescriptor {
     return this;
   }
 
+  /**
+   * @return the id of the codec the data is compressed with, {@link Codec#NONE} for uncompressed data
+   */
+  public int getCodec() {
+    return codec;
+  }
+
+  /**
+   * @param codec
+   *          the codec to set
+   * @return
+   */
+  public VLogDescriptor setCodec(int codec) {
+    this.codec = codec;
+    return this;
+  }
+
+  /**
+   * @return the id of the dictionary the data is compressed with, 0 for none
+   */
+  public int getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * @param dictionary
+   *          the dictionary to set
+   * @return
+   */
+  public VLogDescriptor setDictionary(int dictionary) {
+    this.dictionary = dictionary;
+    return this;
+  }
+
+  /**
+   * @return the length of the uncompressed data
+   */
+  public long getRawLength() {
+    return rawLength;
+  }
+
+  /**
+   * @param rawLength
+   *          the rawLength to set
+   * @return
+   */
+  public VLogDescriptor setRawLength(long rawLength) {
+    this.rawLength = rawLength;
+    return this;
+  }
+
+  /**
+   * @return the id of the checksum type of the hash
+   */
+  public int getChecksum() {
+    return checksum;
+  }
+
+  /**
+   * @param checksum
+   *          the checksum to set
+   * @return
+   */
+  public VLogDescriptor setChecksum(int checksum) {
+    this.checksum = checksum;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if the data of this entry is compressed
+   */
+  public boolean isCompressed() {
+    return codec != Codec.NONE;
+  }
+
   public byte[] getHash() {
     return hash;
   }
@@ -0,0 +1,321 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * 
+ */
+package de.mcs.hoglet.vlog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import de.mcs.hoglet.Options;
+import de.mcs.utils.logging.Logger;
+
+/**
+ * The compression dictionaries of the collections. Small values barely compress one by one, but the values of a
+ * collection share a lot of structure. So the first values of every collection are sampled and a preset dictionary is
+ * trained from the samples. The samples of all collections together are limited by the vCntDictionarySampleMemory, the
+ * collections with the fewest samples start again, if there are more. The dictionary is saved beside the vLog files
+ * and referenced by its id from every entry compressed with it, so every value can still be read on its own.
+ * Dictionaries are never changed or deleted, a collection uses its first dictionary for all following values.
+ * <p>
+ * The training selects the samples sharing the most content with the other samples. As the matches of deflate are
+ * cheaper the nearer they are, the best samples are placed at the end of the dictionary.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogDictionaries {
+
+  /**
+   * maximal size of a dictionary, larger dictionaries are useless, because this is the window size of deflate
+   */
+  public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+  private static final Pattern DICTIONARY_PATTERN = Pattern.compile("dictionary_(\\d+)\\.dict");
+  private static final int GRAM_LENGTH = 8;
+
+  /**
+   * the samples of a collection without a dictionary.
+   */
+  private static class Samples {
+    private List<byte[]> values = new ArrayList<>();
+    private long size;
+  }
+
+  private Logger log = Logger.getLogger(this.getClass());
+  private File path;
+  private Options options;
+  private Map<Integer, byte[]> dictionaries;
+  private Map<String, Integer> collections;
+  private Map<String, Samples> samples;
+  private long sampleMemory;
+  private int lastId;
+
+  public VLogDictionaries(Options options) {
+    this.options = options;
+    this.path = new File(options.getPath());
+    this.dictionaries = new ConcurrentHashMap<>();
+    this.collections = new ConcurrentHashMap<>();
+    this.samples = new HashMap<>();
+  }
+
+  public static File getFilePathName(File path, int id) {
+    return new File(path, String.format("dictionary_%04d.dict", id));
+  }
+
+  /**
+   * @param id
+   *          the id of the dictionary
+   * @return the dictionary or <code>null</code>, if the id is unknown
+   */
+  public byte[] getDictionary(int id) {
+    return dictionaries.get(id);
+  }
+
+  /**
+   * @param collection
+   *          the collection
+   * @return the id of the dictionary of the collection, 0 if the collection has no dictionary
+   */
+  public int getDictionaryId(String collection) {
+    return collections.getOrDefault(collection, 0);
+  }
+
+  /**
+   * the dictionary for compressing a value of a collection. As long as the collection has no dictionary, the value is
+   * sampled and the dictionary is trained, when enough samples are collected.
+   * 
+   * @param collection
+   *          the collection
+   * @param value
+   *          the value to compress
+   * @return the id of the dictionary of the collection, 0 if there is no dictionary yet
+   * @throws IOException
+   *           if the new dictionary can't be saved
+   */
+  public int getDictionaryId(String collection, byte[] value) throws IOException {
+    Integer id = collections.get(collection);
+    if (id != null) {
+      return id;
+    }
+    synchronized (samples) {
+      id = collections.get(collection);
+      if (id != null) {
+        return id;
+      }
+      Samples collectionSamples = samples.computeIfAbsent(collection, c -> new Samples());
+      if (value.length <= MAX_DICTIONARY_SIZE) {
+        // the caller may reuse his array
+        collectionSamples.values.add(Arrays.copyOf(value, value.length));
+        collectionSamples.size += value.length;
+        sampleMemory += value.length;
+      }
+      if (collectionSamples.size < options.getvCntDictionarySampleSize()) {
+        dropSamples(collection);
+        return 0;
+      }
+      samples.remove(collection);
+      sampleMemory -= collectionSamples.size;
+      return addDictionary(collection, train(collectionSamples.values));
+    }
+  }
+
+  /**
+   * dropping the samples of the collections with the fewest samples, as long as the samples take more than the
+   * vCntDictionarySampleMemory, but at least the samples of one collection are possible. The samples of the actual
+   * collection are kept, as long as there are others.
+   */
+  private void dropSamples(String collection) {
+    long maxMemory = Math.max(options.getvCntDictionarySampleMemory(), options.getvCntDictionarySampleSize());
+    while ((sampleMemory > maxMemory) && !samples.isEmpty()) {
+      String fewest = null;
+      long fewestSize = Long.MAX_VALUE;
+      for (Map.Entry<String, Samples> entry : samples.entrySet()) {
+        if (!entry.getKey().equals(collection) && (entry.getValue().size < fewestSize)) {
+          fewest = entry.getKey();
+          fewestSize = entry.getValue().size;
+        }
+      }
+      if (fewest == null) {
+        fewest = collection;
+      }
+      log.debug("dropping the dictionary samples of collection %s", fewest);
+      sampleMemory -= samples.remove(fewest).size;
+    }
+  }
+
+  /**
+   * @return bytes of the samples of all collections without a dictionary
+   */
+  long getSampleMemory() {
+    synchronized (samples) {
+      return sampleMemory;
+    }
+  }
+
+  /**
+   * training a dictionary from the samples.
+   * 
+   * @param values
+   *          the sampled values
+   * @return the dictionary
+   */
+  static byte[] train(List<byte[]> values) {
+    // in how many samples every gram occurs
+    Map<Long, Integer> grams = new HashMap<>();
+    List<Map<Long, Boolean>> sampleGrams = new ArrayList<>(values.size());
+    for (byte[] value : values) {
+      Map<Long, Boolean> own = new HashMap<>();
+      for (int i = 0; i + GRAM_LENGTH <= value.length; i++) {
+        own.put(getGram(value, i), Boolean.TRUE);
+      }
+      for (Long gram : own.keySet()) {
+        grams.merge(gram, 1, Integer::sum);
+      }
+      sampleGrams.add(own);
+    }
+    // the score of a sample is the part of its grams, which are shared with other samples
+    List<Integer> indexes = new ArrayList<>(values.size());
+    double[] scores = new double[values.size()];
+    for (int i = 0; i < values.size(); i++) {
+      Map<Long, Boolean> own = sampleGrams.get(i);
+      int shared = 0;
+      for (Long gram : own.keySet()) {
+        shared += grams.get(gram) - 1;
+      }
+      scores[i] = own.isEmpty() ? 0 : (double) shared / own.size();
+      indexes.add(i);
+    }
+    indexes.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+    List<byte[]> selected = new ArrayList<>();
+    int size = 0;
+    for (Integer i : indexes) {
+      byte[] value = values.get(i);
+      if (size + value.length > MAX_DICTIONARY_SIZE) {
+        continue;
+      }
+      selected.add(0, value);
+      size += value.length;
+    }
+    ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+    for (byte[] value : selected) {
+      dictionary.write(value, 0, value.length);
+    }
+    return dictionary.toByteArray();
+  }
+
+  private static long getGram(byte[] value, int offset) {
+    long gram = 0;
+    for (int i = 0; i < GRAM_LENGTH; i++) {
+      gram = (gram << 8) | (value[offset + i] & 0xFF);
+    }
+    return gram;
+  }
+
+  /**
+   * saving a new dictionary of a collection, the dictionary is persistent before any entry can reference it. This
+   * includes the entry of the file in the directory.
+   */
+  private synchronized int addDictionary(String collection, byte[] dictionary) throws IOException {
+    int id = ++lastId;
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(dictionary.length + 64);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeUTF(collection);
+      out.writeInt(dictionary.length);
+      out.write(dictionary);
+      CRC32 crc32 = new CRC32();
+      crc32.update(dictionary);
+      out.writeLong(crc32.getValue());
+    }
+    File file = getFilePathName(path, id);
+    File tmpFile = new File(path, file.getName() + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+      out.write(bytes.toByteArray());
+      out.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory();
+    dictionaries.put(id, dictionary);
+    collections.put(collection, id);
+    log.debug("new compression dictionary %d for collection %s with %d bytes", id, collection, dictionary.length);
+    return id;
+  }
+
+  private void syncDirectory() {
+    try (FileChannel channel = FileChannel.open(path.toPath(), StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // not every platform can sync a directory, e.g. windows
+      log.debug("directory %s can't be synced: %s", path.getName(), e.getMessage());
+    }
+  }
+
+  /**
+   * loading all dictionaries.
+   * 
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public synchronized void load() throws IOException {
+    dictionaries.clear();
+    collections.clear();
+    File[] files = path.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      Matcher matcher = DICTIONARY_PATTERN.matcher(file.getName());
+      if (!matcher.matches()) {
+        continue;
+      }
+      int id = Integer.parseInt(matcher.group(1));
+      lastId = Math.max(lastId, id);
+      try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+        String collection = in.readUTF();
+        byte[] dictionary = new byte[in.readInt()];
+        in.readFully(dictionary);
+        CRC32 crc32 = new CRC32();
+        crc32.update(dictionary);
+        if (in.readLong() != crc32.getValue()) {
+          throw new IOException("crc mismatch");
+        }
+        dictionaries.put(id, dictionary);
+        collections.merge(collection, id, Math::min);
+      } catch (IOException e) {
+        log.error(String.format("error reading compression dictionary %s", file.getName()), e);
+      }
+    }
+  }
+}
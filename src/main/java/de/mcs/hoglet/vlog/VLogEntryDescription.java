@@ -18,6 +18,7 @@
  */
 package de.mcs.hoglet.vlog;
 
+import de.mcs.hoglet.Operation;
 import de.mcs.utils.GsonUtils;
 
 /**
@@ -113,6 +114,48 @@ public class VLogEntryDescription {
     return chunkNumber;
   }
 
+  /**
+   * @return <code>true</code> if this entry marks the deletion of the key
+   */
+  public boolean isTombstone() {
+    return chunkNumber == VLogDescriptor.TOMBSTONE_CHUNK_NUMBER;
+  }
+
+  /**
+   * @return <code>true</code> if this entry starts a write batch, the entry is no data of a key
+   */
+  public boolean isBatchMarker() {
+    return chunkNumber == VLogDescriptor.BATCH_CHUNK_NUMBER;
+  }
+
+  /**
+   * @return <code>true</code> if this entry is the list of the chunks of a large value
+   */
+  public boolean isChunkList() {
+    return chunkNumber == VLogDescriptor.CHUNK_LIST_CHUNK_NUMBER;
+  }
+
+  /**
+   * @return <code>true</code> if this entry is a chunk of a large value, only reachable over the chunk list
+   */
+  public boolean isValueChunk() {
+    return (chunkNumber > 0) && (chunkNumber < VLogDescriptor.CHUNK_LIST_CHUNK_NUMBER);
+  }
+
+  /**
+   * @return the pointer to this entry, as it is stored in the index
+   */
+  public VLogEntryInfo getEntryInfo() {
+    VLogEntryInfo info = new VLogEntryInfo().setStart(start).setStartBinary(startBinary).setEnd(end).setHash(hash);
+    info.setvLogName(containerName);
+    if (isTombstone()) {
+      info.setOperation(Operation.DELETE);
+    } else if (isChunkList()) {
+      info.setOperation(Operation.CHUNKED);
+    }
+    return info;
+  }
+
   /**
    * @return the length
    */
@@ -18,6 +18,7 @@
  */
 package de.mcs.hoglet.vlog;
 
+import de.mcs.hoglet.Operation;
 import de.mcs.utils.ByteArrayUtils;
 
 /**
@@ -29,7 +30,10 @@ public class VLogEntryInfo {
   long startBinary;
   long end;
   byte[] hash;
+  private long hashValue;
+  private boolean hashAsValue;
   private String vLogName;
+  private Operation operation = Operation.ADD;
 
   /**
    * @return the start
@@ -46,9 +50,12 @@ public class VLogEntryInfo {
   }
 
   /**
-   * @return the hash
+   * @return the hash. A hash given as long is converted on every call, so the put of the entry doesn't need to.
    */
   public byte[] getHash() {
+    if (hashAsValue) {
+      return ByteArrayUtils.longToBytes(hashValue);
+    }
     return hash;
   }
 
@@ -62,8 +69,8 @@ public class VLogEntryInfo {
 
   @Override
   public String toString() {
-    return String.format("start: %d, bin: %d, end: %d, hash: %s", start, startBinary, end,
-        ByteArrayUtils.bytesAsHexString(hash));
+    return String.format("op: %s, start: %d, bin: %d, end: %d, hash: %s", operation.name(), start, startBinary, end,
+        ByteArrayUtils.bytesAsHexString(getHash()));
   }
 
   public int getDescriptionSize() {
@@ -107,6 +114,18 @@ public class VLogEntryInfo {
    */
   public VLogEntryInfo setHash(byte[] hash) {
     this.hash = hash;
+    this.hashAsValue = false;
+    return this;
+  }
+
+  /**
+   * @param hash
+   *          the hash to set as long
+   * @return
+   */
+  VLogEntryInfo setHash(long hash) {
+    this.hashValue = hash;
+    this.hashAsValue = true;
     return this;
   }
 
@@ -124,4 +143,28 @@ public class VLogEntryInfo {
     this.vLogName = vLogName;
   }
 
+  /**
+   * @return the operation of this entry
+   */
+  public Operation getOperation() {
+    return operation;
+  }
+
+  /**
+   * @param operation
+   *          the operation to set
+   * @return
+   */
+  public VLogEntryInfo setOperation(Operation operation) {
+    this.operation = operation;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if this entry marks a deleted key
+   */
+  public boolean isTombstone() {
+    return Operation.DELETE.equals(operation);
+  }
+
 }
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import de.mcs.utils.ByteBufferInputStream;
+import de.mcs.utils.logging.Logger;
+
+/**
+ * A lazy iterator over the entries of a vLog file. The file is read with large sequential reads into one buffer and the
+ * entries are decoded on demand, so the memory needed is independent of the size of the file. The data of the entries
+ * is not read, only skipped. The iterator has its own channel, which is closed at the end of the iteration or by
+ * {@link #close()}. For a sealed file with a footer, the entries of the footer are used instead.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogEntryIterator implements Iterator<VLogEntryDescription>, Closeable {
+
+  private static final int READ_BUFFER_SIZE = 256 * 1024;
+  private static final int HEADER_READ_LENGTH = Math.max(VLogDescriptor.length(), VLogDescriptor.maxHeaderLength());
+
+  private Logger log = Logger.getLogger(this.getClass());
+  private File file;
+  private String containerName;
+  private long end;
+  private FileChannel channel;
+  private ByteBuffer buffer;
+  private long bufferStart;
+  private long position;
+  private VLogEntryDescription next;
+  private boolean finished;
+  private Iterator<VLogEntryDescription> footerEntries;
+
+  /**
+   * @param file
+   *          the vLog file
+   * @param containerName
+   *          the name of the vLog
+   * @param startOffset
+   *          the offset of the first entry
+   * @param end
+   *          the end of the data in the file
+   */
+  VLogEntryIterator(File file, String containerName, long startOffset, long end) {
+    this.file = file;
+    this.containerName = containerName;
+    this.end = end;
+    this.position = startOffset;
+    this.bufferStart = startOffset;
+    buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    buffer.limit(0);
+  }
+
+  /**
+   * @param footerEntries
+   *          the entries read from the footer of a sealed file
+   */
+  VLogEntryIterator(Iterator<VLogEntryDescription> footerEntries) {
+    this.footerEntries = footerEntries;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if ((next == null) && !finished) {
+      try {
+        next = readNext();
+      } catch (IOException e) {
+        close();
+        throw new UncheckedIOException(e);
+      }
+      if (next == null) {
+        close();
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public VLogEntryDescription next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    VLogEntryDescription entry = next;
+    next = null;
+    return entry;
+  }
+
+  @Override
+  public void close() {
+    finished = true;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.error(String.format("error closing vlog %s", containerName), e);
+      }
+      channel = null;
+    }
+  }
+
+  private VLogEntryDescription readNext() throws IOException {
+    if (footerEntries != null) {
+      return footerEntries.hasNext() ? footerEntries.next() : null;
+    }
+    if (position + VLogDescriptor.DOC_START.length > end) {
+      return null;
+    }
+    fill(HEADER_READ_LENGTH);
+    buffer.position((int) (position - bufferStart));
+    if (buffer.remaining() < VLogDescriptor.DOC_START.length) {
+      return null;
+    }
+    byte[] start = new byte[VLogDescriptor.DOC_START.length];
+    buffer.get(start);
+    if (!VLogDescriptor.isDocStart(start)) {
+      // behind the last entry there is only the preallocated space
+      return null;
+    }
+    VLogDescriptor descriptor = VLogDescriptor.fromStreamWithoutStart(start, new ByteBufferInputStream(buffer));
+    long startBinary = position + ((descriptor == null) ? 0 : descriptor.getHeaderLength());
+    if ((descriptor == null) || (startBinary + descriptor.length > end)) {
+      log.warn(String.format("incomplete entry at %d in vlog %s", position, containerName));
+      return null;
+    }
+    VLogEntryDescription info = new VLogEntryDescription();
+    info.chunkNumber = descriptor.chunkNumber;
+    info.containerName = containerName;
+    info.collection = new String(descriptor.collectionBytes, StandardCharsets.UTF_8);
+    info.hash = descriptor.hash;
+    info.key = descriptor.key;
+    info.length = descriptor.length;
+    info.start = position;
+    info.startDescription = position + start.length;
+    info.startBinary = startBinary;
+    info.end = startBinary + descriptor.length - 1;
+    // the data is skipped, the next read starts at the next entry
+    position = startBinary + descriptor.length;
+    return info;
+  }
+
+  /**
+   * filling the buffer, so that at least count bytes from the actual position are in the buffer, as far as the data
+   * reaches. The buffer is filled completely with one large read.
+   */
+  private void fill(int count) throws IOException {
+    long bufferEnd = bufferStart + buffer.limit();
+    if ((position >= bufferStart) && (position + count <= bufferEnd)) {
+      return;
+    }
+    if ((position >= bufferStart) && (position < bufferEnd)) {
+      // keeping the rest of the buffer
+      buffer.position((int) (position - bufferStart));
+      buffer.compact();
+    } else {
+      buffer.clear();
+    }
+    bufferStart = position;
+    if (channel == null) {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+    while (buffer.hasRemaining() && (bufferStart + buffer.position() < end)) {
+      long readPosition = bufferStart + buffer.position();
+      buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + (end - readPosition)));
+      if (channel.read(buffer, readPosition) < 0) {
+        break;
+      }
+    }
+    buffer.flip();
+  }
+}
@@ -16,26 +16,41 @@
 package de.mcs.hoglet.vlog;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
-import java.util.zip.CRC32;
-
-import org.apache.commons.io.input.BoundedInputStream;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Checksum;
 
+import de.mcs.hoglet.ChecksumType;
 import de.mcs.hoglet.HogletDBException;
+import de.mcs.hoglet.Operation;
 import de.mcs.hoglet.Options;
+import de.mcs.hoglet.WriteBatch;
+import de.mcs.hoglet.compression.Codec;
+import de.mcs.hoglet.compression.Codecs;
 import de.mcs.utils.ByteArrayUtils;
+import de.mcs.utils.ByteBufferInputStream;
 import de.mcs.utils.HashUtils.Algorithm;
 import de.mcs.utils.io.RandomAccessInputStream;
 import de.mcs.utils.logging.Logger;
@@ -50,6 +65,14 @@ import de.mcs.utils.logging.Logger;
 public class VLogFile implements Closeable {
 
   private static final long MAX_VLOG_SIZE = (1024L * 1024L * 1024L * 2L) - 1L;
+  private static final String BATCH_MARKER_NAME = "#batch";
+  private static final byte[] EMPTY_CHUNK = new byte[0];
+  private static final byte[] BATCH_MARKER_BYTES = BATCH_MARKER_NAME.getBytes(StandardCharsets.UTF_8);
+  /**
+   * the header buffer of the single puts of a writer thread, reused for all files the thread writes to
+   */
+  private static final ThreadLocal<ByteBuffer> HEADER_BUFFER = ThreadLocal
+      .withInitial(() -> ByteBuffer.allocateDirect(VLogDescriptor.maxHeaderLength()));
   private Logger log = Logger.getLogger(this.getClass());
   private String internalName;
   private File vLogFile;
@@ -59,12 +82,46 @@ public class VLogFile implements Closeable {
   private int chunkCount;
   private boolean readOnly;
   private MessageDigest messageDigest;
+  private volatile ByteBuffer mappedBuffer;
+  private volatile boolean mappingTooLarge;
+  private long footerStart = -1;
+  private long corruptPosition = -1;
+  private final AtomicLong writePosition = new AtomicLong();
+  private final AtomicLong copiedTransfers = new AtomicLong();
+  private long preallocated;
+  // the buffers of the append path, used only by the single writer of this file
+  private Checksum writeChecksum;
+  private final ByteBuffer[] writeBuffers = new ByteBuffer[2];
+  private String lastCollection;
+  private byte[] lastCollectionBytes;
+  // the dictionary of the last compression, writer confined like the header buffer
+  private int compressedDictionary;
+  private VLogDictionaries dictionaries;
+  private int compressionMode;
+  private ChecksumType checksumType;
+  private VLogChecksumVerifier verifier;
 
   public static File getFilePathName(File path, int number) {
     String internalName = String.format("vlog_%04d.vlog", number);
     return new File(path, internalName);
   }
 
+  /**
+   * @param name
+   *          the name of a vLog file
+   * @return the number of the vLog file, -1 if the name is not a vLog file name
+   */
+  public static int getNumber(String name) {
+    if (!name.startsWith("vlog_") || !name.endsWith(".vlog")) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(name.substring(5, name.length() - 5));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
   private VLogFile() {
     chunkCount = -1;
     messageDigest = Algorithm.SHA_256.getMessageDigest();
@@ -73,6 +130,9 @@ public class VLogFile implements Closeable {
   public VLogFile(Options options, int number) throws IOException {
     this();
     this.options = options;
+    this.compressionMode = options.getvCntCompressionMode();
+    this.checksumType = options.getChecksumType() == null ? ChecksumType.CRC32C : options.getChecksumType();
+    this.verifier = new VLogChecksumVerifier(options);
     this.vLogFile = getFilePathName(new File(options.getPath()), number);
     init();
   }
@@ -80,6 +140,9 @@ public class VLogFile implements Closeable {
   public VLogFile(Options options, File file) throws IOException {
     this();
     this.options = options;
+    this.compressionMode = options.getvCntCompressionMode();
+    this.checksumType = options.getChecksumType() == null ? ChecksumType.CRC32C : options.getChecksumType();
+    this.verifier = new VLogChecksumVerifier(options);
     this.vLogFile = file;
     init();
   }
@@ -100,29 +163,183 @@ public class VLogFile implements Closeable {
     fileChannel = raf.getChannel();
     chunkCount = -1;
     readOnly = true;
+    footerStart = VLogFooter.readFooterStart(fileChannel);
   }
 
   private void initLogFile() throws IOException {
     log.debug("creating new vlog file: %s", internalName);
     raf = new RandomAccessFile(vLogFile, "rw");
-    raf.setLength(options.getVlogMaxSize());
     raf.seek(0);
     fileChannel = raf.getChannel();
+    writePosition.set(0);
+    preallocated = 0;
     chunkCount = 0;
     readOnly = false;
   }
 
+  /**
+   * reopening a vLog file for appending. The end of the written data is searched, a torn entry at the end, written
+   * only partially before a crash, is cut off. A sealed file with a footer stays read only. A corrupt entry followed by
+   * more data is no torn entry, the file is not cut off and stays read only, so no entry behind is lost.
+   * 
+   * @return this vLog file
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLogFile reopenForAppending() throws IOException {
+    if (!readOnly || hasFooter()) {
+      return this;
+    }
+    fileChannel.close();
+    raf.close();
+    raf = new RandomAccessFile(vLogFile, "rw");
+    long length = raf.length();
+    long endOfData = scanEndOfData();
+    if (corruptPosition >= 0) {
+      log.error(String.format("corrupt entry at %d in vlog file %s followed by more data, the file stays read only",
+          corruptPosition, internalName));
+      fileChannel = raf.getChannel();
+      return this;
+    }
+    if (endOfData < length) {
+      log.debug("vlog file %s: truncating at %d, file length %d", internalName, endOfData, length);
+      // removing the torn entry first, the preallocated space must be zero
+      raf.setLength(endOfData);
+    }
+    raf.seek(endOfData);
+    fileChannel = raf.getChannel();
+    writePosition.set(endOfData);
+    preallocated = endOfData;
+    readOnly = false;
+    return this;
+  }
+
+  /**
+   * scanning all entries of the file from the start, counting the complete entries. A write batch counts only, if all
+   * its entries are complete. The scan ends at the first entry, which is not complete or not valid. Only if behind this
+   * entry there is nothing but the zeros of the preallocated space, it's a torn entry, otherwise the position of the
+   * corrupt entry is remembered.
+   * 
+   * @return the position after the last complete entry
+   */
+  private long scanEndOfData() throws IOException {
+    long length = vLogFile.length();
+    long position = 0;
+    long endOfData = 0;
+    // behind this position only zeros are allowed, if the scan ends before the end of the file
+    long blankFrom = length;
+    // start of a damaged entry inside an open batch
+    long damagedAt = -1;
+    int count = 0;
+    int batchRemaining = 0;
+    chunkCount = 0;
+    corruptPosition = -1;
+    try (BufferedInputStream input = new BufferedInputStream(new RandomAccessInputStream(vLogFile, 0),
+        options.getChunkSize())) {
+      while (position < length) {
+        byte[] start = input.readNBytes(VLogDescriptor.DOC_START.length);
+        blankFrom = position;
+        if (!VLogDescriptor.isDocStart(start)) {
+          break;
+        }
+        VLogDescriptor descriptor = VLogDescriptor.fromStreamWithoutStart(start, input);
+        if (descriptor == null) {
+          break;
+        }
+        long entryEnd = position + descriptor.getHeaderLength() + descriptor.length;
+        if (entryEnd > length) {
+          // the last entry runs past the end of the file
+          blankFrom = length;
+          break;
+        }
+        blankFrom = entryEnd;
+        // the data is valid, if the hash is ok, a partial written data block is zero at the end
+        ChecksumType type = ChecksumType.fromId(descriptor.checksum);
+        if (type == null) {
+          log.warn(String.format("unknown checksum %d at %d in vlog file %s, ending the scan", descriptor.checksum,
+              position, internalName));
+          break;
+        }
+        Checksum checksum = type.newChecksum();
+        byte[] buffer = new byte[Math.max(1, Math.min(options.getChunkSize(), (int) descriptor.length))];
+        long bytesToRead = descriptor.length;
+        while (bytesToRead > 0) {
+          int read = input.readNBytes(buffer, 0, (int) Math.min(buffer.length, bytesToRead));
+          if (read <= 0) {
+            break;
+          }
+          checksum.update(buffer, 0, read);
+          bytesToRead -= read;
+        }
+        boolean valid = (bytesToRead == 0) && ((type == ChecksumType.NONE)
+            || (ByteArrayUtils.bytesToLong(descriptor.hash) == checksum.getValue()));
+        if (!valid && (batchRemaining == 0)) {
+          break;
+        }
+        if (!valid && (damagedAt < 0)) {
+          // the rest of an open batch belongs to the same write and is skipped
+          damagedAt = position;
+        }
+        position = entryEnd;
+        count++;
+        if (descriptor.isBatchMarker() && (batchRemaining == 0)) {
+          batchRemaining = ByteBuffer.wrap(buffer, 0, 4).getInt();
+        } else if (batchRemaining > 0) {
+          batchRemaining--;
+        }
+        if (batchRemaining == 0) {
+          if (damagedAt >= 0) {
+            blankFrom = position;
+            break;
+          }
+          endOfData = position;
+          chunkCount = count;
+        }
+      }
+    }
+    if ((position < length) && !isBlank(blankFrom)) {
+      corruptPosition = (damagedAt >= 0) ? damagedAt : position;
+    }
+    return endOfData;
+  }
+
+  /**
+   * @return <code>true</code> if the file contains only zeros from the position to the end
+   */
+  private boolean isBlank(long from) throws IOException {
+    try (FileChannel channel = FileChannel.open(vLogFile.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+      long position = from;
+      while (channel.read(buffer, position) > 0) {
+        buffer.flip();
+        position += buffer.remaining();
+        while (buffer.hasRemaining()) {
+          if (buffer.get() != 0) {
+            return false;
+          }
+        }
+        buffer.clear();
+      }
+    }
+    return true;
+  }
+
   public String getName() {
     return internalName;
   }
 
   @Override
   public void close() throws IOException {
+    // the mapping itself is released by the garbage collection of the jvm
+    mappedBuffer = null;
     if ((fileChannel != null) && fileChannel.isOpen()) {
       fileChannel.force(true);
-      long position = fileChannel.position();
       if (!readOnly) {
-        raf.setLength(position);
+        if (!isAvailbleForWriting()) {
+          seal();
+        } else {
+          raf.setLength(getWritePosition());
+        }
       }
       fileChannel.close();
     }
@@ -130,81 +347,722 @@ public class VLogFile implements Closeable {
   }
 
   public VLogEntryInfo put(String collection, byte[] key, int chunknumber, byte[] chunk) throws IOException {
-    byte[] collectionBytes = collection.getBytes(StandardCharsets.UTF_8);
-    if (collectionBytes.length > VLogDescriptor.KEY_MAX_LENGTH) {
-      throw new HogletDBException("Illegal collection length.");
-    }
-    if (key.length > VLogDescriptor.KEY_MAX_LENGTH) {
-      throw new HogletDBException("Illegal key length.");
-    }
+    return put(collection, key, chunknumber, chunk, true);
+  }
+
+  /**
+   * writing an entry into the vLog file. Header and value are appended with one gathering write, the header is encoded
+   * into the reused header buffer of the writer thread and the checksum is reused for all puts of the file. Per put
+   * only the returned info, which the memory table keeps, and the wrapper around the value are allocated, beside the
+   * compressed value, if compression is enabled.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key
+   * @param chunknumber
+   *          number of the chunk
+   * @param chunk
+   *          the data
+   * @param sync
+   *          <code>true</code> if the data should be synced to the disk, otherwise the caller has to call
+   *          {@link #sync()}
+   * @return the info of the written entry
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLogEntryInfo put(String collection, byte[] key, int chunknumber, byte[] chunk, boolean sync)
+      throws IOException {
+    byte[] collectionBytes = getCollectionBytes(collection);
+    checkLengths(collectionBytes, key);
     if (!isAvailbleForWriting()) {
       throw new HogletDBException(String.format("VLogfile %s is not available for writing.", internalName));
     }
-    byte[] digest = new byte[2];
-    // calculating hash of chunk
-    CRC32 crc32 = new CRC32();
-    crc32.update(chunk);
-    digest = ByteArrayUtils.longToBytes(crc32.getValue());
+    byte[] data = compress(collection, chunknumber, chunk);
+    int codec = data != chunk ? compressionMode : Codec.NONE;
+    long hash = hash(data);
+    ByteBuffer headerBuffer = HEADER_BUFFER.get();
+    headerBuffer.clear();
+    VLogDescriptor.putHeader(headerBuffer, collectionBytes, key, chunknumber, codec, compressedDictionary,
+        chunk.length, data.length, checksumType.getId(), hash);
+    headerBuffer.flip();
 
     VLogEntryInfo info = new VLogEntryInfo();
-    info.start = fileChannel.position();
-    info.hash = digest;
-
-    VLogDescriptor vlogDescriptor = new VLogDescriptor();
-    vlogDescriptor.collectionBytes = collectionBytes;
-    vlogDescriptor.key = key;
-    vlogDescriptor.chunkNumber = chunknumber;
-    vlogDescriptor.hash = digest;
-    vlogDescriptor.length = chunk.length;
-    // write the binary data
-    fileChannel.write(vlogDescriptor.getBytes());
-    info.startBinary = fileChannel.position();
-    fileChannel.write(ByteBuffer.wrap(chunk));
-    info.end = fileChannel.position() - 1;
-    fileChannel.force(false);
+    info.start = writePosition.get();
+    info.startBinary = info.start + headerBuffer.remaining();
+    info.end = info.startBinary + data.length - 1;
+    info.setHash(hash);
+    ensureCapacity(info.end + 1);
+
+    // header and binary data with one gathering write
+    writeBuffers[0] = headerBuffer;
+    writeBuffers[1] = ByteBuffer.wrap(data);
+    try {
+      long remaining = info.end + 1 - info.start;
+      while (remaining > 0) {
+        remaining -= fileChannel.write(writeBuffers);
+      }
+    } finally {
+      writeBuffers[0] = null;
+      writeBuffers[1] = null;
+    }
+    writePosition.set(info.end + 1);
+    if (sync) {
+      fileChannel.force(false);
+    }
     info.setvLogName(getName());
+    if (chunknumber == VLogDescriptor.TOMBSTONE_CHUNK_NUMBER) {
+      info.setOperation(Operation.DELETE);
+    } else if (chunknumber == VLogDescriptor.CHUNK_LIST_CHUNK_NUMBER) {
+      info.setOperation(Operation.CHUNKED);
+    }
     chunkCount++;
     return info;
   }
 
-  public VLogEntryDescription getDescription(long offset, int size) throws IOException {
-    try (BufferedInputStream in = new BufferedInputStream(new RandomAccessInputStream(vLogFile, offset),
-        options.getChunkSize())) {
-      byte[] buffer = new byte[size];
-      int read = in.read(buffer);
-      if (read != size) {
-        throw new HogletDBException("readed buffer size is not equals to size");
+  /**
+   * the collection of consecutive writes is mostly the same, so the last encoded name is reused.
+   */
+  private byte[] getCollectionBytes(String collection) {
+    if (!collection.equals(lastCollection)) {
+      lastCollectionBytes = collection.getBytes(StandardCharsets.UTF_8);
+      lastCollection = collection;
+    }
+    return lastCollectionBytes;
+  }
+
+  private void checkLengths(byte[] collectionBytes, byte[] key) throws HogletDBException {
+    if (collectionBytes.length > VLogDescriptor.KEY_MAX_LENGTH) {
+      throw new HogletDBException("Illegal collection length.");
+    }
+    if (key.length > VLogDescriptor.KEY_MAX_LENGTH) {
+      throw new HogletDBException("Illegal key length.");
+    }
+  }
+
+  /**
+   * compressing a plain value with the codec of the compression mode and the dictionary of the collection, if
+   * enabled. Chunks of large values, small values and values, which don't compress well, are stored as they are.
+   * 
+   * @return the data to store, the given chunk if it is not compressed
+   */
+  private byte[] compress(String collection, int chunknumber, byte[] chunk) throws IOException {
+    compressedDictionary = 0;
+    int mode = compressionMode;
+    if ((mode == Codec.NONE) || (chunknumber != 0) || (chunk.length < options.getvCntCompressionMinSize())) {
+      return chunk;
+    }
+    Codec codec = Codecs.getCodec(mode);
+    if (codec == null) {
+      throw new HogletDBException(String.format("unknown compression mode %d", mode));
+    }
+    int dictionary = 0;
+    if ((dictionaries != null) && options.isvCntCompressionDictionary() && codec.isDictionarySupported()) {
+      dictionary = dictionaries.getDictionaryId(collection, chunk);
+    }
+    byte[] compressed = dictionary == 0 ? codec.compress(chunk)
+        : codec.compress(chunk, dictionaries.getDictionary(dictionary));
+    // at least an eighth must be saved, otherwise the decompression on every read isn't worth it
+    if (compressed.length > chunk.length - (chunk.length >> 3)) {
+      return chunk;
+    }
+    compressedDictionary = dictionary;
+    return compressed;
+  }
+
+  /**
+   * @return the checksum of the stored data, calculated with the reused checksum of the writer
+   */
+  private long hash(byte[] data) {
+    if (writeChecksum == null) {
+      writeChecksum = checksumType.newChecksum();
+    }
+    writeChecksum.reset();
+    writeChecksum.update(data, 0, data.length);
+    return writeChecksum.getValue();
+  }
+
+  /**
+   * writing a write batch as one contiguous append. A marker entry with the count of the entries is written in front
+   * of the entries, so a batch, which is only partially written before a crash, can be detected. The headers of all
+   * entries are encoded into one buffer, no descriptor is built per entry.
+   * 
+   * @param batch
+   *          the batch to write
+   * @param sync
+   *          <code>true</code> if the data should be synced to the disk, otherwise the caller has to call
+   *          {@link #sync()}
+   * @return the infos of the written entries in the order of the batch
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public List<VLogEntryInfo> putBatch(WriteBatch batch, boolean sync) throws IOException {
+    if (!isAvailbleForWriting(batch.size() + 1)) {
+      throw new HogletDBException(String.format("VLogfile %s is not available for writing.", internalName));
+    }
+    int count = batch.size() + 1;
+    byte[][] collections = new byte[count][];
+    byte[][] keys = new byte[count][];
+    int[] chunkNumbers = new int[count];
+    byte[][] chunks = new byte[count][];
+    int[] codecs = new int[count];
+    int[] dictionaries = new int[count];
+    int[] rawLengths = new int[count];
+    collections[0] = BATCH_MARKER_BYTES;
+    keys[0] = BATCH_MARKER_BYTES;
+    chunkNumbers[0] = VLogDescriptor.BATCH_CHUNK_NUMBER;
+    chunks[0] = ByteBuffer.allocate(4).putInt(batch.size()).array();
+    rawLengths[0] = chunks[0].length;
+    int i = 1;
+    for (WriteBatch.Entry entry : batch.getEntries()) {
+      byte[] value = entry.isRemove() ? EMPTY_CHUNK : entry.getValue();
+      collections[i] = getCollectionBytes(entry.getCollection());
+      keys[i] = entry.getKey();
+      checkLengths(collections[i], keys[i]);
+      chunkNumbers[i] = entry.isRemove() ? VLogDescriptor.TOMBSTONE_CHUNK_NUMBER : 0;
+      chunks[i] = compress(entry.getCollection(), chunkNumbers[i], value);
+      codecs[i] = chunks[i] != value ? compressionMode : Codec.NONE;
+      dictionaries[i] = compressedDictionary;
+      rawLengths[i] = value.length;
+      i++;
+    }
+
+    // all headers of the batch in one buffer, the entries only get views on it
+    int headersLength = 0;
+    for (i = 0; i < count; i++) {
+      headersLength += VLogDescriptor.headerLength(collections[i], keys[i], chunkNumbers[i], codecs[i], dictionaries[i],
+          rawLengths[i], chunks[i].length);
+    }
+    ByteBuffer headers = ByteBuffer.allocate(headersLength);
+    ByteBuffer[] buffers = new ByteBuffer[count * 2];
+    List<VLogEntryInfo> infos = new ArrayList<>(batch.size());
+    long batchStart = writePosition.get();
+    long position = batchStart;
+    for (i = 0; i < count; i++) {
+      byte[] chunk = chunks[i];
+      long hash = hash(chunk);
+      int headerStart = headers.position();
+      VLogDescriptor.putHeader(headers, collections[i], keys[i], chunkNumbers[i], codecs[i], dictionaries[i],
+          rawLengths[i], chunk.length, checksumType.getId(), hash);
+      ByteBuffer header = headers.duplicate();
+      header.position(headerStart).limit(headers.position());
+      buffers[i * 2] = header;
+      buffers[i * 2 + 1] = ByteBuffer.wrap(chunk);
+      long startBinary = position + header.remaining();
+      if (i > 0) {
+        VLogEntryInfo info = new VLogEntryInfo();
+        info.start = position;
+        info.startBinary = startBinary;
+        info.end = startBinary + chunk.length - 1;
+        info.setHash(hash);
+        info.setvLogName(getName());
+        if (chunkNumbers[i] == VLogDescriptor.TOMBSTONE_CHUNK_NUMBER) {
+          info.setOperation(Operation.DELETE);
+        }
+        infos.add(info);
       }
-      VLogDescriptor descriptor = VLogDescriptor.fromBytes(buffer);
-      return VLogTransformer.transformDescriptor2Entry(descriptor);
+      position = startBinary + chunk.length;
+    }
+    // one gathering write for the whole batch
+    ensureCapacity(position);
+    long remaining = position - batchStart;
+    while (remaining > 0) {
+      remaining -= fileChannel.write(buffers);
     }
+    writePosition.set(position);
+    if (sync) {
+      fileChannel.force(false);
+    }
+    chunkCount += count;
+    return infos;
+  }
+
+  /**
+   * writing a tombstone for the key, an entry without any data marking the deletion of the key.
+   * 
+   * @param collection
+   *          the collection
+   * @param key
+   *          the key to delete
+   * @return the info of the tombstone entry
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLogEntryInfo putTombstone(String collection, byte[] key) throws IOException {
+    return putTombstone(collection, key, true);
+  }
+
+  public VLogEntryInfo putTombstone(String collection, byte[] key, boolean sync) throws IOException {
+    return put(collection, key, VLogDescriptor.TOMBSTONE_CHUNK_NUMBER, EMPTY_CHUNK, sync);
+  }
+
+  /**
+   * syncing all written data to the disk.
+   * 
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public void sync() throws IOException {
+    if ((fileChannel != null) && fileChannel.isOpen()) {
+      fileChannel.force(false);
+    }
+  }
+
+  public VLogEntryDescription getDescription(long offset, int size) throws IOException {
+    return VLogTransformer.transformDescriptor2Entry(parseHeader(getValue(offset, size), offset));
   }
 
   public InputStream get(long offset, int size) throws IOException {
-    return new BufferedInputStream(new BoundedInputStream(new RandomAccessInputStream(vLogFile, offset), size),
-        options.getChunkSize());
+    ByteBuffer mapped = getMappedSlice(offset, size);
+    if (mapped != null) {
+      return new ByteBufferInputStream(mapped);
+    }
+    return new ByteArrayInputStream(read(offset, size));
   }
 
   public byte[] getValue(long offset, int size) throws IOException {
-    try (RandomAccessFile raf = new RandomAccessFile(vLogFile, "r")) {
-      raf.seek(offset);
+    ByteBuffer mapped = getMappedSlice(offset, size);
+    if (mapped != null) {
       byte[] buffer = new byte[size];
-      raf.read(buffer);
+      mapped.get(buffer);
       return buffer;
     }
+    return read(offset, size);
   }
 
+  /**
+   * reading from the file with positional reads on the channel of the file, so no file is opened for a read and the
+   * reads don't interfere with the appends to this file. If the file is closed meanwhile, because the vLog has been
+   * removed from the read cache, the rest is read over a new channel.
+   */
+  private byte[] read(long offset, int size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    FileChannel channel = fileChannel;
+    FileChannel ownChannel = null;
+    try {
+      while (buffer.hasRemaining()) {
+        try {
+          if (channel.read(buffer, offset + buffer.position()) < 0) {
+            throw new HogletDBException(String.format("unexpected end of vlog file %s", internalName));
+          }
+        } catch (ClosedChannelException e) {
+          if (ownChannel != null) {
+            throw e;
+          }
+          ownChannel = FileChannel.open(vLogFile.toPath(), StandardOpenOption.READ);
+          channel = ownChannel;
+        }
+      }
+    } finally {
+      if (ownChannel != null) {
+        ownChannel.close();
+      }
+    }
+    return buffer.array();
+  }
+
+  /**
+   * reading a value with its header and decompressing it, if it has been compressed.
+   * 
+   * @param start
+   *          start of the entry
+   * @param startBinary
+   *          start of the stored value
+   * @param size
+   *          size of the stored value
+   * @return the value
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public byte[] getValue(long start, long startBinary, int size) throws IOException {
+    return getValue(start, startBinary, size, verifier.shouldVerify());
+  }
+
+  private byte[] getValue(long start, long startBinary, int size, boolean verify) throws IOException {
+    int headerLength = (int) (startBinary - start);
+    // header and value with one read
+    byte[] entry = getValue(start, headerLength + size);
+    VLogDescriptor descriptor = parseHeader(entry, start);
+    if (verify) {
+      verifier.verify(descriptor, entry, headerLength, size, internalName);
+    }
+    if (!descriptor.isCompressed()) {
+      return Arrays.copyOfRange(entry, headerLength, entry.length);
+    }
+    return decompress(descriptor, entry, headerLength, size);
+  }
+
+  /**
+   * reading a value as stream, decompressing it, if it has been compressed.
+   * 
+   * @param start
+   *          start of the entry
+   * @param startBinary
+   *          start of the stored value
+   * @param size
+   *          size of the stored value
+   * @return the stream of the value
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public InputStream get(long start, long startBinary, int size) throws IOException {
+    return new ByteBufferInputStream(getValueBuffer(start, startBinary, size));
+  }
+
+  /**
+   * reading a value without copying, if the file is memory mapped and the value is not compressed. A verified value is
+   * checked on the mapped slice.
+   * 
+   * @param start
+   *          start of the entry
+   * @param startBinary
+   *          start of the stored value
+   * @param size
+   *          size of the stored value
+   * @return a read only buffer with the value
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public ByteBuffer getValueBuffer(long start, long startBinary, int size) throws IOException {
+    int headerLength = (int) (startBinary - start);
+    ByteBuffer mapped = getMappedSlice(start, headerLength + size);
+    if (mapped == null) {
+      // header and value with one read
+      return ByteBuffer.wrap(getValue(start, startBinary, size)).asReadOnlyBuffer();
+    }
+    byte[] header = new byte[headerLength];
+    mapped.get(header);
+    VLogDescriptor descriptor = parseHeader(header, start);
+    boolean verify = verifier.shouldVerify();
+    if (descriptor.isCompressed()) {
+      return ByteBuffer.wrap(readValue(descriptor, startBinary, size, verify)).asReadOnlyBuffer();
+    }
+    if (verify) {
+      verifier.verify(descriptor, mapped, internalName);
+    }
+    return mapped.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * transferring a value into a channel. Values, which are not compressed, are transferred without copying, see
+   * {@link #transferTo(long, int, WritableByteChannel)}. A value, which should be verified, is checked on the memory
+   * mapped slice of the file. Only if the file is not mapped, it's read with its header onto the heap, verified and
+   * written from there. Compressed values are always decompressed on the heap first.
+   * 
+   * @param start
+   *          start of the entry
+   * @param startBinary
+   *          start of the stored value
+   * @param size
+   *          size of the stored value
+   * @param target
+   *          the channel to write to
+   * @return the count of transferred bytes, the size of the uncompressed value. For a non blocking channel, which
+   *         takes no more bytes, it's the count of bytes transferred so far.
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public long transferTo(long start, long startBinary, int size, WritableByteChannel target) throws IOException {
+    int headerLength = (int) (startBinary - start);
+    boolean verify = verifier.shouldVerify();
+    ByteBuffer mapped = getMappedSlice(start, headerLength + size);
+    if ((mapped == null) && verify) {
+      // the value is verified on the heap, header and value with one read
+      return write(getValue(start, startBinary, size, true), target);
+    }
+    byte[] header;
+    if (mapped != null) {
+      header = new byte[headerLength];
+      mapped.get(header);
+    } else {
+      header = read(start, headerLength);
+    }
+    VLogDescriptor descriptor = parseHeader(header, start);
+    if (descriptor.isCompressed()) {
+      return write(readValue(descriptor, startBinary, size, verify), target);
+    }
+    if (verify) {
+      verifier.verify(descriptor, mapped, internalName);
+    }
+    return transferTo(startBinary, size, target);
+  }
+
+  /**
+   * writing a value from the heap into a channel, for the values, which can't be transferred without copying.
+   */
+  private long write(byte[] data, WritableByteChannel target) throws IOException {
+    copiedTransfers.incrementAndGet();
+    ByteBuffer value = ByteBuffer.wrap(data);
+    while (value.hasRemaining()) {
+      if (target.write(value) <= 0) {
+        break;
+      }
+    }
+    return value.position();
+  }
+
+  /**
+   * @return count of the values, which are transferred from the heap instead of without copying
+   */
+  long getCopiedTransferCount() {
+    return copiedTransfers.get();
+  }
+
+  /**
+   * reading the stored data of an entry into the heap, verifying and decompressing it, if needed.
+   */
+  private byte[] readValue(VLogDescriptor descriptor, long startBinary, int size, boolean verify) throws IOException {
+    byte[] data = getValue(startBinary, size);
+    if (verify) {
+      verifier.verify(descriptor, data, 0, size, internalName);
+    }
+    if (!descriptor.isCompressed()) {
+      return data;
+    }
+    return decompress(descriptor, data, 0, size);
+  }
+
+  /**
+   * parsing the header of an entry for a read. A header, which can't be parsed or has an unknown checksum, is corrupt.
+   */
+  private VLogDescriptor parseHeader(byte[] header, long start) throws HogletDBException {
+    VLogDescriptor descriptor;
+    try {
+      descriptor = VLogDescriptor.fromBytes(header);
+    } catch (IllegalArgumentException | BufferUnderflowException e) {
+      throw new HogletDBException(String.format("corrupt header at %d in vlog file %s", start, internalName), e);
+    }
+    if (descriptor == null) {
+      throw new HogletDBException(String.format("corrupt header at %d in vlog file %s", start, internalName));
+    }
+    if (ChecksumType.fromId(descriptor.checksum) == null) {
+      throw new HogletDBException(String.format("corrupt header at %d in vlog file %s, unknown checksum %d", start,
+          internalName, descriptor.checksum));
+    }
+    return descriptor;
+  }
+
+  private byte[] decompress(VLogDescriptor descriptor, byte[] data, int offset, int size) throws IOException {
+    Codec codec = Codecs.getCodec(descriptor.codec);
+    if (codec == null) {
+      throw new HogletDBException(String.format("unknown codec %d in vlog file %s", descriptor.codec, internalName));
+    }
+    if (descriptor.dictionary == 0) {
+      return codec.decompress(data, offset, size, (int) descriptor.rawLength);
+    }
+    byte[] dictionary = dictionaries != null ? dictionaries.getDictionary(descriptor.dictionary) : null;
+    if (dictionary == null) {
+      throw new HogletDBException(
+          String.format("unknown compression dictionary %d in vlog file %s", descriptor.dictionary, internalName));
+    }
+    return codec.decompress(data, offset, size, (int) descriptor.rawLength, dictionary);
+  }
+
+  /**
+   * reading a value without copying, if the file is memory mapped.
+   * 
+   * @param offset
+   *          start of the value
+   * @param size
+   *          size of the value
+   * @return a read only buffer with the value
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public ByteBuffer getValueBuffer(long offset, int size) throws IOException {
+    ByteBuffer mapped = getMappedSlice(offset, size);
+    if (mapped != null) {
+      return mapped;
+    }
+    return ByteBuffer.wrap(getValue(offset, size)).asReadOnlyBuffer();
+  }
+
+  /**
+   * transferring a value directly from the file into a channel, without copying it onto the java heap. The transfer
+   * is positional, so it doesn't interfere with the appends to this file. If the file is closed meanwhile, because the
+   * vLog has been removed from the read cache, the rest is transferred over a new channel. The transfer stops, if the
+   * target takes no more bytes, which only a non blocking channel does.
+   * 
+   * @param offset
+   *          start of the value
+   * @param size
+   *          size of the value
+   * @param target
+   *          the channel to write to
+   * @return the count of transferred bytes, less than the size, if the target takes no more bytes
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public long transferTo(long offset, int size, WritableByteChannel target) throws IOException {
+    long position = offset;
+    long end = offset + size;
+    FileChannel channel = fileChannel;
+    FileChannel ownChannel = null;
+    try {
+      while (position < end) {
+        try {
+          long count = channel.transferTo(position, end - position, target);
+          if (count <= 0) {
+            if (position >= channel.size()) {
+              throw new HogletDBException(String.format("unexpected end of vlog file %s", internalName));
+            }
+            // a non blocking target takes no more bytes at the moment
+            break;
+          }
+          position += count;
+        } catch (ClosedChannelException e) {
+          if ((ownChannel != null) || !target.isOpen()) {
+            throw e;
+          }
+          ownChannel = FileChannel.open(vLogFile.toPath(), StandardOpenOption.READ);
+          channel = ownChannel;
+        }
+      }
+    } finally {
+      if (ownChannel != null) {
+        ownChannel.close();
+      }
+    }
+    return position - offset;
+  }
+
+  /**
+   * sealing the file, when it's full: the data is synced, the preallocated space behind the data is cut off and the
+   * footer with all entries is appended. Afterwards the file is read only. The caller must hold the write lock of the
+   * vLog.
+   * 
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public void seal() throws IOException {
+    if (readOnly || (fileChannel == null) || !fileChannel.isOpen()) {
+      return;
+    }
+    long position = getWritePosition();
+    fileChannel.force(false);
+    raf.setLength(position);
+    preallocated = position;
+    writeFooter(position);
+    readOnly = true;
+    // the checksum of the append path is not needed anymore
+    writeChecksum = null;
+  }
+
+  /**
+   * appending the footer with all entries behind the data of a sealed file. The entries are read with the lazy
+   * iterator, so nothing is kept in memory while the file is written.
+   */
+  private void writeFooter(long position) throws IOException {
+    VLogFooter footer = new VLogFooter();
+    try (VLogEntryIterator iterator = new VLogEntryIterator(vLogFile, getName(), 0, position)) {
+      while (iterator.hasNext()) {
+        VLogEntryDescription entry = iterator.next();
+        footer.add(entry.getStart(), (int) (entry.getStartBinary() - entry.getStart()),
+            entry.getCollection().getBytes(StandardCharsets.UTF_8), entry.getKey(), entry.getChunkNumber(),
+            entry.getLength(), entry.getHash());
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    ByteBuffer buffer = footer.getBytes(position);
+    long writePosition = position;
+    while (buffer.hasRemaining()) {
+      writePosition += fileChannel.write(buffer, writePosition);
+    }
+    fileChannel.force(true);
+    footerStart = position;
+    log.debug("vlog file %s sealed with a footer of %d entries", internalName, footer.getCount());
+  }
+
+  /**
+   * @return <code>true</code> if this is a sealed file with a footer listing all entries
+   */
+  public boolean hasFooter() {
+    return footerStart >= 0;
+  }
+
+  /**
+   * @return <code>true</code> if there will be no more writes into this file
+   */
+  public boolean isSealed() {
+    return readOnly || !isAvailbleForWriting();
+  }
+
+  /**
+   * a sealed file is mapped into memory on the first read, if configured. The mapping is shared by all readers. A
+   * mapping is indexed by int, so a file larger than 2 GB is never mapped and read with the positional reads.
+   * 
+   * @return a read only slice of the mapping, <code>null</code> if the file is not mapped
+   */
+  private ByteBuffer getMappedSlice(long offset, int size) throws IOException {
+    ByteBuffer mapping = mappedBuffer;
+    if ((mapping == null) && options.isVLogMemoryMapped() && !mappingTooLarge && isSealed()) {
+      synchronized (this) {
+        if ((mappedBuffer == null) && !mappingTooLarge && (fileChannel != null) && fileChannel.isOpen()) {
+          long length = readOnly ? fileChannel.size() : getWritePosition();
+          if (length > Integer.MAX_VALUE) {
+            log.warn(String.format("vlog file %s with %d bytes is too large for a memory mapping", internalName,
+                length));
+            mappingTooLarge = true;
+          } else {
+            log.debug("mapping vlog file %s, %d bytes", internalName, length);
+            mappedBuffer = fileChannel.map(MapMode.READ_ONLY, 0, length);
+          }
+        }
+        mapping = mappedBuffer;
+      }
+    }
+    if ((mapping == null) || (offset < 0) || (offset + size > mapping.capacity())) {
+      return null;
+    }
+    ByteBuffer slice = mapping.duplicate();
+    slice.position((int) offset).limit((int) offset + size);
+    return slice.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * @return the size of the data in the file, without the preallocated space and the footer
+   */
   public long getSize() {
-    return vLogFile.length();
+    if (!readOnly) {
+      return writePosition.get();
+    }
+    return hasFooter() ? footerStart : vLogFile.length();
+  }
+
+  /**
+   * growing the preallocated space of the file in extents, as the file fills. The file is never preallocated beyond
+   * the maximum size, only an entry crossing the maximum size extends the file.
+   */
+  private void ensureCapacity(long end) throws IOException {
+    long extent = options.getVlogPreallocationSize();
+    if ((end <= preallocated) || (extent <= 0)) {
+      return;
+    }
+    long size = Math.max(end, Math.min(preallocated + extent, options.getVlogMaxSize()));
+    raf.setLength(size);
+    preallocated = size;
   }
 
   public boolean isAvailbleForWriting() {
+    return isAvailbleForWriting(1);
+  }
+
+  /**
+   * @param entries
+   *          count of entries to write
+   * @return <code>true</code> if the entries can be written into this file. An empty file takes every count of entries.
+   */
+  public boolean isAvailbleForWriting(int entries) {
     if (readOnly) {
       return false;
     }
     if (getSize() > options.getVlogMaxSize()) {
       return false;
     }
+    if ((getChunkCount() > 0) && (getChunkCount() + entries > options.getVlogMaxChunkCount())) {
+      return false;
+    }
     if (getChunkCount() + 1 > options.getVlogMaxChunkCount()) {
       return false;
     }
@@ -225,6 +1083,37 @@ public class VLogFile implements Closeable {
     return readOnly;
   }
 
+  /**
+   * @param dictionaries
+   *          the compression dictionaries of the collections
+   * @return this vLog file
+   */
+  public VLogFile setDictionaries(VLogDictionaries dictionaries) {
+    this.dictionaries = dictionaries;
+    return this;
+  }
+
+  /**
+   * @param verifier
+   *          the verifier of the checksums on reading, shared by the vLog files of a database
+   * @return this vLog file
+   */
+  public VLogFile setChecksumVerifier(VLogChecksumVerifier verifier) {
+    this.verifier = verifier;
+    return this;
+  }
+
+  /**
+   * @param compressionMode
+   *          the id of the codec for the values written into this file, overriding the compression mode of the
+   *          options
+   * @return this vLog file
+   */
+  public VLogFile setCompressionMode(int compressionMode) {
+    this.compressionMode = compressionMode;
+    return this;
+  }
+
   public VLogFile setReadOnly(boolean readonly) {
     this.readOnly = readonly;
     return this;
@@ -234,65 +1123,53 @@ public class VLogFile implements Closeable {
     return vLogFile;
   }
 
-  public Iterator<VLogEntryDescription> iterator() throws IOException {
-    List<VLogEntryDescription> entryInfos = new ArrayList<>();
+  /**
+   * @return the position of the next entry written into this file, the logical end of the written data
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public long getWritePosition() throws IOException {
+    return getSize();
+  }
 
-    try (RandomAccessInputStream in = new RandomAccessInputStream(vLogFile)) {
-      try (BufferedInputStream input = new BufferedInputStream(in)) {
-        boolean markerFound = false;
-        long position = 0;
-        while (input.available() > 0) {
-          markerFound = true;
-          long start = position;
-          byte[] next = input.readNBytes(4);
-          if (next.length != 4) {
-            markerFound = false;
-          }
-          position += 4;
-          if (!Arrays.equals(VLogDescriptor.DOC_START, next)) {
-            markerFound = false;
-          } else {
-            long startDescription = position;
-            byte[] descriptorArray = input.readNBytes(VLogDescriptor.lengthWithoutStart());
-            if (descriptorArray.length != VLogDescriptor.lengthWithoutStart()) {
-              throw new IOException("error reading description.");
-            }
-            position += descriptorArray.length;
-            VLogDescriptor descriptor = VLogDescriptor.fromBytesWithoutStart(descriptorArray);
-            if (descriptor == null) {
-              throw new IOException("length not ok");
-            } else {
-              // System.out.println("entry found: \r\n");
-              VLogEntryDescription info = new VLogEntryDescription();
-              info.chunkNumber = descriptor.chunkNumber;
-              info.containerName = getName();
-              info.end = position + descriptor.length - 1;
-              info.collection = new String(descriptor.collectionBytes, StandardCharsets.UTF_8);
-              info.hash = descriptor.hash;
-              info.key = descriptor.key;
-              info.length = descriptor.length;
-              info.start = start;
-              info.startBinary = position;
-              info.startDescription = startDescription;
-              entryInfos.add(info);
-
-              long bytesToSkip = descriptor.length;
-              while ((bytesToSkip > 0) && (input.available() > 0)) {
-                long skip = input.skip(bytesToSkip);
-                if (skip < 0) {
-                  throw new IOException("vLog not correctly padded.");
-                }
-                bytesToSkip -= skip;
-                position += skip;
-              }
-            }
-          }
-          if (!markerFound) {
-          }
-        }
+  public VLogEntryIterator iterator() throws IOException {
+    return iterator(0);
+  }
+
+  /**
+   * @param startOffset
+   *          the offset of the first entry
+   * @return a lazy iterator over all entries starting at the offset
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLogEntryIterator iterator(long startOffset) throws IOException {
+    if (readOnly && hasFooter()) {
+      try (FileChannel channel = FileChannel.open(vLogFile.toPath(), StandardOpenOption.READ)) {
+        List<VLogEntryDescription> entries = VLogFooter.readEntries(channel, footerStart, getName());
+        entries.removeIf(entry -> entry.getStart() < startOffset);
+        return new VLogEntryIterator(entries.iterator());
+      } catch (IOException e) {
+        log.warn(String.format("error reading the footer of vlog %s, scanning the entries: %s", internalName,
+            e.getMessage()));
       }
     }
-    return entryInfos.iterator();
+    // behind the write position there is only the preallocated space, behind the data of a sealed file the footer
+    long end = getSize();
+    return new VLogEntryIterator(vLogFile, getName(), startOffset, end);
+  }
+
+  /**
+   * @return a sequential stream of all entries, decoded on demand. The stream should be closed, if it is not consumed
+   *         completely.
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public Stream<VLogEntryDescription> stream() throws IOException {
+    VLogEntryIterator iterator = iterator();
+    Spliterator<VLogEntryDescription> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    return StreamSupport.stream(spliterator, false).onClose(iterator::close);
   }
 
 }
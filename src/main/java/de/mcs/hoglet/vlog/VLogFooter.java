@@ -0,0 +1,196 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import de.mcs.hoglet.HogletDBException;
+import de.mcs.utils.ByteArrayUtils;
+
+/**
+ * The footer of a sealed vLog file, like a hint file. It lists all entries of the file with offset, header length,
+ * collection, key, chunk number, length and hash, so the entries can be read from one compact block instead of
+ * parsing every header of the file. The footer is followed by a trailer with the start of the footer, the count of
+ * entries, the crc of the footer and a magic.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogFooter {
+
+  static final byte[] MAGIC = "@@@HGLFT".getBytes(StandardCharsets.UTF_8);
+  /**
+   * the trailer at the end of the file: 8 bytes footer start + 4 bytes count + 8 bytes crc + magic
+   */
+  static final int TRAILER_LENGTH = 8 + 4 + 8 + MAGIC.length;
+
+  private ByteArrayOutputStream records;
+  private ByteBuffer scratch;
+  private int count;
+
+  VLogFooter() {
+    records = new ByteArrayOutputStream();
+    scratch = ByteBuffer.allocate(10);
+  }
+
+  /**
+   * adding the record of an entry.
+   */
+  void add(long start, int headerLength, byte[] collectionBytes, byte[] key, int chunkNumber, long length,
+      byte[] hash) {
+    putVarLong(start);
+    putVarLong(headerLength);
+    putVarLong(collectionBytes.length);
+    records.write(collectionBytes, 0, collectionBytes.length);
+    putVarLong(key.length);
+    records.write(key, 0, key.length);
+    putVarLong(chunkNumber);
+    putVarLong(length);
+    records.write(hash, 0, hash.length);
+    count++;
+  }
+
+  private void putVarLong(long value) {
+    scratch.clear();
+    ByteArrayUtils.putVarLong(scratch, value);
+    records.write(scratch.array(), 0, scratch.position());
+  }
+
+  /**
+   * @return the count of entries
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @param footerStart
+   *          the position of the footer in the file
+   * @return the footer with the trailer
+   */
+  ByteBuffer getBytes(long footerStart) {
+    byte[] block = records.toByteArray();
+    CRC32 crc32 = new CRC32();
+    crc32.update(block);
+    ByteBuffer buffer = ByteBuffer.allocate(block.length + TRAILER_LENGTH);
+    buffer.put(block);
+    buffer.putLong(footerStart);
+    buffer.putInt(count);
+    buffer.putLong(crc32.getValue());
+    buffer.put(MAGIC);
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * reading the trailer at the end of a file.
+   * 
+   * @param channel
+   *          the channel of the vLog file
+   * @return the start of the footer, <code>-1</code> if the file has no footer
+   * @throws IOException
+   *           if something goes wrong
+   */
+  static long readFooterStart(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size < TRAILER_LENGTH) {
+      return -1;
+    }
+    ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH);
+    while (trailer.hasRemaining()) {
+      if (channel.read(trailer, size - TRAILER_LENGTH + trailer.position()) < 0) {
+        return -1;
+      }
+    }
+    trailer.flip();
+    long footerStart = trailer.getLong();
+    byte[] magic = Arrays.copyOfRange(trailer.array(), TRAILER_LENGTH - MAGIC.length, TRAILER_LENGTH);
+    if (!Arrays.equals(MAGIC, magic) || (footerStart < 0) || (footerStart > size - TRAILER_LENGTH)) {
+      return -1;
+    }
+    return footerStart;
+  }
+
+  /**
+   * reading the entries of the footer of a file.
+   * 
+   * @param channel
+   *          the channel of the vLog file
+   * @param footerStart
+   *          the start of the footer
+   * @param containerName
+   *          the name of the vLog
+   * @return the entries of the file in their order
+   * @throws IOException
+   *           if something goes wrong or the footer is corrupt
+   */
+  static List<VLogEntryDescription> readEntries(FileChannel channel, long footerStart, String containerName)
+      throws IOException {
+    long size = channel.size();
+    ByteBuffer buffer = ByteBuffer.allocate((int) (size - footerStart));
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, footerStart + buffer.position()) < 0) {
+        throw new HogletDBException(String.format("footer of vlog %s is truncated", containerName));
+      }
+    }
+    byte[] block = Arrays.copyOf(buffer.array(), buffer.capacity() - TRAILER_LENGTH);
+    buffer.position(block.length + 8);
+    int count = buffer.getInt();
+    long crc = buffer.getLong();
+    CRC32 crc32 = new CRC32();
+    crc32.update(block);
+    if (crc != crc32.getValue()) {
+      throw new HogletDBException(String.format("footer of vlog %s is corrupt", containerName));
+    }
+
+    List<VLogEntryDescription> entries = new ArrayList<>(count);
+    InputStream in = new ByteArrayInputStream(block);
+    for (int i = 0; i < count; i++) {
+      VLogEntryDescription info = new VLogEntryDescription();
+      info.containerName = containerName;
+      info.start = ByteArrayUtils.readVarLong(in);
+      long headerLength = ByteArrayUtils.readVarLong(in);
+      info.collection = new String(readBytes(in, (int) ByteArrayUtils.readVarLong(in)), StandardCharsets.UTF_8);
+      info.key = readBytes(in, (int) ByteArrayUtils.readVarLong(in));
+      info.chunkNumber = (int) ByteArrayUtils.readVarLong(in);
+      info.length = ByteArrayUtils.readVarLong(in);
+      info.hash = readBytes(in, VLogDescriptor.HASH_LENGTH);
+      info.startDescription = info.start + VLogDescriptor.DOC_START.length;
+      info.startBinary = info.start + headerLength;
+      info.end = info.startBinary + info.length - 1;
+      entries.add(info);
+    }
+    return entries;
+  }
+
+  private static byte[] readBytes(InputStream in, int length) throws IOException {
+    byte[] bytes = in.readNBytes(length);
+    if (bytes.length != length) {
+      throw new IOException("footer record is truncated");
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,439 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Operation;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.vlog.VLogLedger.VLogUsage;
+import de.mcs.utils.RateLimiter;
+import de.mcs.utils.logging.Logger;
+
+/**
+ * Garbage collection of the vLog files like in WiscKey. The sealed vLog files with more than vCntDeleteTreshHold
+ * percent of not referenced bytes are selected by the {@link VLogLedger}. Such a file is scanned and every entry is
+ * checked against the key index, the live entries are copied into the actual vLog, the index is repointed and the old
+ * file is deleted. The collection runs in
+ * the background with a limited rate, so foreground writes are not starved.
+ * <p>
+ * In the same way sealed vLog files older than vCntCompressAge days are recompressed: their live entries are copied
+ * into vLog files written with the stronger codec of the vCntCompressAgeMode, so cold data takes less space, while
+ * the hot data stays fast to read.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogGarbageCollector implements Closeable {
+
+  private Logger log = Logger.getLogger(this.getClass());
+
+  private Options options;
+  private VLogList vLogList;
+  private VLogIndex index;
+  private RateLimiter rateLimiter;
+  private ScheduledExecutorService executor;
+  private volatile boolean closed;
+
+  private AtomicLong runCount = new AtomicLong();
+  private AtomicLong collectedCount = new AtomicLong();
+  private AtomicLong entriesMoved = new AtomicLong();
+  private AtomicLong bytesReclaimed = new AtomicLong();
+  private AtomicLong recompressedCount = new AtomicLong();
+
+  public VLogGarbageCollector(Options options, VLogList vLogList, VLogIndex index) {
+    this.options = options;
+    this.vLogList = vLogList;
+    this.index = index;
+    this.rateLimiter = new RateLimiter(options.getVLogGcMaxBytesPerSecond());
+    this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "hoglet-vlog-gc");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    if (options.getVLogGcInterval() > 0) {
+      executor.scheduleWithFixedDelay(this::runSafe, options.getVLogGcInterval(), options.getVLogGcInterval(),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void runSafe() {
+    try {
+      run();
+      recompress();
+    } catch (IOException e) {
+      log.error("error in vlog garbage collection", e);
+    }
+  }
+
+  /**
+   * one run of the garbage collection over all sealed vLog files. The files are selected by the ledger, the file with
+   * the most garbage first. Only files unknown to the ledger must be scanned.
+   * 
+   * @return count of the deleted vLog files
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public synchronized int run() throws IOException {
+    runCount.incrementAndGet();
+    rateLimiter.reset();
+    VLogLedger ledger = vLogList.getLedger();
+    List<VLogUsage> candidates = new ArrayList<>();
+    for (String name : vLogList.getSealedVLogNames()) {
+      if (ledger.getUsage(name) == null) {
+        scan(name);
+      }
+      VLogUsage usage = ledger.getUsage(name);
+      if ((usage != null) && isGarbage(usage.getTotalBytes(), usage.getDeadBytes())) {
+        candidates.add(usage);
+      }
+    }
+    candidates.sort(Comparator.comparingInt(VLogUsage::getDeadPercent).reversed());
+    int count = 0;
+    for (VLogUsage usage : candidates) {
+      if (closed) {
+        break;
+      }
+      if (collect(usage.getName())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private boolean isGarbage(long totalBytes, long deadBytes) {
+    return (totalBytes == 0) || ((deadBytes * 100L) >= (totalBytes * options.getvCntDeleteTreshHold()));
+  }
+
+  /**
+   * scanning a vLog file, the ledger will be updated with the result.
+   * 
+   * @return the live entries of the vLog file
+   */
+  private List<VLogEntryDescription> scan(String name) throws IOException {
+    VLog vLog = vLogList.getVLog(name);
+    List<VLogEntryDescription> liveEntries = new ArrayList<>();
+    long totalBytes = 0;
+    long deadBytes = 0;
+    try (VLogEntryIterator iterator = vLog.getIterator()) {
+      while (iterator.hasNext()) {
+        VLogEntryDescription entry = iterator.next();
+        long size = entry.getEnd() - entry.getStart() + 1;
+        totalBytes += size;
+        if (isLive(entry)) {
+          liveEntries.add(entry);
+        } else {
+          deadBytes += size;
+        }
+        throttle(entry.getStartBinary() - entry.getStart());
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    vLogList.getLedger().setUsage(name, totalBytes, deadBytes);
+    return liveEntries;
+  }
+
+  /**
+   * collecting one vLog file, if there is really enough garbage in it.
+   */
+  private boolean collect(String name) throws IOException {
+    List<VLogEntryDescription> liveEntries = scan(name);
+    VLogUsage usage = vLogList.getLedger().getUsage(name);
+    long deadBytes = usage.getDeadBytes();
+    if (!isGarbage(usage.getTotalBytes(), deadBytes)) {
+      return false;
+    }
+    log.debug("collecting vlog %s, %d of %d bytes are garbage", name, deadBytes, usage.getTotalBytes());
+    if (!move(name, liveEntries, false)) {
+      return false;
+    }
+    collectedCount.incrementAndGet();
+    bytesReclaimed.addAndGet(deadBytes);
+    return true;
+  }
+
+  /**
+   * one run of the recompression over all sealed vLog files older than vCntCompressAge days. Files already written by
+   * the recompression are skipped.
+   * 
+   * @return count of the recompressed vLog files
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public synchronized int recompress() throws IOException {
+    if (options.getvCntCompressAge() <= 0) {
+      return 0;
+    }
+    rateLimiter.reset();
+    long limit = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(options.getvCntCompressAge());
+    File path = new File(options.getPath());
+    int count = 0;
+    for (String name : vLogList.getSealedVLogNames()) {
+      if (closed) {
+        break;
+      }
+      if (vLogList.getCheckpoint().isCompressed(name) || (new File(path, name).lastModified() > limit)) {
+        continue;
+      }
+      List<VLogEntryDescription> liveEntries = scan(name);
+      VLogUsage usage = vLogList.getLedger().getUsage(name);
+      long deadBytes = usage.getDeadBytes();
+      log.debug("recompressing vlog %s with %d bytes", name, usage.getTotalBytes());
+      if (move(name, liveEntries, true)) {
+        recompressedCount.incrementAndGet();
+        bytesReclaimed.addAndGet(deadBytes);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private VLog getTarget(boolean recompress) throws IOException {
+    return recompress ? vLogList.getRecompressionVLog() : vLogList.getGarbageCollectionVLog();
+  }
+
+  /**
+   * a moved entry, waiting for the repointing of the index.
+   */
+  private static class Relocation {
+    private MapKey key;
+    private VLogEntryInfo oldInfo;
+    private VLogEntryInfo newInfo;
+    // the moved chunks of a chunk list
+    private List<VLogEntryInfo> newChunks = new ArrayList<>();
+
+    private Relocation(MapKey key, VLogEntryInfo oldInfo, VLogEntryInfo newInfo) {
+      this.key = key;
+      this.oldInfo = oldInfo;
+      this.newInfo = newInfo;
+    }
+  }
+
+  /**
+   * moving the live entries of a vLog file into the target vLog, the index is repointed to the new entries. At last
+   * the old file is deleted. The entries are written without a sync, the target files are synced once before the
+   * index is repointed.
+   * 
+   * @return <code>true</code> if the old file has been deleted
+   */
+  private boolean move(String name, List<VLogEntryDescription> liveEntries, boolean recompress) throws IOException {
+    VLog vLog = vLogList.getVLog(name);
+    List<Relocation> relocations = new ArrayList<>();
+    Map<MapKey, List<VLogEntryDescription>> chunks = new LinkedHashMap<>();
+    Set<VLog> targets = new LinkedHashSet<>();
+    for (VLogEntryDescription entry : liveEntries) {
+      if (closed) {
+        return false;
+      }
+      MapKey key = MapKey.buildPrefixedKey(entry.getCollection(), entry.getKey());
+      if (entry.isValueChunk() || entry.isChunkList()) {
+        // the chunk list is written once for all the chunks of the value in this file
+        chunks.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+        continue;
+      }
+      // decompressed, the value is compressed again with the compression mode of the target
+      byte[] value = vLog.getValue(entry.getStart(), entry.getStartBinary(), (int) entry.getBinarySize());
+      VLogEntryInfo newInfo;
+      try (VLog target = getTarget(recompress)) {
+        newInfo = target.put(entry.getCollection(), entry.getKey(), entry.getChunkNumber(), value, false);
+        targets.add(target);
+      }
+      vLogList.getLedger().addLive(newInfo);
+      VLogEntryInfo oldInfo = new VLogEntryInfo().setStart(entry.getStart()).setStartBinary(entry.getStartBinary())
+          .setEnd(entry.getEnd());
+      oldInfo.setvLogName(name);
+      relocations.add(new Relocation(key, oldInfo, newInfo));
+      throttle(2L * value.length);
+    }
+    for (Map.Entry<MapKey, List<VLogEntryDescription>> entry : chunks.entrySet()) {
+      if (closed) {
+        return false;
+      }
+      Relocation relocation = moveChunks(name, vLog, entry.getKey(), entry.getValue(), recompress, targets);
+      if (relocation != null) {
+        relocations.add(relocation);
+      }
+    }
+    // the index must never point to data, which is not on the disk
+    for (VLog target : targets) {
+      target.sync();
+    }
+    for (Relocation relocation : relocations) {
+      if (index.relocate(relocation.key, relocation.oldInfo, relocation.newInfo)) {
+        if (!relocation.newChunks.isEmpty() && !name.equals(relocation.oldInfo.getvLogName())) {
+          // the old chunk list in an other file is garbage now
+          vLogList.getLedger().addDead(relocation.oldInfo);
+        }
+        entriesMoved.incrementAndGet();
+      } else {
+        // overwritten in the meantime
+        vLogList.getLedger().addDead(relocation.newInfo);
+        relocation.newChunks.forEach(vLogList.getLedger()::addDead);
+      }
+    }
+    // the new locations must be persistent before the old file can be removed
+    index.sync();
+    return vLogList.delete(name);
+  }
+
+  /**
+   * moving the chunks of a large value in this file. The chunk list is written once again with the new positions of
+   * all the moved chunks, also if only the chunk list itself is in this file.
+   * 
+   * @return the relocation of the chunk list, <code>null</code> if the value has been overwritten in the meantime
+   */
+  private Relocation moveChunks(String name, VLog vLog, MapKey key, List<VLogEntryDescription> entries,
+      boolean recompress, Set<VLog> targets) throws IOException {
+    VLogEntryInfo listInfo = index.getEntry(key);
+    VLogChunkList chunkList = readChunkList(listInfo);
+    if (chunkList == null) {
+      return null;
+    }
+    Relocation relocation = new Relocation(key, listInfo, null);
+    boolean moved = name.equals(listInfo.getvLogName());
+    for (VLogEntryDescription entry : entries) {
+      int chunkIndex = entry.isValueChunk() ? chunkList.indexOf(name, entry.getStart()) : -1;
+      if (chunkIndex < 0) {
+        continue;
+      }
+      byte[] value = vLog.getValue(entry.getStartBinary(), (int) entry.getBinarySize());
+      VLogEntryInfo newChunk;
+      try (VLog target = getTarget(recompress)) {
+        newChunk = target.put(entry.getCollection(), entry.getKey(), entry.getChunkNumber(), value, false);
+        targets.add(target);
+      }
+      vLogList.getLedger().addLive(newChunk);
+      chunkList.set(chunkIndex, newChunk);
+      relocation.newChunks.add(newChunk);
+      moved = true;
+      throttle(2L * value.length);
+    }
+    if (!moved) {
+      // overwritten in the meantime
+      return null;
+    }
+    VLogEntryDescription first = entries.get(0);
+    try (VLog target = getTarget(recompress)) {
+      relocation.newInfo = target.put(first.getCollection(), first.getKey(), VLogDescriptor.CHUNK_LIST_CHUNK_NUMBER,
+          chunkList.toBytes(), false);
+      targets.add(target);
+    }
+    vLogList.getLedger().addLive(relocation.newInfo);
+    return relocation;
+  }
+
+  private VLogChunkList readChunkList(VLogEntryInfo info) throws IOException {
+    if ((info == null) || !Operation.CHUNKED.equals(info.getOperation())) {
+      return null;
+    }
+    VLog vLog = vLogList.getVLog(info.getvLogName());
+    return VLogChunkList.fromBytes(vLog.getValue(info.getStartBinary(), info.getBinarySize()));
+  }
+
+  private boolean isLive(VLogEntryDescription entry) throws IOException {
+    if (entry.isBatchMarker()) {
+      return false;
+    }
+    // a tombstone is live too, as long as the index points to it
+    VLogEntryInfo info = index.getEntry(MapKey.buildPrefixedKey(entry.getCollection(), entry.getKey()));
+    if (info == null) {
+      return false;
+    }
+    if (entry.isValueChunk()) {
+      // a chunk is live, as long as the actual chunk list contains it
+      VLogChunkList chunkList = readChunkList(info);
+      return (chunkList != null) && (chunkList.indexOf(entry.getContainerName(), entry.getStart()) >= 0);
+    }
+    return entry.getContainerName().equals(info.getvLogName()) && (entry.getStart() == info.getStart());
+  }
+
+  private void throttle(long bytes) throws IOException {
+    try {
+      rateLimiter.acquire(bytes);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("vlog garbage collection interrupted.");
+    }
+  }
+
+  /**
+   * @return count of garbage collection runs
+   */
+  public long getRunCount() {
+    return runCount.get();
+  }
+
+  /**
+   * @return count of deleted vLog files
+   */
+  public long getCollectedCount() {
+    return collectedCount.get();
+  }
+
+  /**
+   * @return count of live entries copied into a new vLog
+   */
+  public long getEntriesMoved() {
+    return entriesMoved.get();
+  }
+
+  /**
+   * @return count of vLog files rewritten by the recompression
+   */
+  public long getRecompressedCount() {
+    return recompressedCount.get();
+  }
+
+  /**
+   * @return bytes of garbage freed by deleting vLog files
+   */
+  public long getBytesReclaimed() {
+    return bytesReclaimed.get();
+  }
+
+  /**
+   * stopping the garbage collection, a running collection will be stopped before the next file.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        log.error("vlog garbage collection not stopped in time.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
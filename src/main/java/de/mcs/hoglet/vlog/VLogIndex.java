@@ -0,0 +1,62 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import java.io.IOException;
+
+import de.mcs.hoglet.MapKey;
+
+/**
+ * The view of the vLog garbage collection onto the key index of the database.
+ * 
+ * @author w.klaas
+ *
+ */
+public interface VLogIndex {
+
+  /**
+   * @param key
+   *          the prefixed key
+   * @return the actual entry of the key, a tombstone or <code>null</code> if the key is unknown
+   * @throws IOException
+   *           if something goes wrong
+   */
+  VLogEntryInfo getEntry(MapKey key) throws IOException;
+
+  /**
+   * repointing a key to the new location of its value. This must be atomic against concurrent writes: if the key
+   * doesn't point to the old location anymore, nothing should be changed.
+   * 
+   * @param key
+   *          the prefixed key
+   * @param oldInfo
+   *          the old location of the value
+   * @param newInfo
+   *          the new location of the value
+   * @return <code>true</code> if the key has been repointed
+   * @throws IOException
+   *           if something goes wrong
+   */
+  boolean relocate(MapKey key, VLogEntryInfo oldInfo, VLogEntryInfo newInfo) throws IOException;
+
+  /**
+   * persisting all changes of the index, after that the old locations are not needed anymore.
+   * 
+   * @throws IOException
+   *           if something goes wrong
+   */
+  void sync() throws IOException;
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.mcs.utils.logging.Logger;
+
+/**
+ * Ledger of the written and the not referenced (dead) bytes of every vLog file. Written bytes are counted on every
+ * put, dead bytes when an entry leaves the index: if it is replaced in the memory table or dropped by a compaction of
+ * the index files. So the garbage collection can select the best files without scanning them and the space
+ * amplification of every file is visible without any I/O. The ledger is saved together with the index files, after a
+ * crash the changes since the last save are missing, the garbage collection corrects this on scanning a file.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogLedger {
+
+  public static final String LEDGER_FILE_NAME = "vlog.ledger";
+
+  /**
+   * the usage of one vLog file.
+   */
+  public static class VLogUsage {
+    private String name;
+    private AtomicLong totalBytes = new AtomicLong();
+    private AtomicLong deadBytes = new AtomicLong();
+
+    VLogUsage(String name) {
+      this.name = name;
+    }
+
+    /**
+     * @return the name of the vLog file
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return all bytes written into this vLog
+     */
+    public long getTotalBytes() {
+      return totalBytes.get();
+    }
+
+    /**
+     * @return bytes of entries, which are not referenced anymore
+     */
+    public long getDeadBytes() {
+      return deadBytes.get();
+    }
+
+    /**
+     * @return bytes of entries, which are still referenced
+     */
+    public long getLiveBytes() {
+      return Math.max(0, getTotalBytes() - getDeadBytes());
+    }
+
+    /**
+     * @return the dead bytes in percent of all bytes
+     */
+    public int getDeadPercent() {
+      long total = getTotalBytes();
+      if (total <= 0) {
+        return 0;
+      }
+      return (int) Math.min(100L, (getDeadBytes() * 100L) / total);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: total %d, dead %d (%d%%)", name, getTotalBytes(), getDeadBytes(), getDeadPercent());
+    }
+  }
+
+  private Logger log = Logger.getLogger(this.getClass());
+  private File ledgerFile;
+  private Map<String, VLogUsage> usages;
+
+  public VLogLedger(File path) {
+    this.ledgerFile = new File(path, LEDGER_FILE_NAME);
+    this.usages = new ConcurrentHashMap<>();
+  }
+
+  private VLogUsage getOrCreate(String name) {
+    return usages.computeIfAbsent(name, VLogUsage::new);
+  }
+
+  private static long getEntrySize(VLogEntryInfo info) {
+    return info.getEnd() - info.getStart() + 1;
+  }
+
+  /**
+   * counting a new written entry.
+   * 
+   * @param info
+   *          the new entry
+   */
+  public void addLive(VLogEntryInfo info) {
+    if (info.getvLogName() != null) {
+      getOrCreate(info.getvLogName()).totalBytes.addAndGet(getEntrySize(info));
+    }
+  }
+
+  /**
+   * counting an entry, which is not referenced by the index anymore.
+   * 
+   * @param info
+   *          the dead entry
+   */
+  public void addDead(VLogEntryInfo info) {
+    if (info.getvLogName() != null) {
+      addDead(info.getvLogName(), getEntrySize(info));
+    }
+  }
+
+  /**
+   * counting dead bytes of a vLog file.
+   * 
+   * @param name
+   *          the name of the vLog file
+   * @param bytes
+   *          count of dead bytes
+   */
+  public void addDead(String name, long bytes) {
+    VLogUsage usage = usages.get(name);
+    // unknown files are already deleted
+    if (usage != null) {
+      usage.deadBytes.addAndGet(bytes);
+    }
+  }
+
+  /**
+   * setting the usage of a vLog file, e.g. after a scan of the file.
+   * 
+   * @param name
+   *          the name of the vLog file
+   * @param totalBytes
+   *          all bytes of the entries
+   * @param deadBytes
+   *          the dead bytes
+   */
+  public void setUsage(String name, long totalBytes, long deadBytes) {
+    VLogUsage usage = getOrCreate(name);
+    usage.totalBytes.set(totalBytes);
+    usage.deadBytes.set(deadBytes);
+  }
+
+  /**
+   * @param name
+   *          the name of the vLog file
+   * @return the usage of the vLog file or <code>null</code> if the file is unknown
+   */
+  public VLogUsage getUsage(String name) {
+    return usages.get(name);
+  }
+
+  /**
+   * @return the usages of all vLog files, sorted by name
+   */
+  public List<VLogUsage> getUsages() {
+    List<VLogUsage> list = new ArrayList<>(usages.values());
+    list.sort((a, b) -> a.getName().compareTo(b.getName()));
+    return list;
+  }
+
+  /**
+   * @param name
+   *          the name of the deleted vLog file
+   */
+  public void remove(String name) {
+    usages.remove(name);
+  }
+
+  /**
+   * loading the ledger, files which are not existing anymore are ignored.
+   * 
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public void load() throws IOException {
+    usages.clear();
+    if (!ledgerFile.exists()) {
+      return;
+    }
+    File path = ledgerFile.getParentFile();
+    for (String line : Files.readAllLines(ledgerFile.toPath(), StandardCharsets.UTF_8)) {
+      String[] parts = line.trim().split(" ");
+      if ((parts.length != 3) || !new File(path, parts[0]).exists()) {
+        continue;
+      }
+      try {
+        setUsage(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+      } catch (NumberFormatException e) {
+        log.warn(String.format("illegal line in vlog ledger: %s", line));
+      }
+    }
+  }
+
+  /**
+   * saving the ledger atomically.
+   * 
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public synchronized void save() throws IOException {
+    StringBuilder b = new StringBuilder();
+    for (VLogUsage usage : getUsages()) {
+      b.append(usage.getName()).append(' ').append(usage.getTotalBytes()).append(' ').append(usage.getDeadBytes())
+          .append('\n');
+    }
+    File tmpFile = new File(ledgerFile.getParentFile(), LEDGER_FILE_NAME + ".tmp");
+    try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+      out.write(b.toString().getBytes(StandardCharsets.UTF_8));
+      out.getFD().sync();
+    }
+    Files.move(tmpFile.toPath(), ledgerFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -17,11 +17,21 @@ package de.mcs.hoglet.vlog;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import de.mcs.hoglet.ChunkEntry;
 import de.mcs.hoglet.HogletDBException;
@@ -33,21 +43,56 @@ import de.mcs.utils.logging.Logger;
 
 public class VLogList {
 
+  private static final Pattern VLOG_PATTERN = Pattern.compile("vlog_\\d+\\.vlog");
+
   private Logger log = Logger.getLogger(this.getClass());
 
   private Options options;
   private Map<String, VLog> vLogMap;
   private ReentrantLock writeLock = new ReentrantLock();
   private ObjectCache<VLog> readMap;
+  private VLogLedger ledger;
+  private VLogCheckpoint checkpoint;
+  private VLogDictionaries dictionaries;
+  private VLogChecksumVerifier checksumVerifier;
+  private AtomicInteger nextNumber;
+  private VLog activeVLog;
+  private VLog gcVLog;
+  private VLog compressVLog;
+  private ExecutorService sealer;
 
   public VLogList(Options options) {
     this.options = options;
-    this.vLogMap = new HashMap<>();
+    // read by all readers without a lock, changed by the rollover, the garbage collection and the recompression
+    this.vLogMap = new ConcurrentHashMap<>();
     this.readMap = new ObjectCache<>(100);
+    this.ledger = new VLogLedger(new File(options.getPath()));
+    this.checkpoint = new VLogCheckpoint(new File(options.getPath()));
+    this.dictionaries = new VLogDictionaries(options);
+    this.checksumVerifier = new VLogChecksumVerifier(options);
+    this.nextNumber = new AtomicInteger(1);
+    this.sealer = Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "hoglet-vlog-seal");
+      thread.setDaemon(true);
+      return thread;
+    });
     init();
   }
 
   private void init() {
+    try {
+      ledger.load();
+      checkpoint.load();
+      dictionaries.load();
+    } catch (IOException e) {
+      log.error("error loading vlog ledger, checkpoint and dictionaries", e);
+    }
+    // numbers are never reused, so a higher number is always a younger file
+    for (String name : getVLogNames()) {
+      nextNumber.set(Math.max(nextNumber.get(), VLogFile.getNumber(name) + 1));
+    }
+    reopenActiveVLog();
+    sealRetiredVLogs();
     readMap.registerObjectListener(new ObjectListener<VLog>() {
 
       @Override
@@ -64,43 +109,242 @@ public class VLogList {
     readMap.startCleanupTask(10000, "vLogReadMap");
   }
 
+  /**
+   * the youngest vLog file of the database writes will be used for appending again, if there is space left.
+   */
+  private void reopenActiveVLog() {
+    List<String> names = getVLogNames();
+    for (int i = names.size() - 1; i >= 0; i--) {
+      String name = names.get(i);
+      if (checkpoint.isSkipped(name)) {
+        continue;
+      }
+      try {
+        VLogFile vLogFile = new VLogFile(options, new File(options.getPath(), name)).setDictionaries(dictionaries)
+            .setChecksumVerifier(checksumVerifier).reopenForAppending();
+        if (vLogFile.isAvailbleForWriting()) {
+          log.debug("reopen vlog file %s for appending at %d", name, vLogFile.getWritePosition());
+          activeVLog = VLog.wrap(vLogFile);
+          vLogMap.put(name, activeVLog);
+        } else {
+          vLogFile.close();
+        }
+      } catch (IOException e) {
+        log.error(String.format("error reopening vlog file %s", name), e);
+      }
+      return;
+    }
+  }
+
+  /**
+   * files, which rolled over before a crash, may be left without a footer and with their preallocated space. They are
+   * cut to the end of their data and sealed now. Only a torn entry at the end is cut off, a file with a corrupt entry
+   * inside stays as it is.
+   */
+  private void sealRetiredVLogs() {
+    String activeName = (activeVLog == null) ? null : activeVLog.getName();
+    for (String name : getVLogNames()) {
+      if (name.equals(activeName)) {
+        continue;
+      }
+      try (VLogFile vLogFile = new VLogFile(options, new File(options.getPath(), name))
+          .setDictionaries(dictionaries).setChecksumVerifier(checksumVerifier)) {
+        if (vLogFile.hasFooter()) {
+          continue;
+        }
+        log.info("sealing vlog file %s", name);
+        vLogFile.reopenForAppending().seal();
+      } catch (IOException e) {
+        log.error(String.format("error sealing vlog file %s", name), e);
+      }
+    }
+  }
+
+  /**
+   * all writes of the database go into one active vLog file at a time, so the order of the entries in the vLog stream
+   * is the order of the writes. The returned vLog is locked for writing and must be closed after the write.
+   * 
+   * @return the active vLog file for writing
+   * @throws IOException
+   *           if something goes wrong
+   */
   public VLog getNextAvailableVLog() throws IOException {
+    return getNextAvailableVLog(1);
+  }
+
+  /**
+   * getting the active vLog file with space for a number of entries, e.g. for a write batch. The returned vLog is
+   * locked for writing and must be closed after the write.
+   * 
+   * @param entries
+   *          count of the entries to write
+   * @return the active vLog file for writing
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLog getNextAvailableVLog(int entries) throws IOException {
+    VLog vLog;
+    VLog outgoing = null;
     writeLock.lock();
     try {
-      VLog vLog = getAvailableVLogForWriting();
-      if (vLog == null) {
-        int i = 0;
-        File file = null;
-        do {
-          i++;
-          file = VLogFile.getFilePathName(new File(options.getPath()), i);
-        } while (file.exists());
-        VLogFile vLogFile = new VLogFile(options, i);
-        vLog = VLog.wrap(vLogFile);
-        vLog.forWriting();
-        synchronized (vLogMap) {
-          vLogMap.put(vLog.getName(), vLog);
-        }
+      if ((activeVLog == null) || !activeVLog.getvLogFile().isAvailbleForWriting(entries)) {
+        outgoing = activeVLog;
+        activeVLog = createVLog();
+      }
+      vLog = activeVLog;
+    } finally {
+      writeLock.unlock();
+    }
+    if (outgoing != null) {
+      retire(outgoing);
+    }
+    vLog.lockForWriting();
+    if (!vLog.getvLogFile().isAvailbleForWriting(entries)) {
+      // filled by the writer before
+      vLog.close();
+      return getNextAvailableVLog(entries);
+    }
+    return vLog;
+  }
+
+  /**
+   * the garbage collection writes into own vLog files, which are never replayed on recovery. The returned vLog is
+   * locked for writing and must be closed after the write.
+   * 
+   * @return the vLog file for the garbage collection
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLog getGarbageCollectionVLog() throws IOException {
+    VLog vLog;
+    VLog outgoing = null;
+    writeLock.lock();
+    try {
+      if ((gcVLog == null) || !gcVLog.getvLogFile().isAvailbleForWriting()) {
+        outgoing = gcVLog;
+        gcVLog = createVLog();
+        checkpoint.addSkipped(gcVLog.getName());
+        checkpoint.save();
       }
-      return vLog;
+      vLog = gcVLog;
     } finally {
       writeLock.unlock();
     }
+    if (outgoing != null) {
+      retire(outgoing);
+    }
+    vLog.lockForWriting();
+    return vLog;
   }
 
-  private VLog getAvailableVLogForWriting() {
-    synchronized (vLogMap) {
-      for (VLog vLog : vLogMap.values()) {
-        if (vLog.isAvailbleForWriting()) {
-          return vLog;
+  /**
+   * the recompression of old vLog files writes into own vLog files with the codec of the vCntCompressAgeMode. Like the
+   * files of the garbage collection they are never replayed and they are marked as compressed, so they are never
+   * recompressed again. The returned vLog is locked for writing and must be closed after the write.
+   * 
+   * @return the vLog file for the recompression
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLog getRecompressionVLog() throws IOException {
+    VLog vLog;
+    VLog outgoing = null;
+    writeLock.lock();
+    try {
+      if ((compressVLog == null) || !compressVLog.getvLogFile().isAvailbleForWriting()) {
+        outgoing = compressVLog;
+        compressVLog = createVLog();
+        compressVLog.getvLogFile().setCompressionMode(options.getvCntCompressAgeMode());
+        checkpoint.addSkipped(compressVLog.getName());
+        checkpoint.addCompressed(compressVLog.getName());
+        checkpoint.save();
+      }
+      vLog = compressVLog;
+    } finally {
+      writeLock.unlock();
+    }
+    if (outgoing != null) {
+      retire(outgoing);
+    }
+    vLog.lockForWriting();
+    return vLog;
+  }
+
+  /**
+   * a vLog file, which will not be written anymore, is sealed at once in the background: synced, cut to the end of the
+   * data and closed with the footer. So the writer, which caused the rollover, doesn't wait for the footer, which is
+   * built from all entries of the file. Writes with a durability other than {@link de.mcs.hoglet.Durability#ALWAYS}
+   * must not depend on the next run of the syncer for this file. Until the footer is written, the entries of the file
+   * are found by scanning their headers. Afterwards the file is only read through the read cache.
+   */
+  private void retire(VLog outgoing) {
+    sealer.execute(() -> {
+      try {
+        // waiting for the last writer of the file
+        outgoing.lockForWriting();
+        try {
+          outgoing.getvLogFile().seal();
+        } finally {
+          outgoing.close();
         }
+        remove(outgoing);
+        outgoing.closeFile();
+      } catch (IOException e) {
+        log.error(String.format("error sealing vlog file %s", outgoing.getName()), e);
       }
+    });
+  }
+
+  private VLog createVLog() throws IOException {
+    VLogFile vLogFile = new VLogFile(options, nextNumber.getAndIncrement()).setDictionaries(dictionaries)
+        .setChecksumVerifier(checksumVerifier);
+    VLog vLog = VLog.wrap(vLogFile);
+    vLogMap.put(vLog.getName(), vLog);
+    return vLog;
+  }
+
+  /**
+   * @return the actual end of the vLog stream of the database writes
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public VLogPosition getHead() throws IOException {
+    writeLock.lock();
+    try {
+      if (activeVLog == null) {
+        // the next created vLog file
+        File file = VLogFile.getFilePathName(new File(options.getPath()), nextNumber.get());
+        return new VLogPosition(file.getName(), 0);
+      }
+      return new VLogPosition(activeVLog.getName(), activeVLog.getvLogFile().getWritePosition());
+    } finally {
+      writeLock.unlock();
     }
-    return null;
+  }
+
+  /**
+   * @return the names of all vLog files, sorted by their number
+   */
+  public List<String> getVLogNames() {
+    List<String> names = new ArrayList<>();
+    File[] files = new File(options.getPath()).listFiles();
+    if (files == null) {
+      return names;
+    }
+    for (File file : files) {
+      if (VLOG_PATTERN.matcher(file.getName()).matches()) {
+        names.add(file.getName());
+      }
+    }
+    names.sort(Comparator.comparingInt(VLogFile::getNumber));
+    return names;
   }
 
   public VLog getVLog(ChunkEntry chunk) throws HogletDBException {
-    String containerName = chunk.getContainerName();
+    return getVLog(chunk.getContainerName());
+  }
+
+  public VLog getVLog(String containerName) throws HogletDBException {
     VLog vLog = vLogMap.get(containerName);
     if (vLog == null) {
       vLog = readMap.getObjectFromExternalKey(containerName);
@@ -110,7 +354,8 @@ public class VLogList {
           throw new HogletDBException(String.format("vlog not found: %s", file.getName()));
         }
         try {
-          VLogFile vLogFile = new VLogFile(options, file).setReadOnly(true);
+          VLogFile vLogFile = new VLogFile(options, file).setReadOnly(true).setDictionaries(dictionaries)
+              .setChecksumVerifier(checksumVerifier);
           vLog = VLog.wrap(vLogFile);
         } catch (IOException e) {
           throw new HogletDBException(e);
@@ -127,24 +372,132 @@ public class VLogList {
   }
 
   public List<VLog> getList() {
-    List<VLog> list = new ArrayList<>();
-    synchronized (vLogMap) {
-      for (VLog vLog : vLogMap.values()) {
-        list.add(vLog);
-      }
+    return new ArrayList<>(vLogMap.values());
+  }
+
+  /**
+   * scanning the entries of all vLog files in parallel, one task per file. The entries of a file are given to the
+   * consumer in their order, but the consumer is called concurrently for different files. Files deleted by the garbage
+   * collection in the meantime are skipped.
+   * 
+   * @param consumer
+   *          the consumer of the entries, must be thread safe
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public void scan(Consumer<VLogEntryDescription> consumer) throws IOException {
+    try {
+      getVLogNames().parallelStream().forEach(name -> {
+        VLog vLog;
+        try {
+          vLog = getVLog(name);
+        } catch (HogletDBException e) {
+          if (!new File(new File(options.getPath()), name).exists()) {
+            return;
+          }
+          throw new UncheckedIOException(e);
+        }
+        try (Stream<VLogEntryDescription> entries = vLog.stream()) {
+          entries.forEach(consumer);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
-    return list;
   }
 
   public void remove(VLog vLog) {
-    synchronized (vLogMap) {
-      if (vLogMap.containsValue(vLog)) {
-        vLogMap.remove(vLog.getName());
+    vLogMap.remove(vLog.getName(), vLog);
+  }
+
+  /**
+   * @return names of all vLog files, which will not be written anymore, sorted by their number
+   */
+  public List<String> getSealedVLogNames() {
+    List<String> names = new ArrayList<>();
+    for (String name : getVLogNames()) {
+      VLog vLog = vLogMap.get(name);
+      if ((vLog == null) || !vLog.getvLogFile().isAvailbleForWriting()) {
+        names.add(name);
+      }
+    }
+    return names;
+  }
+
+  /**
+   * deleting a sealed vLog file. The caller is responsible, that no index entry points into this file anymore.
+   * 
+   * @param name
+   *          the name of the vLog file
+   * @return <code>true</code> if the file has been deleted, <code>false</code> if the vLog is actually in use
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public boolean delete(String name) throws IOException {
+    writeLock.lock();
+    try {
+      VLog vLog = vLogMap.get(name);
+      if (vLog != null) {
+        // a writer is still finishing his last put
+        if (vLog.getvLogFile().isAvailbleForWriting() || !vLog.forWriting()) {
+          return false;
+        }
+        vLogMap.remove(name, vLog);
+        vLog.getvLogFile().setReadOnly(true);
+        vLog.closeFile();
+        vLog.close();
+      }
+      // a closed reader must not be handed out again
+      VLog cached = readMap.removeObject(name);
+      if (cached != null) {
+        cached.closeFile();
       }
+      File file = new File(new File(options.getPath()), name);
+      log.debug("deleting vlog file %s", name);
+      ledger.remove(name);
+      return Files.deleteIfExists(file.toPath());
+    } finally {
+      writeLock.unlock();
     }
   }
 
+  /**
+   * @return the checkpoint for the recovery
+   */
+  public VLogCheckpoint getCheckpoint() {
+    return checkpoint;
+  }
+
+  /**
+   * @return the ledger of the live and dead bytes of the vLog files
+   */
+  public VLogLedger getLedger() {
+    return ledger;
+  }
+
+  /**
+   * @return the compression dictionaries of the collections
+   */
+  public VLogDictionaries getDictionaries() {
+    return dictionaries;
+  }
+
+  /**
+   * @return the verifier of the checksums with the counters of verified values and mismatches
+   */
+  public VLogChecksumVerifier getChecksumVerifier() {
+    return checksumVerifier;
+  }
+
   public void close() {
+    sealer.shutdown();
+    try {
+      sealer.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
     for (VLog vLog : vLogMap.values()) {
       try {
         vLog.closeFile();
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+/**
+ * A position in the stream of the vLog files: the name of the vLog file and the offset in this file.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogPosition {
+
+  private String vLogName;
+  private long offset;
+
+  public VLogPosition(String vLogName, long offset) {
+    this.vLogName = vLogName;
+    this.offset = offset;
+  }
+
+  /**
+   * @return the vLogName
+   */
+  public String getvLogName() {
+    return vLogName;
+  }
+
+  /**
+   * @return the offset
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %d", vLogName, offset);
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.mcs.hoglet.Durability;
+import de.mcs.hoglet.Options;
+import de.mcs.utils.logging.Logger;
+
+/**
+ * Syncing the vLog files in the background. Writes, which are not synced by the writer itself, are registered here.
+ * Depending on the {@link Durability} of the database the written vLog files are synced every syncInterval ms, after
+ * syncBytes written bytes or only on request, e.g. before a memory table is written into an index file.
+ * 
+ * @author w.klaas
+ *
+ */
+public class VLogSyncer implements Closeable {
+
+  private Logger log = Logger.getLogger(this.getClass());
+
+  private Options options;
+  private Set<VLog> dirtyVLogs;
+  private AtomicLong unsyncedBytes = new AtomicLong();
+  private AtomicBoolean syncScheduled = new AtomicBoolean();
+  private AtomicLong syncCount = new AtomicLong();
+  private ScheduledExecutorService executor;
+
+  public VLogSyncer(Options options) {
+    this.options = options;
+    this.dirtyVLogs = ConcurrentHashMap.newKeySet();
+    this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "hoglet-vlog-sync");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if ((getDurability() == Durability.INTERVAL) && (options.getSyncInterval() > 0)) {
+      executor.scheduleWithFixedDelay(this::syncSafe, options.getSyncInterval(), options.getSyncInterval(),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * @return the durability of the database
+   */
+  public Durability getDurability() {
+    return options.getDurability() == null ? Durability.ALWAYS : options.getDurability();
+  }
+
+  /**
+   * registering a write, which is not synced yet.
+   * 
+   * @param vLog
+   *          the written vLog
+   * @param info
+   *          the written entry
+   */
+  public void written(VLog vLog, VLogEntryInfo info) {
+    dirtyVLogs.add(vLog);
+    long bytes = unsyncedBytes.addAndGet(info.getEnd() - info.getStart() + 1);
+    if ((getDurability() == Durability.BYTES) && (bytes >= options.getSyncBytes())
+        && syncScheduled.compareAndSet(false, true)) {
+      executor.execute(this::syncSafe);
+    }
+  }
+
+  private void syncSafe() {
+    try {
+      sync();
+    } catch (IOException e) {
+      log.error("error syncing vlog", e);
+    }
+  }
+
+  /**
+   * syncing all written vLog files.
+   * 
+   * @throws IOException
+   *           if something goes wrong
+   */
+  public synchronized void sync() throws IOException {
+    syncScheduled.set(false);
+    unsyncedBytes.set(0);
+    if (dirtyVLogs.isEmpty()) {
+      return;
+    }
+    for (VLog vLog : dirtyVLogs) {
+      // a write after this point will add the vLog again
+      dirtyVLogs.remove(vLog);
+      vLog.sync();
+    }
+    syncCount.incrementAndGet();
+  }
+
+  /**
+   * @return the count of not synced bytes
+   */
+  public long getUnsyncedBytes() {
+    return unsyncedBytes.get();
+  }
+
+  /**
+   * @return the count of the syncs done
+   */
+  public long getSyncCount() {
+    return syncCount.get();
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    syncSafe();
+  }
+}
@@ -15,7 +15,10 @@
  */
 package de.mcs.utils;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public class ByteArrayUtils {
   public static final int LONGBYTES = 8;
@@ -142,4 +145,52 @@ public class ByteArrayUtils {
     }
     return result;
   }
+
+  /**
+   * the count of bytes of a long value as unsigned varint, 7 bits per byte, the highest bit marks a following byte
+   * @param l long value, not negative
+   * @return count of bytes
+   */
+  public static int varLongSize(long l) {
+    int size = 1;
+    while ((l & ~0x7FL) != 0) {
+      l >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   * writes a long value as unsigned varint into the buffer
+   * @param buffer the buffer
+   * @param l long value, not negative
+   */
+  public static void putVarLong(ByteBuffer buffer, long l) {
+    while ((l & ~0x7FL) != 0) {
+      buffer.put((byte) ((l & 0x7F) | 0x80));
+      l >>>= 7;
+    }
+    buffer.put((byte) l);
+  }
+
+  /**
+   * reads an unsigned varint from the stream
+   * @param in the stream
+   * @return long value
+   * @throws IOException if the stream ends or the varint is longer than a long
+   */
+  public static long readVarLong(InputStream in) throws IOException {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException("end of stream in varint");
+      }
+      result |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IOException("malformed varint");
+  }
 }
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.utils;
+
+/**
+ * Simple limiter for the throughput of background tasks. The caller will be blocked, if he is faster than the
+ * configured rate.
+ * 
+ * @author w.klaas
+ *
+ */
+public class RateLimiter {
+
+  private long bytesPerSecond;
+  private long startTime;
+  private long bytes;
+
+  /**
+   * @param bytesPerSecond
+   *          the maximal rate, 0 or less means unlimited
+   */
+  public RateLimiter(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+    reset();
+  }
+
+  /**
+   * starting a new measuring period, the bytes before are forgotten.
+   */
+  public synchronized void reset() {
+    startTime = System.currentTimeMillis();
+    bytes = 0;
+  }
+
+  /**
+   * acquire the permission for the count of bytes. If the rate is exceeded, the caller will be blocked.
+   * 
+   * @param count
+   *          the count of bytes
+   * @throws InterruptedException
+   *           if the thread is interrupted while waiting
+   */
+  public void acquire(long count) throws InterruptedException {
+    if (bytesPerSecond <= 0) {
+      return;
+    }
+    long waitTime;
+    synchronized (this) {
+      bytes += count;
+      long expected = (bytes * 1000L) / bytesPerSecond;
+      waitTime = expected - (System.currentTimeMillis() - startTime);
+    }
+    if (waitTime > 0) {
+      Thread.sleep(waitTime);
+    }
+  }
+
+  /**
+   * @return the bytesPerSecond
+   */
+  public long getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * 
+ */
+package de.mcs.utils;
+
+import java.util.zip.Checksum;
+
+/**
+ * Streaming implementation of the 64 bit xxHash as {@link Checksum}. Much faster than a crc in software, with good
+ * distribution, but no cryptographic hash.
+ * 
+ * @author w.klaas
+ *
+ */
+public class XXHash64 implements Checksum {
+
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
+  private static final int STRIPE_LENGTH = 32;
+
+  private final long seed;
+  private final byte[] buffer = new byte[STRIPE_LENGTH];
+  private int bufferSize;
+  private long totalLength;
+  private long v1;
+  private long v2;
+  private long v3;
+  private long v4;
+
+  public XXHash64() {
+    this(0);
+  }
+
+  /**
+   * @param seed
+   *          the seed of the hash
+   */
+  public XXHash64(long seed) {
+    this.seed = seed;
+    reset();
+  }
+
+  @Override
+  public void update(int b) {
+    update(new byte[] { (byte) b }, 0, 1);
+  }
+
+  @Override
+  public void update(byte[] b, int off, int len) {
+    totalLength += len;
+    if (bufferSize + len < STRIPE_LENGTH) {
+      System.arraycopy(b, off, buffer, bufferSize, len);
+      bufferSize += len;
+      return;
+    }
+    if (bufferSize > 0) {
+      int fill = STRIPE_LENGTH - bufferSize;
+      System.arraycopy(b, off, buffer, bufferSize, fill);
+      processStripe(buffer, 0);
+      off += fill;
+      len -= fill;
+      bufferSize = 0;
+    }
+    while (len >= STRIPE_LENGTH) {
+      processStripe(b, off);
+      off += STRIPE_LENGTH;
+      len -= STRIPE_LENGTH;
+    }
+    if (len > 0) {
+      System.arraycopy(b, off, buffer, 0, len);
+      bufferSize = len;
+    }
+  }
+
+  public void update(byte[] b) {
+    update(b, 0, b.length);
+  }
+
+  private void processStripe(byte[] b, int off) {
+    v1 = round(v1, getLong(b, off));
+    v2 = round(v2, getLong(b, off + 8));
+    v3 = round(v3, getLong(b, off + 16));
+    v4 = round(v4, getLong(b, off + 24));
+  }
+
+  @Override
+  public long getValue() {
+    long hash;
+    if (totalLength >= STRIPE_LENGTH) {
+      hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+      hash = mergeRound(hash, v1);
+      hash = mergeRound(hash, v2);
+      hash = mergeRound(hash, v3);
+      hash = mergeRound(hash, v4);
+    } else {
+      hash = seed + PRIME5;
+    }
+    hash += totalLength;
+    int i = 0;
+    for (; i + 8 <= bufferSize; i += 8) {
+      hash ^= round(0, getLong(buffer, i));
+      hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+    }
+    if (i + 4 <= bufferSize) {
+      hash ^= (getInt(buffer, i) & 0xFFFFFFFFL) * PRIME1;
+      hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+      i += 4;
+    }
+    for (; i < bufferSize; i++) {
+      hash ^= (buffer[i] & 0xFF) * PRIME5;
+      hash = Long.rotateLeft(hash, 11) * PRIME1;
+    }
+    hash ^= hash >>> 33;
+    hash *= PRIME2;
+    hash ^= hash >>> 29;
+    hash *= PRIME3;
+    hash ^= hash >>> 32;
+    return hash;
+  }
+
+  @Override
+  public void reset() {
+    v1 = seed + PRIME1 + PRIME2;
+    v2 = seed + PRIME2;
+    v3 = seed;
+    v4 = seed - PRIME1;
+    bufferSize = 0;
+    totalLength = 0;
+  }
+
+  private static long round(long acc, long input) {
+    acc += input * PRIME2;
+    acc = Long.rotateLeft(acc, 31);
+    return acc * PRIME1;
+  }
+
+  private static long mergeRound(long acc, long value) {
+    acc ^= round(0, value);
+    return acc * PRIME1 + PRIME4;
+  }
+
+  private static long getLong(byte[] b, int off) {
+    return (b[off] & 0xFFL) | ((b[off + 1] & 0xFFL) << 8) | ((b[off + 2] & 0xFFL) << 16)
+        | ((b[off + 3] & 0xFFL) << 24) | ((b[off + 4] & 0xFFL) << 32) | ((b[off + 5] & 0xFFL) << 40)
+        | ((b[off + 6] & 0xFFL) << 48) | ((b[off + 7] & 0xFFL) << 56);
+  }
+
+  private static int getInt(byte[] b, int off) {
+    return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16) | ((b[off + 3] & 0xFF) << 24);
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * MCS Media Computer Software
+ * Copyright 2019 by Wilfried Klaas
+ * Project: Hoglet
+ * File: TestGroupCommit.java
+ * EMail: W.Klaas@gmx.de
+ * Created: 18.10.2026 wklaa_000
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package de.mcs.hoglet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import de.mcs.hoglet.vlog.VLogCheckpoint;
+import de.mcs.hoglet.vlog.VLogEntryDescription;
+import de.mcs.hoglet.vlog.VLogEntryIterator;
+import de.mcs.hoglet.vlog.VLogFile;
+import de.mcs.utils.Files;
+
+/**
+ * @author wklaa_000
+ *
+ */
+public class TestGroupCommit {
+
+  private static final String DB_FOLDER_PATH = "e:/temp/hogletgroupcommit/";
+  private static final int THREADS = 8;
+  private static final int WRITES = 200;
+
+  @Test
+  public void testBatches() throws Exception {
+    List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+    List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    GroupCommit<Integer> groupCommit = new GroupCommit<>(batch -> {
+      batchSizes.add(batch.size());
+      written.addAll(batch);
+      try {
+        // simulating a slow sync
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, 10, 1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      int thread = t;
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < WRITES; i++) {
+          groupCommit.commit(thread * WRITES + i, 1);
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    assertEquals(THREADS * WRITES, written.size());
+    assertEquals(THREADS * WRITES, groupCommit.getWriteCount());
+    assertEquals(batchSizes.size(), groupCommit.getBatchCount());
+    assertTrue(groupCommit.getBatchCount() < groupCommit.getWriteCount());
+    for (int size : batchSizes) {
+      assertTrue(size <= 10);
+    }
+  }
+
+  @Test
+  public void testError() {
+    GroupCommit<Integer> groupCommit = new GroupCommit<>(batch -> {
+      throw new IOException("disk full");
+    }, 10, 0);
+    assertThrows(IOException.class, () -> groupCommit.commit(1, 1));
+  }
+
+  @Test
+  public void testInterruptedFollower() throws Exception {
+    List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    GroupCommit<Integer> groupCommit = new GroupCommit<>(batch -> {
+      written.addAll(batch);
+      writing.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, 10, 200);
+
+    AtomicReference<Exception> leaderError = new AtomicReference<>();
+    Thread leader = new Thread(() -> {
+      try {
+        groupCommit.commit(1, 1);
+      } catch (Exception e) {
+        leaderError.set(e);
+      }
+    });
+    AtomicReference<Exception> followerError = new AtomicReference<>();
+    AtomicBoolean interrupted = new AtomicBoolean();
+    Thread follower = new Thread(() -> {
+      try {
+        groupCommit.commit(2, 1);
+      } catch (Exception e) {
+        followerError.set(e);
+      }
+      interrupted.set(Thread.currentThread().isInterrupted());
+    });
+    leader.start();
+    Thread.sleep(50);
+    follower.start();
+
+    // the follower is in the batch of the leader, so it must wait for the result
+    writing.await();
+    follower.interrupt();
+    Thread.sleep(50);
+    assertTrue(follower.isAlive());
+    release.countDown();
+    leader.join();
+    follower.join();
+
+    assertNull(leaderError.get());
+    assertNull(followerError.get());
+    assertTrue(interrupted.get());
+    assertEquals(Arrays.asList(1, 2), written);
+    groupCommit.commit(3, 1);
+    assertEquals(Arrays.asList(1, 2, 3), written);
+  }
+
+  @Test
+  public void testDiscardedEntries() throws Exception {
+    File dbFolder = new File(DB_FOLDER_PATH);
+    if (dbFolder.exists()) {
+      Files.remove(dbFolder, true);
+    }
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0).withGroupCommit(true);
+    byte[] key = UUID.randomUUID().toString().getBytes();
+    byte[] failedKey = UUID.randomUUID().toString().getBytes();
+    // simulating a crash after a failed group commit
+    HogletDB crashedDB = new HogletDB(options);
+    crashedDB.put(key, key);
+    crashedDB.put(failedKey, failedKey);
+    VLogCheckpoint checkpoint = new VLogCheckpoint(dbFolder);
+    checkpoint.load();
+    File file = VLogFile.getFilePathName(dbFolder, 1);
+    long failedStart = -1;
+    try (VLogFile vLogFile = new VLogFile(options, file); VLogEntryIterator iterator = vLogFile.iterator()) {
+      while (iterator.hasNext()) {
+        VLogEntryDescription entry = iterator.next();
+        if (Arrays.equals(failedKey, entry.getKey())) {
+          failedStart = entry.getStart();
+          checkpoint.addDiscarded(file.getName(), failedStart);
+        }
+      }
+    }
+    checkpoint.save();
+    checkpoint.load();
+    assertTrue(checkpoint.isDiscarded(file.getName(), failedStart));
+
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      assertTrue(Arrays.equals(key, hogletDB.get(key)));
+      assertFalse(hogletDB.contains(failedKey));
+    }
+    // the discarded entry is before the head now and removed from the checkpoint
+    checkpoint.load();
+    assertFalse(checkpoint.isDiscarded(file.getName(), failedStart));
+  }
+
+  @Test
+  public void testHogletDB() throws Exception {
+    File dbFolder = new File(DB_FOLDER_PATH);
+    if (dbFolder.exists()) {
+      Files.remove(dbFolder, true);
+    }
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withMemTableMaxSize(64 * 1024)
+        .withGroupCommit(true).withGroupCommitMaxWait(1);
+    List<byte[]> keys = Collections.synchronizedList(new ArrayList<>());
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < WRITES; i++) {
+            byte[] key = UUID.randomUUID().toString().getBytes();
+            hogletDB.put(key, key);
+            keys.add(key);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      executor.shutdown();
+      for (byte[] key : keys) {
+        assertTrue(Arrays.equals(key, hogletDB.get(key)));
+      }
+    }
+
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      assertEquals(THREADS * WRITES, keys.size());
+      for (byte[] key : keys) {
+        assertTrue(Arrays.equals(key, hogletDB.get(key)));
+      }
+    }
+  }
+}
@@ -21,22 +21,38 @@
  */
 package de.mcs.hoglet;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import de.mcs.hoglet.compression.DeflateCodec;
 import de.mcs.utils.Files;
 
 /**
@@ -109,8 +125,8 @@ public class TestHogletDB {
     storedValue = hogletDB.get(key);
     assertTrue(Arrays.equals(value, storedValue));
 
-    byte[] remove = hogletDB.remove(key);
-    assertTrue(Arrays.equals(value, remove));
+    assertTrue(hogletDB.remove(key));
+    assertFalse(hogletDB.remove(key));
 
     assertFalse(hogletDB.contains(key));
     assertNull(hogletDB.get(key));
@@ -143,8 +159,8 @@ public class TestHogletDB {
     storedValue = hogletDB.get(collection, key);
     assertTrue(Arrays.equals(value, storedValue));
 
-    byte[] remove = hogletDB.remove(collection, key);
-    assertTrue(Arrays.equals(value, remove));
+    assertTrue(hogletDB.remove(collection, key));
+    assertFalse(hogletDB.remove(collection, key));
 
     assertFalse(hogletDB.contains(collection, key));
     assertNull(hogletDB.get(collection, key));
@@ -174,4 +190,272 @@ public class TestHogletDB {
       hogletDB.remove(collection, key);
     });
   }
+
+  @Test
+  public void testEmptyKey() throws HogletDBException {
+    hogletDB.close();
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH);
+    hogletDB = new HogletDB(options);
+    byte[] value = new byte[1024];
+    new Random().nextBytes(value);
+    hogletDB.put("c", new byte[0], value);
+    assertTrue(Arrays.equals(value, hogletDB.get("c", new byte[0])));
+    hogletDB.put("c", "b".getBytes(), value);
+    hogletDB.close();
+
+    hogletDB = new HogletDB(options);
+    assertTrue(Arrays.equals(value, hogletDB.get("c", new byte[0])));
+    assertTrue(Arrays.equals(value, hogletDB.get("c", "b".getBytes())));
+  }
+
+  @Test
+  public void testReopen() throws HogletDBException {
+    hogletDB.close();
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withMemTableMaxSize(64 * 1024);
+    hogletDB = new HogletDB(options);
+
+    List<byte[]> keys = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      byte[] key = UUID.randomUUID().toString().getBytes();
+      keys.add(key);
+      hogletDB.put(key, key);
+    }
+    for (byte[] key : keys) {
+      assertTrue(Arrays.equals(key, hogletDB.get(key)));
+    }
+    hogletDB.remove(keys.get(0));
+    hogletDB.close();
+
+    hogletDB = new HogletDB(options);
+    assertFalse(hogletDB.contains(keys.get(0)));
+    for (byte[] key : keys.subList(1, keys.size())) {
+      assertTrue(Arrays.equals(key, hogletDB.get(key)));
+    }
+  }
+
+  @Test
+  public void testRecoveryOfSeveralMemoryTables() throws IOException, InterruptedException {
+    hogletDB.close();
+    hogletDB = null;
+    deleteFolder();
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0);
+
+    // simulating a crash, nothing is flushed
+    HogletDB crashedDB = new HogletDB(options);
+    List<byte[]> keys = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      byte[] key = UUID.randomUUID().toString().getBytes();
+      keys.add(key);
+      crashedDB.put(key, key);
+    }
+
+    // the replay fills more than one memory table, crashing again after the flush of the full tables
+    Options smallTables = Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0)
+        .withMemTableMaxSize(100 * 200);
+    HogletDB replayedDB = new HogletDB(smallTables);
+    for (int i = 0; (i < 100) && (dbFolder.listFiles((dir, name) -> name.endsWith(".sst")).length < 2); i++) {
+      Thread.sleep(50);
+    }
+    assertEquals(2, dbFolder.listFiles((dir, name) -> name.endsWith(".sst")).length);
+    // the checkpoint is saved after the index file
+    Thread.sleep(200);
+
+    hogletDB = new HogletDB(options);
+    for (byte[] key : keys) {
+      assertTrue(Arrays.equals(key, hogletDB.get(key)));
+    }
+    assertTrue(Arrays.equals(keys.get(0), replayedDB.get(keys.get(0))));
+  }
+
+  @Test
+  public void testRecovery() throws HogletDBException, IOException, InterruptedException {
+    hogletDB.close();
+    hogletDB = null;
+    deleteFolder();
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0);
+
+    // simulating a crash, the db will not be closed, so the memory table is never written to an index file
+    HogletDB crashedDB = new HogletDB(options);
+    List<byte[]> keys = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      byte[] key = UUID.randomUUID().toString().getBytes();
+      keys.add(key);
+      crashedDB.put(key, key);
+    }
+    crashedDB.remove(keys.get(0));
+
+    hogletDB = new HogletDB(options);
+    assertFalse(hogletDB.contains(keys.get(0)));
+    for (byte[] key : keys.subList(1, keys.size())) {
+      assertTrue(Arrays.equals(key, hogletDB.get(key)));
+    }
+    hogletDB.close();
+
+    // after a clean close everything is in the index files, nothing should be replayed twice
+    hogletDB = new HogletDB(options);
+    assertFalse(hogletDB.contains(keys.get(0)));
+    for (byte[] key : keys.subList(1, keys.size())) {
+      assertTrue(Arrays.equals(key, hogletDB.get(key)));
+    }
+
+    // the partially filled vLog is used again for appending
+    hogletDB.put(keys.get(0), keys.get(0));
+    assertTrue(Arrays.equals(keys.get(0), hogletDB.get(keys.get(0))));
+    assertEquals(1, dbFolder.listFiles((dir, name) -> name.endsWith(".vlog")).length);
+  }
+
+  @Test
+  public void testStreaming() throws IOException, InterruptedException {
+    hogletDB.close();
+    hogletDB = null;
+    deleteFolder();
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0).withChunkSize(1024);
+    String collection = "MCS";
+    byte[] key = UUID.randomUUID().toString().getBytes();
+    byte[] value = new byte[3 * 1024 + 512];
+    new Random().nextBytes(value);
+
+    // simulating a crash, the chunk list is only in the memory table
+    HogletDB crashedDB = new HogletDB(options);
+    assertEquals(value.length, crashedDB.put(collection, key, new ByteArrayInputStream(value)));
+    try (InputStream in = crashedDB.getAsStream(collection, key)) {
+      assertTrue(Arrays.equals(value, in.readAllBytes()));
+    }
+    assertTrue(Arrays.equals(value, crashedDB.get(collection, key)));
+
+    hogletDB = new HogletDB(options);
+    try (InputStream in = hogletDB.getAsStream(collection, key)) {
+      assertTrue(Arrays.equals(value, in.readAllBytes()));
+    }
+    // an empty value and a value without chunks
+    hogletDB.put(key, new ByteArrayInputStream(new byte[0]));
+    assertEquals(0, hogletDB.get(key).length);
+    hogletDB.put(key, value);
+    try (InputStream in = hogletDB.getAsStream(key)) {
+      assertTrue(Arrays.equals(value, in.readAllBytes()));
+    }
+    assertNull(hogletDB.getAsStream(UUID.randomUUID().toString().getBytes()));
+
+    assertTrue(hogletDB.remove(collection, key));
+    assertNull(hogletDB.getAsStream(collection, key));
+  }
+
+  @Test
+  public void testTransferTo() throws IOException, InterruptedException {
+    hogletDB.close();
+    hogletDB = null;
+    deleteFolder();
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0).withChunkSize(1024);
+    hogletDB = new HogletDB(options);
+    String collection = "MCS";
+    byte[] key = UUID.randomUUID().toString().getBytes();
+    byte[] chunkedKey = UUID.randomUUID().toString().getBytes();
+    byte[] value = new byte[3 * 1024 + 512];
+    new Random().nextBytes(value);
+    hogletDB.put(collection, key, value);
+    hogletDB.put(collection, chunkedKey, new ByteArrayInputStream(value));
+
+    File targetFile = new File(DB_FOLDER_PATH, "transfer.bin");
+    for (byte[] myKey : new byte[][] { key, chunkedKey }) {
+      try (FileChannel target = FileChannel.open(targetFile.toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        assertEquals(value.length, hogletDB.get(collection, myKey, target));
+      }
+      assertTrue(Arrays.equals(value, java.nio.file.Files.readAllBytes(targetFile.toPath())));
+    }
+    assertEquals(-1, hogletDB.get(UUID.randomUUID().toString().getBytes(), Channels.newChannel(System.out)));
+
+    // a value can't be transferred partially into a non blocking channel
+    Pipe pipe = Pipe.open();
+    try {
+      pipe.sink().configureBlocking(false);
+      Assertions.assertThrows(HogletDBException.class, () -> hogletDB.get(collection, key, pipe.sink()));
+    } finally {
+      pipe.sink().close();
+      pipe.source().close();
+    }
+  }
+
+  @Test
+  public void testCompression() throws IOException, InterruptedException {
+    hogletDB.close();
+    hogletDB = null;
+    deleteFolder();
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0)
+        .withVCntCompressionMode(DeflateCodec.ID);
+    hogletDB = new HogletDB(options);
+    String collection = "MCS";
+    byte[] key = UUID.randomUUID().toString().getBytes();
+    byte[] value = String.join(",", Collections.nCopies(1000, "hoglet")).getBytes();
+    hogletDB.put(collection, key, value);
+
+    assertTrue(Arrays.equals(value, hogletDB.get(collection, key)));
+    try (InputStream in = hogletDB.getAsStream(collection, key)) {
+      assertTrue(Arrays.equals(value, IOUtils.toByteArray(in)));
+    }
+    assertEquals(ByteBuffer.wrap(value), hogletDB.getAsBuffer(collection, key));
+
+    // the codec is part of the entry, so the value is readable without compression mode
+    hogletDB.close();
+    hogletDB = new HogletDB(Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0));
+    assertTrue(Arrays.equals(value, hogletDB.get(collection, key)));
+  }
+
+
+  @Test
+  public void testMemoryMapped() throws IOException, InterruptedException {
+    hogletDB.close();
+    hogletDB = null;
+    deleteFolder();
+    Options options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0)
+        .withVLogMemoryMapped(true);
+    List<byte[]> keys = new ArrayList<>();
+    try (HogletDB myHogletDB = new HogletDB(options)) {
+      for (int i = 0; i < 100; i++) {
+        byte[] key = UUID.randomUUID().toString().getBytes();
+        keys.add(key);
+        myHogletDB.put(key, key);
+      }
+    }
+    hogletDB = new HogletDB(options);
+    for (byte[] key : keys) {
+      assertTrue(Arrays.equals(key, hogletDB.get(key)));
+      ByteBuffer buffer = hogletDB.getAsBuffer("default", key);
+      assertTrue(buffer.isReadOnly());
+      assertEquals(ByteBuffer.wrap(key), buffer);
+    }
+  }
+
+  @Test
+  public void testAsync() throws Exception {
+    String collection = "async";
+    List<byte[]> keys = new ArrayList<>();
+    List<CompletableFuture<byte[]>> puts = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      byte[] key = UUID.randomUUID().toString().getBytes();
+      keys.add(key);
+      puts.add(hogletDB.putAsync(collection, key, key));
+    }
+    CompletableFuture.allOf(puts.toArray(new CompletableFuture[puts.size()])).get(1, TimeUnit.MINUTES);
+
+    for (byte[] key : keys) {
+      assertTrue(Arrays.equals(key, hogletDB.getAsync(collection, key).get(1, TimeUnit.MINUTES)));
+    }
+    assertNull(hogletDB.getAsync(collection, "unknown".getBytes()).get(1, TimeUnit.MINUTES));
+
+    assertTrue(hogletDB.removeAsync(collection, keys.get(0)).get(1, TimeUnit.MINUTES));
+    assertFalse(hogletDB.contains(collection, keys.get(0)));
+
+    // pending operations are finished on close, later ones fail
+    byte[] key = UUID.randomUUID().toString().getBytes();
+    CompletableFuture<byte[]> pending = hogletDB.putAsync(key, key);
+    hogletDB.close();
+    assertTrue(pending.isDone());
+    CompletableFuture<byte[]> closed = hogletDB.getAsync(key);
+    ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> closed.get());
+    assertTrue(e.getCause() instanceof HogletDBException);
+
+    hogletDB = new HogletDB(Options.defaultOptions().withPath(DB_FOLDER_PATH));
+    assertTrue(Arrays.equals(key, hogletDB.get(key)));
+  }
 }
@@ -0,0 +1,117 @@
+/**
+ * MCS Media Computer Software
+ * Copyright 2019 by Wilfried Klaas
+ * Project: Hoglet
+ * File: TestWriteBatch.java
+ * EMail: W.Klaas@gmx.de
+ * Created: 18.10.2026 wklaa_000
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ */
+package de.mcs.hoglet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.mcs.utils.Files;
+
+/**
+ * @author wklaa_000
+ *
+ */
+public class TestWriteBatch {
+
+  private static final String DB_FOLDER_PATH = "e:/temp/hogletwritebatch/";
+  private static final String COLLECTION = "MCS";
+  private static final int MAX_KEYS = 100;
+  private Options options;
+
+  @BeforeEach
+  public void before() throws IOException, InterruptedException {
+    File dbFolder = new File(DB_FOLDER_PATH);
+    if (dbFolder.exists()) {
+      Files.remove(dbFolder, true);
+      Thread.sleep(100);
+    }
+    options = Options.defaultOptions().withPath(DB_FOLDER_PATH).withVLogGcInterval(0);
+  }
+
+  private byte[] key(int i) {
+    return String.format("key%06d", i).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void checkValues(HogletDB hogletDB) throws HogletDBException {
+    for (int i = 0; i < MAX_KEYS; i++) {
+      if (i % 10 == 0) {
+        assertNull(hogletDB.get(key(i)));
+      } else {
+        assertArrayEquals(key(i), hogletDB.get(key(i)));
+      }
+      assertArrayEquals(key(i), hogletDB.get(COLLECTION, key(i)));
+    }
+  }
+
+  private WriteBatch createBatch() {
+    WriteBatch batch = new WriteBatch();
+    for (int i = 0; i < MAX_KEYS; i++) {
+      batch.put(key(i), key(i));
+      batch.put(COLLECTION, key(i), key(i));
+      if (i % 10 == 0) {
+        batch.remove(key(i));
+      }
+    }
+    return batch;
+  }
+
+  @Test
+  public void testWriteBatch() throws HogletDBException {
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      hogletDB.write(createBatch());
+      checkValues(hogletDB);
+    }
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      checkValues(hogletDB);
+    }
+  }
+
+  @Test
+  public void testIllegalCollection() throws HogletDBException {
+    WriteBatch batch = new WriteBatch().put(key(1), key(1)).put("MCS" + (char) 0, key(2), key(2));
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      assertThrows(IllegalArgumentException.class, () -> hogletDB.write(batch));
+      // nothing of the batch is written
+      assertNull(hogletDB.get(key(1)));
+    }
+  }
+
+  @Test
+  public void testRecovery() throws IOException {
+    // simulating a crash, the db will not be closed
+    HogletDB crashedDB = new HogletDB(options);
+    crashedDB.write(createBatch(), Durability.OS);
+    crashedDB.getVLogSyncer().sync();
+
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      checkValues(hogletDB);
+    }
+  }
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.compaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Operation;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.sst.SSTIdentity;
+import de.mcs.hoglet.sst.SSTableList;
+import de.mcs.hoglet.sst.SSTableReader;
+import de.mcs.hoglet.sst.SSTableWriter;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+import de.mcs.utils.Files;
+
+/**
+ * @author w.klaas
+ *
+ */
+public class TestCompaction {
+
+  private static final String COLLECTION = "EASY";
+  private static final String SST_PATH = "e:/temp/hoglet/compaction";
+  private static final int MAX_KEYS = 2000;
+  private Options options;
+
+  @BeforeEach
+  public void before() throws IOException, InterruptedException {
+    File filePath = new File(SST_PATH);
+    if (filePath.exists()) {
+      Files.remove(filePath, true);
+      Thread.sleep(100);
+    }
+    filePath.mkdirs();
+    options = Options.defaultOptions().withPath(SST_PATH).withLevelZeroMaxFiles(4).withLevelBaseSize(64 * 1024)
+        .withLevelSizeMultiplier(4).withSstMaxFileSize(16 * 1024);
+  }
+
+  private MapKey key(int i) {
+    return MapKey.buildPrefixedKey(COLLECTION, String.format("key%06d", i).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * writing a level 0 file, every key gets the round as start value, so the newest value is known.
+   */
+  private void flush(SSTableList list, int round, int from, int to) throws IOException {
+    SSTIdentity identity = list.newIdentity(0);
+    try (SSTableWriter writer = new SSTableWriter(options, identity, identity.getNumber())) {
+      for (int i = from; i < to; i++) {
+        writer.write(key(i), new VLogEntryInfo().setStart(round));
+      }
+    }
+    list.add(new SSTableReader(identity.getFile(new File(SST_PATH))));
+  }
+
+  private void compactAll(CompactionEngine engine, SSTableList list) throws IOException {
+    Compaction compaction;
+    while ((compaction = engine.getStrategy().pickCompaction(list, new HashSet<>())) != null) {
+      engine.compact(compaction);
+    }
+  }
+
+  @Test
+  public void testMergingIterator() {
+    List<List<Entry<MapKey, VLogEntryInfo>>> sources = new ArrayList<>();
+    for (int source = 0; source < 3; source++) {
+      List<Entry<MapKey, VLogEntryInfo>> list = new ArrayList<>();
+      for (int i = 0; i < 100; i += 3 - source) {
+        list.add(new SimpleImmutableEntry<>(key(i), new VLogEntryInfo().setStart(source)));
+      }
+      sources.add(list);
+    }
+    MergingIterator iterator = new MergingIterator(sources);
+    MapKey last = null;
+    int count = 0;
+    while (iterator.hasNext()) {
+      Entry<MapKey, VLogEntryInfo> entry = iterator.next();
+      if (last != null) {
+        assertTrue(last.compareTo(entry.getKey()) < 0);
+      }
+      last = entry.getKey();
+      // the first source is the newest one, so its values have to win
+      count++;
+      if (entry.getKey().equals(key(0))) {
+        assertEquals(0, entry.getValue().getStart());
+      }
+      if (entry.getKey().equals(key(2))) {
+        assertEquals(1, entry.getValue().getStart());
+      }
+      if (entry.getKey().equals(key(1))) {
+        assertEquals(2, entry.getValue().getStart());
+      }
+    }
+    assertEquals(100, count);
+    assertTrue(iterator.getDroppedCount() > 0);
+  }
+
+  @Test
+  public void testLeveledCompaction() throws IOException {
+    int rounds = 20;
+    try (SSTableList list = new SSTableList(options)) {
+      CompactionEngine engine = new CompactionEngine(options, list);
+      try {
+        for (int round = 1; round <= rounds; round++) {
+          // every round overwrites a part of the keys
+          int from = (round * 397) % MAX_KEYS;
+          flush(list, round, from, Math.min(MAX_KEYS, from + 500));
+          compactAll(engine, list);
+          assertTrue(list.getLevel(0).size() < options.getLevelZeroMaxFiles());
+        }
+        CompactionStatistics statistics = engine.getStatistics();
+        assertTrue(statistics.getCompactionCount() > 0);
+        assertTrue(statistics.getEntriesDropped() > 0);
+        assertTrue(list.getLevelCount() > 2);
+
+        checkNewestValues(list, rounds);
+
+        // levels >= 1 must not overlap
+        for (int level = 1; level < list.getLevelCount(); level++) {
+          List<SSTableReader> files = list.getLevel(level);
+          for (SSTableReader a : files) {
+            for (SSTableReader b : files) {
+              if (a != b) {
+                assertTrue((a.getMaxKey().compareTo(b.getMinKey()) < 0) || (b.getMaxKey().compareTo(a.getMinKey()) < 0));
+              }
+            }
+          }
+        }
+      } finally {
+        engine.close();
+      }
+    }
+  }
+
+  private void checkNewestValues(SSTableList list, int rounds) throws IOException {
+    TreeMap<MapKey, Long> expected = new TreeMap<>();
+    for (int round = 1; round <= rounds; round++) {
+      int from = (round * 397) % MAX_KEYS;
+      for (int i = from; i < Math.min(MAX_KEYS, from + 500); i++) {
+        expected.put(key(i), (long) round);
+      }
+    }
+    for (Entry<MapKey, Long> entry : expected.entrySet()) {
+      VLogEntryInfo info = list.get(entry.getKey());
+      assertNotNull(info);
+      assertEquals(entry.getValue().longValue(), info.getStart());
+    }
+  }
+
+  @Test
+  public void testTieredCompaction() throws IOException {
+    options.withCompactionStyle(CompactionStyle.TIERED);
+    int rounds = 20;
+    try (SSTableList list = new SSTableList(options)) {
+      CompactionEngine engine = new CompactionEngine(options, list);
+      try {
+        assertTrue(engine.getStrategy() instanceof TieredCompactionStrategy);
+        for (int round = 1; round <= rounds; round++) {
+          int from = (round * 397) % MAX_KEYS;
+          flush(list, round, from, Math.min(MAX_KEYS, from + 500));
+          compactAll(engine, list);
+          assertTrue(list.getLevel(0).size() < options.getLevelZeroMaxFiles());
+        }
+        // everything stays in level 0
+        assertEquals(1, list.getLevelCount());
+        CompactionStatistics statistics = engine.getStatistics();
+        assertTrue(statistics.getCompactionCount() > 0);
+        assertTrue(statistics.getEntriesDropped() > 0);
+        checkNewestValues(list, rounds);
+      } finally {
+        engine.close();
+      }
+    }
+    // reopen must give the same order of the runs
+    try (SSTableList list = new SSTableList(options)) {
+      checkNewestValues(list, rounds);
+    }
+  }
+
+  @Test
+  public void testTombstones() throws IOException {
+    try (SSTableList list = new SSTableList(options)) {
+      CompactionEngine engine = new CompactionEngine(options, list);
+      try {
+        // an old file in level 2 with the keys 50..149
+        SSTIdentity identity = list.newIdentity(2);
+        try (SSTableWriter writer = new SSTableWriter(options, identity, identity.getNumber())) {
+          for (int i = 50; i < 150; i++) {
+            writer.write(key(i), new VLogEntryInfo().setStart(1));
+          }
+        }
+        list.add(new SSTableReader(identity.getFile(new File(SST_PATH))));
+        // deleting the keys 0..99
+        identity = list.newIdentity(0);
+        try (SSTableWriter writer = new SSTableWriter(options, identity, identity.getNumber())) {
+          for (int i = 0; i < 100; i++) {
+            writer.write(key(i), new VLogEntryInfo().setOperation(Operation.DELETE));
+          }
+        }
+        list.add(new SSTableReader(identity.getFile(new File(SST_PATH))));
+
+        engine.compact(new Compaction(list.getLevel(0), 1));
+        // the tombstones of the keys 0..49 are obsolete, the others still hide the entries in level 2
+        assertEquals(50, engine.getStatistics().getTombstonesDropped());
+        assertEquals(1, list.getLevel(1).size());
+        assertEquals(50, list.getLevel(1).get(0).getEntryCount());
+        for (int i = 0; i < 50; i++) {
+          assertNull(list.get(key(i)));
+        }
+        for (int i = 50; i < 100; i++) {
+          assertTrue(list.get(key(i)).isTombstone());
+        }
+        assertEquals(1, list.get(key(120)).getStart());
+      } finally {
+        engine.close();
+      }
+    }
+  }
+
+  @Test
+  public void testRedoCommit() throws IOException {
+    File path = new File(SST_PATH);
+    try (SSTableList list = new SSTableList(options)) {
+      flush(list, 1, 0, 100);
+      flush(list, 2, 50, 150);
+    }
+    // simulating a crash after writing the commit file
+    SSTIdentity identity = new SSTIdentity(1, 100);
+    SSTableWriter writer = new SSTableWriter(options, identity, 2);
+    for (int i = 0; i < 150; i++) {
+      writer.write(key(i), new VLogEntryInfo().setStart(i < 50 ? 1 : 2));
+    }
+    writer.finish();
+    String commit = "input sst_00_000001.sst\noutput " + identity.getFileName() + "\n";
+    java.nio.file.Files.write(new File(path, "compaction_000100.log").toPath(), commit.getBytes(StandardCharsets.UTF_8));
+
+    try (SSTableList list = new SSTableList(options)) {
+      assertFalse(new File(path, "compaction_000100.log").exists());
+      assertFalse(new File(path, "sst_00_000001.sst").exists());
+      assertTrue(identity.getFile(path).exists());
+      assertEquals(1, list.getLevel(0).size());
+      assertEquals(1, list.getLevel(1).size());
+      assertEquals(2, list.get(key(60)).getStart());
+      assertEquals(1, list.get(key(10)).getStart());
+    }
+    assertTrue(Arrays.asList(path.list()).contains(identity.getFileName()));
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.memorytable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Operation;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+import de.mcs.utils.QueuedIDGenerator;
+
+/**
+ * @author w.klaas
+ *
+ */
+public class TestSkipListMemoryTable {
+
+  private static final String COLLECTION = "EASY";
+  private QueuedIDGenerator ids;
+  private Options options;
+
+  @BeforeEach
+  public void before() {
+    ids = new QueuedIDGenerator(1000);
+    options = Options.defaultOptions().withMemTableMaxSize(1024 * 1024);
+  }
+
+  @Test
+  public void testAddGet() {
+    MemoryTable table = new SkipListMemoryTable(options);
+    MapKey key = MapKey.buildPrefixedKey(COLLECTION, ids.getByteID());
+    assertNull(table.get(key));
+    assertFalse(table.containsKey(key));
+
+    VLogEntryInfo info = new VLogEntryInfo().setStart(0).setStartBinary(100).setEnd(199);
+    assertNull(table.add(key, info));
+    assertTrue(table.containsKey(key));
+    assertEquals(info, table.get(key));
+    assertEquals(1, table.size());
+    long byteSize = table.getByteSize();
+
+    // overwriting doesn't change the size
+    VLogEntryInfo newInfo = new VLogEntryInfo().setStart(200).setStartBinary(300).setEnd(399);
+    assertEquals(info, table.add(key, newInfo));
+    assertEquals(newInfo, table.get(MapKey.buildPrefixedKey(COLLECTION, key.getKeyWithoutCollection())));
+    assertEquals(1, table.size());
+    assertEquals(byteSize, table.getByteSize());
+
+    table.add(key, new VLogEntryInfo().setOperation(Operation.DELETE));
+    assertTrue(table.containsKey(key));
+    assertTrue(table.get(key).isTombstone());
+  }
+
+  @Test
+  public void testCollectionsAreSeparated() {
+    MemoryTable table = new SkipListMemoryTable(options);
+    byte[] id = ids.getByteID();
+    table.add(MapKey.buildPrefixedKey(COLLECTION, id), new VLogEntryInfo().setStart(1));
+    assertNull(table.get(MapKey.buildPrefixedKey("MCS", id)));
+    assertEquals(COLLECTION, MapKey.buildPrefixedKey(COLLECTION, id).getCollection());
+  }
+
+  @Test
+  public void testSortedIteration() {
+    MemoryTable table = new SkipListMemoryTable(options);
+    for (int i = 0; i < 1000; i++) {
+      table.add(MapKey.buildPrefixedKey(COLLECTION, ids.getByteID()), new VLogEntryInfo().setStart(i));
+    }
+    MapKey last = null;
+    int count = 0;
+    for (Entry<MapKey, VLogEntryInfo> entry : table) {
+      assertNotNull(entry.getValue());
+      if (last != null) {
+        assertTrue(last.compareTo(entry.getKey()) < 0);
+      }
+      last = entry.getKey();
+      count++;
+    }
+    assertEquals(1000, count);
+  }
+
+  @Test
+  public void testByteBudget() {
+    MemoryTable table = new SkipListMemoryTable(options);
+    int count = 0;
+    while (!table.isFull()) {
+      table.add(MapKey.buildPrefixedKey(COLLECTION, ids.getByteID()), new VLogEntryInfo());
+      count++;
+    }
+    assertTrue(table.getByteSize() >= options.getMemTableMaxSize());
+    assertEquals(count, table.size());
+  }
+
+  @Test
+  public void testConcurrentAdd() throws InterruptedException {
+    MemoryTable table = new SkipListMemoryTable(options.withMemTableMaxSize(Long.MAX_VALUE));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<MapKey> keys = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      keys.add(MapKey.buildPrefixedKey(COLLECTION, ids.getByteID()));
+    }
+    for (MapKey key : keys) {
+      executor.execute(() -> table.add(key, new VLogEntryInfo()));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    assertEquals(keys.size(), table.size());
+    for (MapKey key : keys) {
+      assertTrue(table.containsKey(key));
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.sst;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import de.mcs.hoglet.HogletDBException;
+import de.mcs.hoglet.MapKey;
+import de.mcs.hoglet.Operation;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.vlog.VLogEntryInfo;
+import de.mcs.utils.ByteArrayUtils;
+import de.mcs.utils.Files;
+import de.mcs.utils.QueuedIDGenerator;
+
+/**
+ * @author w.klaas
+ *
+ */
+public class TestSSTable {
+
+  private static final String COLLECTION = "EASY";
+  private static final String SST_PATH = "e:/temp/hoglet/sst";
+  private static final int MAX_KEYS = 10000;
+  private static Options options;
+  private static QueuedIDGenerator ids;
+
+  @BeforeAll
+  public static void beforeAll() throws IOException, InterruptedException {
+    File filePath = new File(SST_PATH);
+    if (filePath.exists()) {
+      Files.remove(filePath, true);
+      Thread.sleep(100);
+    }
+    filePath.mkdirs();
+    options = Options.defaultOptions().withPath(SST_PATH);
+    ids = new QueuedIDGenerator(1000);
+  }
+
+  private TreeMap<MapKey, VLogEntryInfo> buildEntries() {
+    TreeMap<MapKey, VLogEntryInfo> entries = new TreeMap<>();
+    for (int i = 0; i < MAX_KEYS; i++) {
+      MapKey key = MapKey.buildPrefixedKey(COLLECTION, ids.getByteID());
+      VLogEntryInfo info = new VLogEntryInfo().setStart(i * 1000L).setStartBinary(i * 1000L + 40)
+          .setEnd(i * 1000L + 999).setHash(ByteArrayUtils.longToBytes(i));
+      info.setvLogName("vlog_0001.vlog");
+      if ((i % 10) == 0) {
+        info.setOperation(Operation.DELETE);
+      }
+      entries.put(key, info);
+    }
+    return entries;
+  }
+
+  private File writeFile(SSTIdentity identity, TreeMap<MapKey, VLogEntryInfo> entries) throws IOException {
+    try (SSTableWriter writer = new SSTableWriter(options, identity, identity.getNumber())) {
+      for (Entry<MapKey, VLogEntryInfo> entry : entries.entrySet()) {
+        writer.write(entry.getKey(), entry.getValue());
+      }
+      assertEquals(entries.size(), writer.getEntryCount());
+      return writer.getFile();
+    }
+  }
+
+  @Test
+  public void testWriteAndGet() throws IOException {
+    TreeMap<MapKey, VLogEntryInfo> entries = buildEntries();
+    File file = writeFile(new SSTIdentity(0, 1), entries);
+    assertTrue(file.exists());
+
+    try (SSTableReader reader = new SSTableReader(file)) {
+      assertEquals(entries.size(), reader.getEntryCount());
+      assertEquals(0, reader.getIdentity().getLevel());
+      assertEquals(1, reader.getSequence());
+      assertEquals(entries.firstKey(), reader.getMinKey());
+      assertEquals(entries.lastKey(), reader.getMaxKey());
+
+      for (Entry<MapKey, VLogEntryInfo> entry : entries.entrySet()) {
+        VLogEntryInfo expected = entry.getValue();
+        VLogEntryInfo info = reader.get(entry.getKey());
+        assertNotNull(info);
+        assertEquals(expected.getvLogName(), info.getvLogName());
+        assertEquals(expected.getStart(), info.getStart());
+        assertEquals(expected.getStartBinary(), info.getStartBinary());
+        assertEquals(expected.getEnd(), info.getEnd());
+        assertEquals(expected.getOperation(), info.getOperation());
+        assertTrue(Arrays.equals(expected.getHash(), info.getHash()));
+      }
+
+      for (int i = 0; i < 1000; i++) {
+        assertNull(reader.get(MapKey.buildPrefixedKey(COLLECTION, ids.getByteID())));
+      }
+    }
+  }
+
+  @Test
+  public void testIterator() throws IOException {
+    TreeMap<MapKey, VLogEntryInfo> entries = buildEntries();
+    File file = writeFile(new SSTIdentity(0, 2), entries);
+    try (SSTableReader reader = new SSTableReader(file)) {
+      Iterator<MapKey> keys = entries.keySet().iterator();
+      int count = 0;
+      for (Entry<MapKey, VLogEntryInfo> entry : reader) {
+        assertEquals(keys.next(), entry.getKey());
+        count++;
+      }
+      assertFalse(keys.hasNext());
+      assertEquals(entries.size(), count);
+    }
+  }
+
+  @Test
+  public void testEmptyFile() throws IOException {
+    File file = writeFile(new SSTIdentity(0, 3), new TreeMap<>());
+    try (SSTableReader reader = new SSTableReader(file)) {
+      assertEquals(0, reader.getEntryCount());
+      assertNull(reader.getMinKey());
+      assertNull(reader.get(MapKey.buildPrefixedKey(COLLECTION, ids.getByteID())));
+      assertFalse(reader.iterator().hasNext());
+    }
+  }
+
+  @Test
+  public void testWrongOrder() throws IOException {
+    SSTableWriter writer = new SSTableWriter(options, new SSTIdentity(0, 4), 4);
+    try {
+      writer.write(MapKey.buildPrefixedKey(COLLECTION, new byte[] { 2 }), new VLogEntryInfo());
+      Assertions.assertThrows(HogletDBException.class, () -> {
+        writer.write(MapKey.buildPrefixedKey(COLLECTION, new byte[] { 1 }), new VLogEntryInfo());
+      });
+    } finally {
+      writer.abort();
+    }
+    assertFalse(writer.getFile().exists());
+  }
+
+  @Test
+  public void testSSTableList() throws IOException {
+    TreeMap<MapKey, VLogEntryInfo> older = buildEntries();
+    TreeMap<MapKey, VLogEntryInfo> newer = new TreeMap<>();
+    for (MapKey key : older.keySet()) {
+      newer.put(key, new VLogEntryInfo().setStart(4711));
+    }
+    writeFile(new SSTIdentity(0, 10), older);
+    writeFile(new SSTIdentity(0, 11), newer);
+
+    try (SSTableList list = new SSTableList(options)) {
+      assertTrue(list.getFileCount() >= 2);
+      assertEquals(11, list.getLevel(0).get(0).getSequence());
+      for (MapKey key : older.keySet()) {
+        assertEquals(4711, list.get(key).getStart());
+      }
+      assertTrue(list.newIdentity(0).getNumber() > 11);
+    }
+  }
+}
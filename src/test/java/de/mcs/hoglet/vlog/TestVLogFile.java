@@ -27,6 +27,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
 import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -36,6 +40,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.AfterAll;
@@ -46,14 +52,19 @@ import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import de.mcs.hoglet.ChecksumType;
+import de.mcs.hoglet.ChecksumVerification;
 import de.mcs.hoglet.HogletDBException;
 import de.mcs.hoglet.Options;
+import de.mcs.hoglet.WriteBatch;
+import de.mcs.hoglet.compression.DeflateCodec;
 import de.mcs.jmeasurement.JMConfig;
 import de.mcs.jmeasurement.MeasureFactory;
 import de.mcs.jmeasurement.Monitor;
 import de.mcs.utils.ByteArrayUtils;
 import de.mcs.utils.Files;
 import de.mcs.utils.QueuedIDGenerator;
+import de.mcs.utils.XXHash64;
 
 /**
  * @author w.klaas
@@ -221,7 +232,7 @@ class TestVLogFile {
         VLogEntryInfo vLogEntryInfo = myMap.get(key);
         assertNotNull(vLogEntryInfo);
         assertEquals(vLogEntryInfo.end, type.end);
-        assertTrue(Arrays.equals(vLogEntryInfo.hash, type.hash));
+        assertTrue(Arrays.equals(vLogEntryInfo.getHash(), type.hash));
         assertEquals(vLogEntryInfo.start, type.start);
         assertEquals(vLogEntryInfo.startBinary, type.startBinary);
         assertEquals(1, type.chunkNumber);
@@ -274,7 +285,7 @@ class TestVLogFile {
     VLogDescriptor descriptor = VLogDescriptor.fromBytes(out.toByteArray());
     assertEquals(info.getBinarySize(), descriptor.length);
     assertEquals(buffer.length, descriptor.length);
-    assertEquals(ByteArrayUtils.bytesAsHexString(info.hash), ByteArrayUtils.bytesAsHexString(descriptor.hash));
+    assertEquals(ByteArrayUtils.bytesAsHexString(info.getHash()), ByteArrayUtils.bytesAsHexString(descriptor.hash));
     assertEquals(ByteArrayUtils.bytesAsHexString(byteId), ByteArrayUtils.bytesAsHexString(descriptor.key));
     assertEquals(FAMILY, new String(descriptor.collectionBytes, StandardCharsets.UTF_8));
     assertEquals(1, descriptor.chunkNumber);
@@ -290,7 +301,8 @@ class TestVLogFile {
     assertNotNull(description);
     assertEquals(info.getBinarySize(), descriptor.getLength());
     assertEquals(buffer.length, descriptor.getLength());
-    assertEquals(ByteArrayUtils.bytesAsHexString(info.hash), ByteArrayUtils.bytesAsHexString(descriptor.getHash()));
+    assertEquals(ByteArrayUtils.bytesAsHexString(info.getHash()),
+        ByteArrayUtils.bytesAsHexString(descriptor.getHash()));
     assertEquals(ByteArrayUtils.bytesAsHexString(byteId), ByteArrayUtils.bytesAsHexString(descriptor.getKey()));
     assertEquals(FAMILY, new String(descriptor.collectionBytes, StandardCharsets.UTF_8));
     assertEquals(1, descriptor.getChunkNumber());
@@ -418,6 +430,764 @@ class TestVLogFile {
 
   }
 
+  @Test
+  public void testTombstone() throws IOException, InterruptedException {
+    System.out.println("test tombstone");
+    int fileIndex = 6;
+    deleteLogFile(fileIndex);
+    byte[] byteID = ids.getByteID();
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex)) {
+      VLogEntryInfo info = vLogFile.put(FAMILY, byteID, 1, new byte[128]);
+      assertFalse(info.isTombstone());
+      info = vLogFile.putTombstone(FAMILY, byteID);
+      assertTrue(info.isTombstone());
+      assertEquals(0, info.getBinarySize());
+    }
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex)) {
+      List<VLogEntryDescription> list = new ArrayList<>();
+      for (Iterator<VLogEntryDescription> iterator = vLogFile.iterator(); iterator.hasNext();) {
+        list.add(iterator.next());
+      }
+      assertEquals(2, list.size());
+      assertFalse(list.get(0).isTombstone());
+      assertTrue(list.get(1).isTombstone());
+      assertEquals(0, list.get(1).getLength());
+      assertTrue(Arrays.equals(byteID, list.get(1).getKey()));
+    }
+  }
+
+  @Test
+  public void testReopenForAppending() throws IOException, InterruptedException {
+    System.out.println("test reopen for appending");
+    int fileIndex = 7;
+    deleteLogFile(fileIndex);
+    byte[] value = new byte[128];
+    new Random().nextBytes(value);
+
+    // simulating a crash, the file is not closed and the last entry is only partially written
+    VLogFile crashedFile = new VLogFile(options, fileIndex);
+    for (int i = 0; i < 10; i++) {
+      crashedFile.put(FAMILY, ids.getByteID(), 1, value);
+    }
+    long endOfData = crashedFile.getWritePosition();
+    VLogEntryInfo tornInfo = crashedFile.put(FAMILY, ids.getByteID(), 1, value);
+    try (RandomAccessFile raf = new RandomAccessFile(crashedFile.getFile(), "rw")) {
+      raf.seek(tornInfo.getStartBinary() + 64);
+      raf.write(new byte[64]);
+    }
+    crashedFile.setReadOnly(true).close();
+
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex).reopenForAppending()) {
+      assertFalse(vLogFile.isReadOnly());
+      assertTrue(vLogFile.isAvailbleForWriting());
+      assertEquals(10, vLogFile.getChunkCount());
+      assertEquals(endOfData, vLogFile.getWritePosition());
+      VLogEntryInfo info = vLogFile.put(FAMILY, ids.getByteID(), 1, value);
+      assertEquals(endOfData, info.getStart());
+    }
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex)) {
+      int count = 0;
+      for (Iterator<VLogEntryDescription> iterator = vLogFile.iterator(); iterator.hasNext();) {
+        VLogEntryDescription description = iterator.next();
+        byte[] storedValue = vLogFile.getValue(description.getStartBinary(), (int) description.getLength());
+        assertTrue(Arrays.equals(value, storedValue));
+        count++;
+      }
+      assertEquals(11, count);
+    }
+
+    // a corrupt entry in the middle is no torn entry, the entries behind are kept
+    VLogEntryInfo first;
+    VLogEntryInfo last;
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex).reopenForAppending()) {
+      first = vLogFile.put(FAMILY, ids.getByteID(), 1, value);
+      last = vLogFile.put(FAMILY, ids.getByteID(), 1, value);
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(VLogFile.getFilePathName(filePath, fileIndex), "rw")) {
+      raf.seek(first.getStartBinary() + 10);
+      raf.write(value[10] ^ 0xFF);
+    }
+    long length = VLogFile.getFilePathName(filePath, fileIndex).length();
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex).reopenForAppending()) {
+      assertTrue(vLogFile.isReadOnly());
+      assertTrue(Arrays.equals(value, vLogFile.getValue(last.getStart(), last.getStartBinary(),
+          last.getBinarySize())));
+    }
+    assertEquals(length, VLogFile.getFilePathName(filePath, fileIndex).length());
+  }
+
+  @Test
+  public void testWriteBatch() throws IOException, InterruptedException {
+    System.out.println("test write batch");
+    int fileIndex = 8;
+    deleteLogFile(fileIndex);
+    byte[] value = new byte[128];
+    new Random().nextBytes(value);
+
+    // simulating a crash in the middle of the batch, the data of the last entry is lost
+    VLogFile crashedFile = new VLogFile(options, fileIndex);
+    crashedFile.put(FAMILY, ids.getByteID(), 1, value);
+    long endOfData = crashedFile.getWritePosition();
+    WriteBatch batch = new WriteBatch();
+    for (int i = 0; i < 5; i++) {
+      batch.put(FAMILY, ids.getByteID(), value);
+    }
+    batch.remove(FAMILY, ids.getByteID());
+    List<VLogEntryInfo> infos = crashedFile.putBatch(batch, true);
+    assertEquals(6, infos.size());
+    assertEquals(8, crashedFile.getChunkCount());
+    assertTrue(infos.get(5).isTombstone());
+    for (int i = 0; i < 5; i++) {
+      VLogEntryInfo info = infos.get(i);
+      assertTrue(Arrays.equals(value, crashedFile.getValue(info.getStartBinary(), info.getBinarySize())));
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(crashedFile.getFile(), "rw")) {
+      raf.seek(infos.get(4).getStartBinary());
+      raf.write(new byte[64]);
+    }
+    crashedFile.setReadOnly(true).close();
+
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex).reopenForAppending()) {
+      assertEquals(1, vLogFile.getChunkCount());
+      assertEquals(endOfData, vLogFile.getWritePosition());
+    }
+  }
+
+  @Test
+  public void testMemoryMapped() throws IOException, InterruptedException {
+    System.out.println("test memory mapped");
+    int fileIndex = 9;
+    deleteLogFile(fileIndex);
+    Options mappedOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH).withVLogMemoryMapped(true);
+    List<byte[]> values = new ArrayList<>();
+    List<VLogEntryInfo> infos = new ArrayList<>();
+    try (VLogFile vLogFile = new VLogFile(mappedOptions, fileIndex)) {
+      for (int i = 0; i < 10; i++) {
+        byte[] value = new byte[128 * (i + 1)];
+        new Random().nextBytes(value);
+        values.add(value);
+        infos.add(vLogFile.put(FAMILY, ids.getByteID(), 0, value));
+      }
+      // a writable file is never mapped
+      assertFalse(vLogFile.getValueBuffer(infos.get(0).getStartBinary(), infos.get(0).getBinarySize()).isDirect());
+    }
+    try (VLogFile vLogFile = new VLogFile(mappedOptions, fileIndex)) {
+      assertTrue(vLogFile.isSealed());
+      for (int i = 0; i < values.size(); i++) {
+        VLogEntryInfo info = infos.get(i);
+        ByteBuffer buffer = vLogFile.getValueBuffer(info.getStartBinary(), info.getBinarySize());
+        assertTrue(buffer.isDirect());
+        assertTrue(buffer.isReadOnly());
+        byte[] value = new byte[buffer.remaining()];
+        buffer.get(value);
+        assertTrue(Arrays.equals(values.get(i), value));
+        assertTrue(Arrays.equals(values.get(i), vLogFile.getValue(info.getStartBinary(), info.getBinarySize())));
+        try (InputStream in = vLogFile.get(info.getStartBinary(), info.getBinarySize())) {
+          assertTrue(Arrays.equals(values.get(i), IOUtils.toByteArray(in)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testHeaderVersions() throws IOException, InterruptedException {
+    System.out.println("test header versions");
+    int fileIndex = 10;
+    deleteLogFile(fileIndex);
+    byte[] value = new byte[100];
+    new Random().nextBytes(value);
+    byte[] oldKey = ids.getByteID();
+
+    // an old file with a version 1 entry
+    VLogDescriptor oldDescriptor = new VLogDescriptor().setCollectionBytes(FAMILY.getBytes(StandardCharsets.UTF_8))
+        .setKey(oldKey).setChunkNumber(0).setLength(value.length);
+    CRC32 crc32 = new CRC32();
+    crc32.update(value);
+    oldDescriptor.setHash(ByteArrayUtils.longToBytes(crc32.getValue()));
+    oldDescriptor.version = 1;
+    ByteBuffer oldHeader = oldDescriptor.getBytes();
+    assertEquals(VLogDescriptor.length(), oldHeader.remaining());
+    byte[] oldHeaderBytes = new byte[oldHeader.remaining()];
+    oldHeader.get(oldHeaderBytes);
+    try (RandomAccessFile raf = new RandomAccessFile(VLogFile.getFilePathName(filePath, fileIndex), "rw")) {
+      raf.write(oldHeaderBytes);
+      raf.write(value);
+    }
+
+    // appending version 2 entries
+    VLogEntryInfo newInfo;
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex).reopenForAppending()) {
+      assertEquals(1, vLogFile.getChunkCount());
+      assertEquals(oldHeaderBytes.length + value.length, vLogFile.getWritePosition());
+      newInfo = vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      assertTrue(newInfo.getDescriptionSize() < 64);
+      assertTrue(Arrays.equals(value, vLogFile.getValue(newInfo.getStartBinary(), newInfo.getBinarySize())));
+    }
+
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex)) {
+      List<VLogEntryDescription> list = new ArrayList<>();
+      for (Iterator<VLogEntryDescription> iterator = vLogFile.iterator(); iterator.hasNext();) {
+        list.add(iterator.next());
+      }
+      assertEquals(2, list.size());
+      assertTrue(Arrays.equals(oldKey, list.get(0).getKey()));
+      assertEquals(oldHeaderBytes.length, list.get(0).getStartBinary());
+      assertEquals(newInfo.getStartBinary(), list.get(1).getStartBinary());
+      for (VLogEntryDescription description : list) {
+        assertEquals(FAMILY, description.getCollection());
+        byte[] storedValue = vLogFile.getValue(description.getStartBinary(), (int) description.getLength());
+        assertTrue(Arrays.equals(value, storedValue));
+      }
+      VLogDescriptor descriptor = VLogDescriptor.fromBytes(vLogFile.getValue(newInfo.getStart(),
+          newInfo.getDescriptionSize()));
+      assertEquals(value.length, descriptor.getLength());
+      assertTrue(Arrays.equals(newInfo.getHash(), descriptor.getHash()));
+    }
+  }
+
+  @Test
+  public void testAppendReusingBuffers() throws IOException, InterruptedException {
+    System.out.println("test append reusing buffers");
+    int fileIndex = 11;
+    deleteLogFile(fileIndex);
+    String[] collections = new String[] { FAMILY, "MCS", "MCS", FAMILY };
+    List<byte[]> values = new ArrayList<>();
+    List<VLogEntryInfo> infos = new ArrayList<>();
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex)) {
+      for (int i = 0; i < 100; i++) {
+        byte[] value = new byte[new Random().nextInt(300)];
+        new Random().nextBytes(value);
+        values.add(value);
+        infos.add(vLogFile.put(collections[i % collections.length], ids.getByteID(), 0, value, false));
+      }
+      vLogFile.putTombstone(FAMILY, ids.getByteID(), true);
+    }
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex)) {
+      Iterator<VLogEntryDescription> iterator = vLogFile.iterator();
+      for (int i = 0; i < values.size(); i++) {
+        VLogEntryDescription description = iterator.next();
+        VLogEntryInfo info = infos.get(i);
+        assertEquals(collections[i % collections.length], description.getCollection());
+        assertEquals(info.getStart(), description.getStart());
+        assertEquals(info.getStartBinary(), description.getStartBinary());
+        assertTrue(Arrays.equals(info.getHash(), description.getHash()));
+        assertTrue(Arrays.equals(values.get(i), vLogFile.getValue(info.getStartBinary(), info.getBinarySize())));
+      }
+      assertTrue(iterator.next().isTombstone());
+      assertFalse(iterator.hasNext());
+    }
+  }
+
+  @Test
+  public void testLazyIterator() throws IOException, InterruptedException {
+    System.out.println("test lazy iterator");
+    int fileIndex = 12;
+    deleteLogFile(fileIndex);
+    List<VLogEntryInfo> infos = new ArrayList<>();
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex)) {
+      for (int i = 0; i < 20; i++) {
+        // some values are larger than the read buffer of the iterator
+        byte[] value = new byte[(i % 5 == 0) ? 300 * 1024 : 1000 + i];
+        new Random().nextBytes(value);
+        infos.add(vLogFile.put(FAMILY, ids.getByteID(), 0, value, false));
+      }
+      // the iterator of the writable file stops at the write position
+      try (VLogEntryIterator iterator = vLogFile.iterator(infos.get(10).getStart())) {
+        assertEquals(infos.get(10).getStartBinary(), iterator.next().getStartBinary());
+      }
+    }
+    try (VLogFile vLogFile = new VLogFile(options, fileIndex)) {
+      int count = 0;
+      for (Iterator<VLogEntryDescription> iterator = vLogFile.iterator(); iterator.hasNext();) {
+        VLogEntryDescription description = iterator.next();
+        VLogEntryInfo info = infos.get(count);
+        assertEquals(info.getStart(), description.getStart());
+        assertEquals(info.getStartBinary(), description.getStartBinary());
+        assertEquals(info.getEnd(), description.getEnd());
+        count++;
+      }
+      assertEquals(infos.size(), count);
+      try (Stream<VLogEntryDescription> entries = vLogFile.stream()) {
+        assertEquals(infos.size(), entries.count());
+      }
+      try (Stream<VLogEntryDescription> entries = vLogFile.stream()) {
+        assertEquals(infos.get(1).getStart(), entries.skip(1).findFirst().get().getStart());
+      }
+    }
+  }
+
+  @Test
+  public void testFooter() throws IOException, InterruptedException {
+    System.out.println("test footer");
+    int fileIndex = 13;
+    deleteLogFile(fileIndex);
+    Options footerOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH).withVlogMaxChunkCount(20);
+    byte[] value = new byte[256];
+    new Random().nextBytes(value);
+    List<VLogEntryInfo> infos = new ArrayList<>();
+    try (VLogFile vLogFile = new VLogFile(footerOptions, fileIndex)) {
+      while (vLogFile.isAvailbleForWriting(4)) {
+        infos.add(vLogFile.put(FAMILY, ids.getByteID(), 0, value, false));
+      }
+      WriteBatch batch = new WriteBatch().put(FAMILY, ids.getByteID(), value).remove(FAMILY, ids.getByteID());
+      infos.addAll(vLogFile.putBatch(batch, false));
+      assertFalse(vLogFile.isAvailbleForWriting());
+      assertFalse(vLogFile.hasFooter());
+    }
+
+    try (VLogFile vLogFile = new VLogFile(footerOptions, fileIndex)) {
+      assertTrue(vLogFile.hasFooter());
+      // a sealed file is not reopened
+      vLogFile.reopenForAppending();
+      assertTrue(vLogFile.isReadOnly());
+
+      List<VLogEntryDescription> entries = new ArrayList<>();
+      vLogFile.iterator().forEachRemaining(entries::add);
+      // all puts, the batch marker and the batch entries
+      assertEquals(20, entries.size());
+      assertTrue(entries.get(entries.size() - 3).isBatchMarker());
+      assertTrue(entries.get(entries.size() - 1).isTombstone());
+      int index = 0;
+      for (VLogEntryDescription entry : entries) {
+        if (entry.isBatchMarker()) {
+          continue;
+        }
+        VLogEntryInfo info = infos.get(index++);
+        assertEquals(info.getStart(), entry.getStart());
+        assertEquals(info.getStartBinary(), entry.getStartBinary());
+        assertEquals(info.getEnd(), entry.getEnd());
+        assertTrue(Arrays.equals(info.getHash(), entry.getHash()));
+        assertEquals(FAMILY, entry.getCollection());
+      }
+
+      // starting in the middle
+      List<VLogEntryDescription> rest = new ArrayList<>();
+      vLogFile.iterator(infos.get(5).getStart()).forEachRemaining(rest::add);
+      assertEquals(entries.size() - 5, rest.size());
+      assertEquals(infos.get(5).getStart(), rest.get(0).getStart());
+    }
+
+    // a corrupt footer falls back to the scan of the headers
+    try (RandomAccessFile raf = new RandomAccessFile(VLogFile.getFilePathName(filePath, fileIndex), "rw")) {
+      raf.seek(infos.get(infos.size() - 1).getEnd() + 2);
+      raf.write(0xff);
+    }
+    try (VLogFile vLogFile = new VLogFile(footerOptions, fileIndex)) {
+      assertTrue(vLogFile.hasFooter());
+      List<VLogEntryDescription> entries = new ArrayList<>();
+      vLogFile.iterator().forEachRemaining(entries::add);
+      assertEquals(20, entries.size());
+    }
+  }
+
+  @Test
+  public void testPreallocation() throws IOException, InterruptedException {
+    System.out.println("test preallocation");
+    int fileIndex = 14;
+    deleteLogFile(fileIndex);
+    Options extentOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH).withVlogMaxSize(4L * 1024L * 1024L)
+        .withVlogPreallocationSize(1024L * 1024L);
+    byte[] value = new byte[300 * 1024];
+    new Random().nextBytes(value);
+    try (VLogFile vLogFile = new VLogFile(extentOptions, fileIndex)) {
+      assertEquals(0, vLogFile.getSize());
+      VLogEntryInfo info = vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      // the size is the written data, the file has only the first extent
+      assertEquals(info.getEnd() + 1, vLogFile.getSize());
+      assertEquals(info.getEnd() + 1, vLogFile.getWritePosition());
+      assertEquals(1024L * 1024L, vLogFile.getFile().length());
+      for (int i = 0; i < 4; i++) {
+        info = vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      }
+      assertEquals(2L * 1024L * 1024L, vLogFile.getFile().length());
+      // the rollover is decided by the written data
+      while (vLogFile.isAvailbleForWriting()) {
+        info = vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      }
+      assertEquals(info.getEnd() + 1, vLogFile.getSize());
+      assertTrue(vLogFile.getSize() > extentOptions.getVlogMaxSize());
+      assertTrue(vLogFile.getSize() < extentOptions.getVlogMaxSize() + value.length + 1024);
+    }
+  }
+
+  @Test
+  public void testCompression() throws IOException, InterruptedException {
+    System.out.println("test compression");
+    int fileIndex = 15;
+    deleteLogFile(fileIndex);
+    Options compressOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH)
+        .withVCntCompressionMode(DeflateCodec.ID).withVCntCompressionMinSize(256);
+    byte[] text = new byte[64 * 1024];
+    for (int i = 0; i < text.length; i++) {
+      text[i] = (byte) ('a' + (i % 7));
+    }
+    byte[] random = new byte[64 * 1024];
+    new Random().nextBytes(random);
+    byte[] small = Arrays.copyOf(text, 100);
+    List<byte[]> values = Arrays.asList(text, random, small);
+    List<VLogEntryInfo> infos = new ArrayList<>();
+    try (VLogFile vLogFile = new VLogFile(compressOptions, fileIndex)) {
+      for (byte[] value : values) {
+        infos.add(vLogFile.put(FAMILY, ids.getByteID(), 0, value));
+      }
+      WriteBatch batch = new WriteBatch().put(FAMILY, ids.getByteID(), text);
+      infos.addAll(vLogFile.putBatch(batch, true));
+    }
+    // only the compressible value, which is large enough, is compressed
+    assertTrue(infos.get(0).getBinarySize() < text.length / 10);
+    assertEquals(random.length, infos.get(1).getBinarySize());
+    assertEquals(small.length, infos.get(2).getBinarySize());
+    assertEquals(infos.get(0).getBinarySize(), infos.get(3).getBinarySize());
+
+    // reading without compression mode, the codec is part of the header
+    Options plainOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH);
+    try (VLogFile vLogFile = new VLogFile(plainOptions, fileIndex)) {
+      for (int i = 0; i < infos.size(); i++) {
+        VLogEntryInfo info = infos.get(i);
+        byte[] value = i < values.size() ? values.get(i) : text;
+        assertTrue(Arrays.equals(value, vLogFile.getValue(info.getStart(), info.getStartBinary(),
+            info.getBinarySize())));
+        try (InputStream in = vLogFile.get(info.getStart(), info.getStartBinary(), info.getBinarySize())) {
+          assertTrue(Arrays.equals(value, IOUtils.toByteArray(in)));
+        }
+        ByteBuffer buffer = vLogFile.getValueBuffer(info.getStart(), info.getStartBinary(), info.getBinarySize());
+        assertEquals(ByteBuffer.wrap(value), buffer);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(value.length, vLogFile.transferTo(info.getStart(), info.getStartBinary(), info.getBinarySize(),
+            Channels.newChannel(out)));
+        assertTrue(Arrays.equals(value, out.toByteArray()));
+      }
+      List<VLogEntryDescription> entries = new ArrayList<>();
+      vLogFile.iterator().forEachRemaining(entries::add);
+      assertEquals(infos.size() + 1, entries.size());
+    }
+  }
+
+  @Test
+  public void testCompressionDictionary() throws IOException, InterruptedException {
+    System.out.println("test compression dictionary");
+    int fileIndex = 16;
+    deleteLogFile(fileIndex);
+    File dictionaryFile = VLogDictionaries.getFilePathName(filePath, 1);
+    if (dictionaryFile.exists()) {
+      Files.remove(dictionaryFile, true);
+    }
+    Options dictionaryOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH)
+        .withVCntCompressionMode(DeflateCodec.ID).withVCntCompressionMinSize(64).withVCntCompressionDictionary(true)
+        .withVCntDictionarySampleSize(16 * 1024);
+    Random random = new Random();
+    List<byte[]> values = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      values.add(String.format("{\"id\":%d,\"name\":\"customer %d\",\"street\":\"main street %d\",\"city\":\"hamburg\","
+          + "\"country\":\"germany\",\"state\":\"active\",\"balance\":%d}", i, random.nextInt(), random.nextInt(1000),
+          random.nextLong()).getBytes(StandardCharsets.UTF_8));
+    }
+    VLogDictionaries dictionaries = new VLogDictionaries(dictionaryOptions);
+    dictionaries.load();
+    List<VLogEntryInfo> infos = new ArrayList<>();
+    try (VLogFile vLogFile = new VLogFile(dictionaryOptions, fileIndex).setDictionaries(dictionaries)) {
+      for (byte[] value : values) {
+        infos.add(vLogFile.put(FAMILY, ids.getByteID(), 0, value));
+      }
+    }
+    int id = dictionaries.getDictionaryId(FAMILY);
+    assertTrue(id > 0);
+    assertTrue(dictionaryFile.exists());
+    assertTrue(dictionaries.getDictionary(id).length <= VLogDictionaries.MAX_DICTIONARY_SIZE);
+    // the last value is compressed with the dictionary, much better than without
+    byte[] last = values.get(values.size() - 1);
+    int withoutDictionary = new DeflateCodec().compress(last).length;
+    assertTrue(infos.get(infos.size() - 1).getBinarySize() < withoutDictionary / 2);
+
+    // the dictionary is loaded again
+    VLogDictionaries loaded = new VLogDictionaries(dictionaryOptions);
+    loaded.load();
+    assertEquals(id, loaded.getDictionaryId(FAMILY));
+    try (VLogFile vLogFile = new VLogFile(dictionaryOptions, fileIndex).setDictionaries(loaded)) {
+      for (int i = 0; i < infos.size(); i++) {
+        VLogEntryInfo info = infos.get(i);
+        assertTrue(Arrays.equals(values.get(i), vLogFile.getValue(info.getStart(), info.getStartBinary(),
+            info.getBinarySize())));
+      }
+    }
+  }
+
+  @Test
+  public void testDictionarySampleMemory() throws IOException, InterruptedException {
+    System.out.println("test dictionary sample memory");
+    File samplePath = new File(filePath, "samples");
+    if (samplePath.exists()) {
+      Files.remove(samplePath, true);
+    }
+    samplePath.mkdirs();
+    Options sampleOptions = Options.defaultOptions().withPath(samplePath.getAbsolutePath())
+        .withVCntDictionarySampleSize(2048).withVCntDictionarySampleMemory(4096);
+    VLogDictionaries dictionaries = new VLogDictionaries(sampleOptions);
+    byte[] value = new byte[100];
+    // many small collections never get enough samples, the samples of the smallest are dropped
+    for (int i = 0; i < 200; i++) {
+      assertEquals(0, dictionaries.getDictionaryId(String.format("collection%d", i % 100), value));
+      assertTrue(dictionaries.getSampleMemory() <= 4096);
+    }
+    // the samples are copies
+    byte[] reused = new byte[100];
+    for (int i = 0; i < 20; i++) {
+      Arrays.fill(reused, (byte) i);
+      dictionaries.getDictionaryId(FAMILY, reused);
+    }
+    assertEquals(0, dictionaries.getDictionaryId(FAMILY));
+    Arrays.fill(reused, (byte) 20);
+    int id = dictionaries.getDictionaryId(FAMILY, reused);
+    assertTrue(id > 0);
+    assertTrue(dictionaries.getSampleMemory() <= 4096);
+    byte[] dictionary = dictionaries.getDictionary(id);
+    for (int i = 0; i <= 20; i++) {
+      int count = 0;
+      for (byte b : dictionary) {
+        count += (b == i) ? 1 : 0;
+      }
+      assertTrue(count > 0);
+    }
+  }
+
+  @Test
+  public void testChecksums() throws IOException, InterruptedException {
+    System.out.println("test checksums");
+    XXHash64 xxHash = new XXHash64();
+    assertEquals(0xEF46DB3751D8E999L, xxHash.getValue());
+    xxHash.update("abc".getBytes(StandardCharsets.UTF_8));
+    assertEquals(0x44BC2CF5AD770999L, xxHash.getValue());
+    xxHash.reset();
+    xxHash.update("Nobody inspects the spammish repetition".getBytes(StandardCharsets.UTF_8));
+    assertEquals(0xFBCEA83C8A378BF1L, xxHash.getValue());
+    byte[] value = new byte[1000];
+    new Random().nextBytes(value);
+    xxHash.reset();
+    for (int i = 0; i < value.length; i += 7) {
+      xxHash.update(value, i, Math.min(7, value.length - i));
+    }
+    XXHash64 oneShot = new XXHash64();
+    oneShot.update(value);
+    assertEquals(oneShot.getValue(), xxHash.getValue());
+
+    int fileIndex = 17;
+    for (ChecksumType type : ChecksumType.values()) {
+      deleteLogFile(fileIndex);
+      Options checksumOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH).withChecksumType(type)
+          .withChecksumVerification(ChecksumVerification.ALWAYS);
+      VLogEntryInfo info;
+      try (VLogFile vLogFile = new VLogFile(checksumOptions, fileIndex)) {
+        info = vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+        vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      }
+      // the checksum of the header is used to find the end of the data
+      try (VLogFile vLogFile = new VLogFile(checksumOptions, fileIndex).reopenForAppending()) {
+        assertEquals(2, vLogFile.getChunkCount());
+        assertTrue(Arrays.equals(value, vLogFile.getValue(info.getStart(), info.getStartBinary(),
+            info.getBinarySize())));
+      }
+      // corrupting the stored value
+      try (RandomAccessFile raf = new RandomAccessFile(VLogFile.getFilePathName(filePath, fileIndex), "rw")) {
+        raf.seek(info.getStartBinary() + 10);
+        raf.write(value[10] ^ 0xFF);
+      }
+      VLogChecksumVerifier verifier = new VLogChecksumVerifier(checksumOptions);
+      try (VLogFile vLogFile = new VLogFile(checksumOptions, fileIndex).setChecksumVerifier(verifier)) {
+        if (type == ChecksumType.NONE) {
+          vLogFile.getValue(info.getStart(), info.getStartBinary(), info.getBinarySize());
+          assertEquals(0, verifier.getMismatchCount());
+        } else {
+          Assertions.assertThrows(HogletDBException.class,
+              () -> vLogFile.getValue(info.getStart(), info.getStartBinary(), info.getBinarySize()));
+          Assertions.assertThrows(HogletDBException.class,
+              () -> vLogFile.get(info.getStart(), info.getStartBinary(), info.getBinarySize()));
+          assertEquals(2, verifier.getMismatchCount());
+        }
+      }
+    }
+
+    // sampled and never
+    Options sampledOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH)
+        .withChecksumVerification(ChecksumVerification.SAMPLED).withChecksumSampleRate(4);
+    deleteLogFile(fileIndex);
+    VLogChecksumVerifier verifier = new VLogChecksumVerifier(sampledOptions);
+    try (VLogFile vLogFile = new VLogFile(sampledOptions, fileIndex).setChecksumVerifier(verifier)) {
+      VLogEntryInfo info = vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      for (int i = 0; i < 8; i++) {
+        vLogFile.getValueBuffer(info.getStart(), info.getStartBinary(), info.getBinarySize());
+      }
+      assertEquals(2, verifier.getVerifiedCount());
+      verifier = new VLogChecksumVerifier(Options.defaultOptions());
+      vLogFile.setChecksumVerifier(verifier);
+      vLogFile.getValue(info.getStart(), info.getStartBinary(), info.getBinarySize());
+      assertEquals(0, verifier.getVerifiedCount());
+    }
+  }
+
+  @Test
+  public void testTransferToNonBlocking() throws IOException, InterruptedException {
+    System.out.println("test transfer to non blocking channel");
+    int fileIndex = 18;
+    deleteLogFile(fileIndex);
+    byte[] value = new byte[4 * 1024 * 1024];
+    new Random().nextBytes(value);
+    Options transferOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH);
+    Pipe pipe = Pipe.open();
+    try (VLogFile vLogFile = new VLogFile(transferOptions, fileIndex)) {
+      VLogEntryInfo info = vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      pipe.sink().configureBlocking(false);
+      // nobody reads the pipe, the transfer stops, when the pipe is full
+      long transferred = vLogFile.transferTo(info.getStartBinary(), info.getBinarySize(), pipe.sink());
+      assertTrue(transferred < value.length);
+      assertEquals(0, vLogFile.transferTo(info.getStartBinary(), info.getBinarySize(), pipe.sink()));
+    } finally {
+      pipe.sink().close();
+      pipe.source().close();
+    }
+  }
+
+  @Test
+  public void testUnknownChecksum() throws IOException, InterruptedException {
+    System.out.println("test unknown checksum");
+    int fileIndex = 19;
+    deleteLogFile(fileIndex);
+    Options checksumOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH)
+        .withChecksumVerification(ChecksumVerification.ALWAYS);
+    byte[] value = new byte[1000];
+    new Random().nextBytes(value);
+    VLogEntryInfo info;
+    try (VLogFile vLogFile = new VLogFile(checksumOptions, fileIndex)) {
+      vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      info = vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+    }
+    // the id of the checksum is in front of the hash
+    try (RandomAccessFile raf = new RandomAccessFile(VLogFile.getFilePathName(filePath, fileIndex), "rw")) {
+      raf.seek(info.getStartBinary() - VLogDescriptor.DOC_LIMITER.length - VLogDescriptor.HASH_LENGTH - 1);
+      raf.write(0x7F);
+    }
+    VLogChecksumVerifier verifier = new VLogChecksumVerifier(checksumOptions);
+    try (VLogFile vLogFile = new VLogFile(checksumOptions, fileIndex).setChecksumVerifier(verifier)) {
+      Assertions.assertThrows(HogletDBException.class,
+          () -> vLogFile.getValue(info.getStart(), info.getStartBinary(), info.getBinarySize()));
+      Assertions.assertThrows(HogletDBException.class,
+          () -> vLogFile.get(info.getStart(), info.getStartBinary(), info.getBinarySize()));
+    }
+    Assertions.assertThrows(HogletDBException.class,
+        () -> verifier.verify(new VLogDescriptor().setChecksum(0x7F), value, 0, value.length, "test"));
+    // the corrupt header is followed by more data, nothing is cut off
+    long length = VLogFile.getFilePathName(filePath, fileIndex).length();
+    try (VLogFile vLogFile = new VLogFile(checksumOptions, fileIndex).reopenForAppending()) {
+      assertTrue(vLogFile.isReadOnly());
+      assertFalse(vLogFile.isAvailbleForWriting());
+    }
+    assertEquals(length, VLogFile.getFilePathName(filePath, fileIndex).length());
+  }
+
+  @Test
+  public void testCorruptHeader() throws IOException, InterruptedException {
+    System.out.println("test corrupt header");
+    int fileIndex = 20;
+    deleteLogFile(fileIndex);
+    Options headerOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH);
+    byte[] value = new byte[1000];
+    new Random().nextBytes(value);
+    VLogEntryInfo info;
+    try (VLogFile vLogFile = new VLogFile(headerOptions, fileIndex)) {
+      info = vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+      vLogFile.put(FAMILY, ids.getByteID(), 0, value);
+    }
+    // the limiter at the end of the header
+    try (RandomAccessFile raf = new RandomAccessFile(VLogFile.getFilePathName(filePath, fileIndex), "rw")) {
+      raf.seek(info.getStartBinary() - 1);
+      raf.write(0);
+    }
+    try (VLogFile vLogFile = new VLogFile(headerOptions, fileIndex)) {
+      Assertions.assertThrows(HogletDBException.class,
+          () -> vLogFile.getValue(info.getStart(), info.getStartBinary(), info.getBinarySize()));
+      Assertions.assertThrows(HogletDBException.class,
+          () -> vLogFile.getValueBuffer(info.getStart(), info.getStartBinary(), info.getBinarySize()));
+      Assertions.assertThrows(HogletDBException.class,
+          () -> vLogFile.get(info.getStart(), info.getStartBinary(), info.getBinarySize()));
+      Assertions.assertThrows(HogletDBException.class, () -> vLogFile.transferTo(info.getStart(),
+          info.getStartBinary(), info.getBinarySize(), Channels.newChannel(new ByteArrayOutputStream())));
+    }
+  }
+
+  @Test
+  public void testTransferToPath() throws IOException, InterruptedException {
+    System.out.println("test transfer to path");
+    int fileIndex = 21;
+    deleteLogFile(fileIndex);
+    byte[] text = new byte[64 * 1024];
+    for (int i = 0; i < text.length; i++) {
+      text[i] = (byte) ('a' + (i % 7));
+    }
+    byte[] random = new byte[64 * 1024];
+    new Random().nextBytes(random);
+    Options compressOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH)
+        .withVCntCompressionMode(DeflateCodec.ID).withVCntCompressionMinSize(256);
+    VLogEntryInfo compressed;
+    VLogEntryInfo plain;
+    try (VLogFile vLogFile = new VLogFile(compressOptions, fileIndex)) {
+      compressed = vLogFile.put(FAMILY, ids.getByteID(), 0, text);
+      plain = vLogFile.put(FAMILY, ids.getByteID(), 0, random);
+    }
+
+    // without verification only the compressed value goes over the heap
+    Options plainOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH);
+    try (VLogFile vLogFile = new VLogFile(plainOptions, fileIndex)) {
+      assertTransfer(vLogFile, plain, random);
+      assertEquals(0, vLogFile.getCopiedTransferCount());
+      assertTransfer(vLogFile, compressed, text);
+      assertEquals(1, vLogFile.getCopiedTransferCount());
+    }
+
+    // verified values of a file, which is not mapped, are verified on the heap
+    Options verifyOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH)
+        .withChecksumVerification(ChecksumVerification.ALWAYS);
+    VLogChecksumVerifier verifier = new VLogChecksumVerifier(verifyOptions);
+    try (VLogFile vLogFile = new VLogFile(verifyOptions, fileIndex).setChecksumVerifier(verifier)) {
+      assertTransfer(vLogFile, plain, random);
+      assertEquals(1, vLogFile.getCopiedTransferCount());
+      assertEquals(1, verifier.getVerifiedCount());
+    }
+
+    // verified values of a mapped file are verified on the mapping and transferred without copying
+    Options mappedOptions = Options.defaultOptions().withPath(BLOBSTORE_PATH).withVLogMemoryMapped(true)
+        .withChecksumVerification(ChecksumVerification.ALWAYS);
+    verifier = new VLogChecksumVerifier(mappedOptions);
+    try (VLogFile vLogFile = new VLogFile(mappedOptions, fileIndex).setChecksumVerifier(verifier)) {
+      assertTransfer(vLogFile, plain, random);
+      assertEquals(0, vLogFile.getCopiedTransferCount());
+      assertEquals(1, verifier.getVerifiedCount());
+      assertTransfer(vLogFile, compressed, text);
+      assertEquals(1, vLogFile.getCopiedTransferCount());
+      assertEquals(2, verifier.getVerifiedCount());
+    }
+
+    // a corrupt value is detected on the mapping
+    try (RandomAccessFile raf = new RandomAccessFile(VLogFile.getFilePathName(filePath, fileIndex), "rw")) {
+      raf.seek(plain.getStartBinary() + 10);
+      raf.write(random[10] ^ 0xFF);
+    }
+    verifier = new VLogChecksumVerifier(mappedOptions);
+    try (VLogFile vLogFile = new VLogFile(mappedOptions, fileIndex).setChecksumVerifier(verifier)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Assertions.assertThrows(HogletDBException.class, () -> vLogFile.transferTo(plain.getStart(),
+          plain.getStartBinary(), plain.getBinarySize(), Channels.newChannel(out)));
+      assertEquals(0, out.size());
+      assertEquals(1, verifier.getMismatchCount());
+    }
+  }
+
+  private void assertTransfer(VLogFile vLogFile, VLogEntryInfo info, byte[] value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(value.length,
+        vLogFile.transferTo(info.getStart(), info.getStartBinary(), info.getBinarySize(), Channels.newChannel(out)));
+    assertTrue(Arrays.equals(value, out.toByteArray()));
+  }
+
   private void deleteLogFile(int i) throws IOException, InterruptedException {
     File blobstorePath = new File(BLOBSTORE_PATH);
     File vlogFile = VLogFile.getFilePathName(blobstorePath, i);
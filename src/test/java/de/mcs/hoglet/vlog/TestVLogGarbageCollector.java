@@ -0,0 +1,292 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.mcs.hoglet.HogletDB;
+import de.mcs.hoglet.Options;
+import de.mcs.hoglet.vlog.VLogLedger.VLogUsage;
+import de.mcs.utils.Files;
+
+/**
+ * @author w.klaas
+ *
+ */
+public class TestVLogGarbageCollector {
+
+  private static final String DB_PATH = "e:/temp/hoglet/vloggc";
+  private static final int MAX_KEYS = 500;
+  private Options options;
+
+  @BeforeEach
+  public void before() throws IOException, InterruptedException {
+    File filePath = new File(DB_PATH);
+    if (filePath.exists()) {
+      Files.remove(filePath, true);
+      Thread.sleep(100);
+    }
+    filePath.mkdirs();
+    options = Options.defaultOptions().withPath(DB_PATH).withVlogMaxChunkCount(100).withVlogMaxSize(1024 * 1024)
+        .withVLogGcInterval(0).withVCntDeleteTreshHold(50);
+  }
+
+  private byte[] key(int i) {
+    return String.format("key%06d", i).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private byte[] value(int i, int round) {
+    byte[] value = new byte[1024];
+    byte[] text = String.format("value %d of round %d", i, round).getBytes(StandardCharsets.UTF_8);
+    System.arraycopy(text, 0, value, 0, text.length);
+    return value;
+  }
+
+  private int countVLogFiles() {
+    return new File(DB_PATH).list((dir, name) -> name.endsWith(".vlog")).length;
+  }
+
+  private void checkValues(HogletDB hogletDB) throws IOException {
+    for (int i = 0; i < MAX_KEYS; i++) {
+      byte[] value = hogletDB.get(key(i));
+      if (i % 10 == 0) {
+        assertNull(value);
+      } else if (i < 400) {
+        assertArrayEquals(value(i, 2), value);
+      } else {
+        assertArrayEquals(value(i, 1), value);
+      }
+    }
+  }
+
+  @Test
+  public void testGarbageCollection() throws IOException {
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      for (int i = 0; i < MAX_KEYS; i++) {
+        hogletDB.put(key(i), value(i, 1));
+      }
+      // overwriting the most of the keys and deleting some
+      for (int i = 0; i < 400; i++) {
+        hogletDB.put(key(i), value(i, 2));
+      }
+      for (int i = 0; i < MAX_KEYS; i += 10) {
+        hogletDB.remove(key(i));
+      }
+      int before = countVLogFiles();
+      int collected = hogletDB.runVLogGarbageCollection();
+      assertTrue(collected > 0);
+      VLogGarbageCollector gc = hogletDB.getVLogGarbageCollector();
+      assertEquals(collected, gc.getCollectedCount());
+      assertTrue(gc.getBytesReclaimed() > 0);
+      assertTrue(countVLogFiles() < before);
+      checkValues(hogletDB);
+    }
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      checkValues(hogletDB);
+      // all old files are sealed now, running again must not lose anything
+      hogletDB.runVLogGarbageCollection();
+      checkValues(hogletDB);
+    }
+  }
+
+  private long sizeOfVLogFiles() {
+    long size = 0;
+    for (File file : new File(DB_PATH).listFiles((dir, name) -> name.endsWith(".vlog"))) {
+      size += file.length();
+    }
+    return size;
+  }
+
+  private void ageVLogFiles() {
+    long twoDaysAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+    for (File file : new File(DB_PATH).listFiles((dir, name) -> name.endsWith(".vlog"))) {
+      file.setLastModified(twoDaysAgo);
+    }
+  }
+
+  @Test
+  public void testRecompression() throws IOException {
+    options.withVCntCompressAge(1);
+    long before;
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      for (int i = 0; i < MAX_KEYS; i++) {
+        hogletDB.put(key(i), value(i, 1));
+      }
+      // young files are not recompressed
+      assertEquals(0, hogletDB.runVLogRecompression());
+      before = sizeOfVLogFiles();
+      ageVLogFiles();
+      int recompressed = hogletDB.runVLogRecompression();
+      assertTrue(recompressed > 0);
+      assertEquals(recompressed, hogletDB.getVLogGarbageCollector().getRecompressedCount());
+      for (int i = 0; i < MAX_KEYS; i++) {
+        assertArrayEquals(value(i, 1), hogletDB.get(key(i)));
+      }
+    }
+    assertTrue(sizeOfVLogFiles() < before / 4);
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      // the recompressed files are never recompressed again
+      ageVLogFiles();
+      assertEquals(0, hogletDB.runVLogRecompression());
+      for (int i = 0; i < MAX_KEYS; i++) {
+        assertArrayEquals(value(i, 1), hogletDB.get(key(i)));
+      }
+    }
+  }
+
+  @Test
+  public void testLedger() throws IOException {
+    List<VLogUsage> usages;
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      for (int i = 0; i < MAX_KEYS; i++) {
+        hogletDB.put(key(i), value(i, 1));
+      }
+      usages = hogletDB.getVLogUsages();
+      assertEquals(countVLogFiles(), usages.size());
+      for (VLogUsage usage : usages) {
+        assertTrue(usage.getTotalBytes() > 0);
+        assertEquals(0, usage.getDeadBytes());
+      }
+      // overwriting all keys of the first vLog file, deleting all of the second
+      for (int i = 0; i < 100; i++) {
+        hogletDB.put(key(i), value(i, 2));
+      }
+      for (int i = 100; i < 200; i++) {
+        hogletDB.remove(key(i));
+      }
+      usages = hogletDB.getVLogUsages();
+      assertEquals(100, usages.get(0).getDeadPercent());
+      assertEquals(100, usages.get(1).getDeadPercent());
+      assertEquals(0, usages.get(2).getDeadPercent());
+      assertEquals(usages.get(0).getTotalBytes(), usages.get(0).getDeadBytes());
+    }
+    // the ledger is persistent
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      List<VLogUsage> loaded = hogletDB.getVLogUsages();
+      assertEquals(usages.size(), loaded.size());
+      for (int i = 0; i < usages.size(); i++) {
+        assertEquals(usages.get(i).getName(), loaded.get(i).getName());
+        assertEquals(usages.get(i).getTotalBytes(), loaded.get(i).getTotalBytes());
+        assertEquals(usages.get(i).getDeadBytes(), loaded.get(i).getDeadBytes());
+      }
+      // exactly the two dead files are collected
+      assertEquals(2, hogletDB.runVLogGarbageCollection());
+      assertNull(hogletDB.get(key(150)));
+      assertArrayEquals(value(50, 2), hogletDB.get(key(50)));
+      assertArrayEquals(value(250, 1), hogletDB.get(key(250)));
+      for (VLogUsage usage : hogletDB.getVLogUsages()) {
+        assertTrue(new File(DB_PATH, usage.getName()).exists());
+      }
+    }
+  }
+
+  @Test
+  public void testChunkedValues() throws IOException {
+    options.withChunkSize(256);
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      for (int i = 0; i < 50; i++) {
+        hogletDB.put(key(i), new ByteArrayInputStream(value(i, 1)));
+      }
+      // overwriting the most of the keys, the chunks of the old values are garbage
+      for (int i = 0; i < 30; i++) {
+        hogletDB.put(key(i), value(i, 2));
+      }
+      assertTrue(hogletDB.runVLogGarbageCollection() > 0);
+      assertTrue(hogletDB.getVLogGarbageCollector().getEntriesMoved() > 0);
+      for (int i = 0; i < 50; i++) {
+        try (InputStream in = hogletDB.getAsStream(key(i))) {
+          assertArrayEquals(value(i, i < 30 ? 2 : 1), in.readAllBytes());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testChunkListWrittenOnce() throws IOException {
+    options.withChunkSize(256);
+    byte[] value = new byte[20 * 256];
+    new Random().nextBytes(value);
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      hogletDB.put(key(0), new ByteArrayInputStream(value));
+      for (int i = 1; i < 80; i++) {
+        hogletDB.put(key(i), value(i, 1));
+      }
+      for (int i = 1; i < 80; i++) {
+        hogletDB.put(key(i), value(i, 2));
+      }
+      assertTrue(hogletDB.runVLogGarbageCollection() > 0);
+      assertFalse(new File(DB_PATH, "vlog_0001.vlog").exists());
+      assertArrayEquals(value, hogletDB.get(key(0)));
+    }
+    // all chunks of the value are moved with one new chunk list
+    int chunkLists = 0;
+    for (File file : new File(DB_PATH).listFiles((dir, name) -> name.endsWith(".vlog"))) {
+      try (VLogFile vLogFile = new VLogFile(options, file); VLogEntryIterator iterator = vLogFile.iterator()) {
+        while (iterator.hasNext()) {
+          VLogEntryDescription entry = iterator.next();
+          if (entry.isChunkList() && Arrays.equals(key(0), entry.getKey())) {
+            chunkLists++;
+          }
+        }
+      }
+    }
+    assertEquals(1, chunkLists);
+  }
+
+  @Test
+  public void testLedgerOfCompactedChunks() throws IOException, InterruptedException {
+    options.withChunkSize(256).withLevelZeroMaxFiles(2);
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      hogletDB.put(key(0), new ByteArrayInputStream(value(0, 1)));
+    }
+    // the chunk list is replaced in an other index file, so it's dropped by the compaction
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      hogletDB.put(key(0), value(0, 2));
+    }
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      // the compaction runs on closing the last database or on opening this one
+      for (int i = 0; (i < 100) && (new File(DB_PATH).list((dir, name) -> name.startsWith("sst_00_")).length > 0);
+          i++) {
+        Thread.sleep(50);
+      }
+      assertEquals(0, new File(DB_PATH).list((dir, name) -> name.startsWith("sst_00_")).length);
+      long dead = 0;
+      for (VLogUsage usage : hogletDB.getVLogUsages()) {
+        dead += usage.getDeadBytes();
+      }
+      // the chunk list and all the chunks of the old value
+      assertTrue(dead > value(0, 1).length);
+      assertArrayEquals(value(0, 2), hogletDB.get(key(0)));
+    }
+  }
+}
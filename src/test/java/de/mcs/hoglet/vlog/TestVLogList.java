@@ -0,0 +1,199 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.mcs.hoglet.HogletDB;
+import de.mcs.hoglet.Options;
+import de.mcs.utils.Files;
+
+/**
+ * @author w.klaas
+ *
+ */
+public class TestVLogList {
+
+  private static final String DB_PATH = "e:/temp/hoglet/vloglist";
+  private static final int MAX_KEYS = 500;
+  private Options options;
+
+  @BeforeEach
+  public void before() throws IOException, InterruptedException {
+    File filePath = new File(DB_PATH);
+    if (filePath.exists()) {
+      Files.remove(filePath, true);
+      Thread.sleep(100);
+    }
+    filePath.mkdirs();
+    options = Options.defaultOptions().withPath(DB_PATH).withVlogMaxChunkCount(100).withVlogMaxSize(1024 * 1024)
+        .withVLogGcInterval(0);
+  }
+
+  @Test
+  public void testParallelScan() throws IOException {
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      for (int i = 0; i < MAX_KEYS; i++) {
+        byte[] key = String.format("key%06d", i).getBytes(StandardCharsets.UTF_8);
+        hogletDB.put(key, new byte[1024]);
+      }
+    }
+    VLogList vLogList = new VLogList(options);
+    try {
+      List<String> names = vLogList.getVLogNames();
+      assertTrue(names.size() > 1);
+
+      Map<String, Long> counts = new ConcurrentHashMap<>();
+      Map<String, Long> lastStarts = new ConcurrentHashMap<>();
+      vLogList.scan(entry -> {
+        counts.merge(entry.getContainerName(), 1L, Long::sum);
+        // the entries of one file are in order
+        Long lastStart = lastStarts.put(entry.getContainerName(), entry.getStart());
+        assertTrue((lastStart == null) || (lastStart < entry.getStart()));
+      });
+      assertEquals(MAX_KEYS, counts.values().stream().mapToLong(Long::longValue).sum());
+      assertEquals(names.size(), counts.size());
+
+      // the sequential stream of one file gives the same entries
+      for (String name : names) {
+        try (Stream<VLogEntryDescription> entries = vLogList.getVLog(name).stream()) {
+          List<VLogEntryDescription> list = entries.collect(Collectors.toList());
+          assertEquals(counts.get(name).longValue(), list.size());
+        }
+      }
+    } finally {
+      vLogList.close();
+    }
+  }
+
+  @Test
+  public void testSealOnRollover() throws IOException, InterruptedException {
+    Options extentOptions = options.withVlogPreallocationSize(1024L * 1024L);
+    VLogList vLogList = new VLogList(extentOptions);
+    try {
+      String first = null;
+      int count = 0;
+      while (vLogList.getVLogNames().size() < 2) {
+        try (VLog vLog = vLogList.getNextAvailableVLog()) {
+          if (first == null) {
+            first = vLog.getName();
+          }
+          vLog.put("family", String.format("key%06d", count++).getBytes(StandardCharsets.UTF_8), 0,
+              new byte[1024], false);
+        }
+      }
+      // the file, which rolled over, is sealed in the background and not held by the writers anymore
+      for (int i = 0; (i < 100) && (vLogList.getList().size() > 1); i++) {
+        Thread.sleep(100);
+      }
+      assertEquals(1, vLogList.getList().size());
+      assertFalse(vLogList.getList().get(0).getName().equals(first));
+      assertTrue(vLogList.getSealedVLogNames().contains(first));
+
+      VLogFile vLogFile = vLogList.getVLog(first).getvLogFile();
+      assertTrue(vLogFile.hasFooter());
+      assertTrue(vLogFile.isReadOnly());
+      // the preallocated space is cut off
+      assertTrue(vLogFile.getFile().length() < extentOptions.getVlogPreallocationSize());
+      try (Stream<VLogEntryDescription> entries = vLogFile.stream()) {
+        assertEquals(extentOptions.getVlogMaxChunkCount(), entries.count());
+      }
+    } finally {
+      vLogList.close();
+    }
+  }
+
+  @Test
+  public void testSealAfterCrash() throws IOException {
+    long preallocation = 1024L * 1024L;
+    // a file, which rolled over before a crash, without footer and with the preallocated space
+    try (VLogFile vLogFile = new VLogFile(options, 1)) {
+      for (int i = 0; i < 10; i++) {
+        vLogFile.put("family", String.format("key%06d", i).getBytes(StandardCharsets.UTF_8), 0, new byte[1024]);
+      }
+    }
+    File file = VLogFile.getFilePathName(new File(DB_PATH), 1);
+    long dataLength = file.length();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(preallocation);
+    }
+    try (VLogFile vLogFile = new VLogFile(options, 2)) {
+      vLogFile.put("family", "key".getBytes(StandardCharsets.UTF_8), 0, new byte[1024]);
+    }
+
+    VLogList vLogList = new VLogList(options);
+    try {
+      VLogFile vLogFile = vLogList.getVLog(file.getName()).getvLogFile();
+      assertTrue(vLogFile.hasFooter());
+      assertEquals(dataLength, vLogFile.getSize());
+      assertTrue(file.length() < preallocation);
+      try (Stream<VLogEntryDescription> entries = vLogFile.stream()) {
+        assertEquals(10, entries.count());
+      }
+      // the youngest file is written further
+      try (VLog vLog = vLogList.getNextAvailableVLog()) {
+        assertEquals(VLogFile.getFilePathName(new File(DB_PATH), 2).getName(), vLog.getName());
+      }
+    } finally {
+      vLogList.close();
+    }
+  }
+
+  @Test
+  public void testDeleteCachedReader() throws IOException {
+    for (int number = 1; number <= 2; number++) {
+      try (VLogFile vLogFile = new VLogFile(options, number)) {
+        vLogFile.put("family", "key".getBytes(StandardCharsets.UTF_8), 0, new byte[1024]);
+      }
+    }
+    String name = VLogFile.getFilePathName(new File(DB_PATH), 1).getName();
+    VLogList vLogList = new VLogList(options);
+    try {
+      VLog cached = vLogList.getVLog(name);
+      assertTrue(vLogList.delete(name));
+
+      // a file with the same name again, the closed reader is not in the cache anymore
+      try (VLogFile vLogFile = new VLogFile(options, 1)) {
+        for (int i = 0; i < 3; i++) {
+          vLogFile.put("family", String.format("key%06d", i).getBytes(StandardCharsets.UTF_8), 0, new byte[1024]);
+        }
+      }
+      VLog vLog = vLogList.getVLog(name);
+      assertNotSame(cached, vLog);
+      try (Stream<VLogEntryDescription> entries = vLog.stream()) {
+        assertEquals(3, entries.count());
+      }
+    } finally {
+      vLogList.close();
+    }
+  }
+}
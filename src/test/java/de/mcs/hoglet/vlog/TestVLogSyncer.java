@@ -0,0 +1,120 @@
+/**
+ * Copyright 2019 w.klaas
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mcs.hoglet.vlog;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.mcs.hoglet.Durability;
+import de.mcs.hoglet.HogletDB;
+import de.mcs.hoglet.Options;
+import de.mcs.utils.Files;
+
+/**
+ * @author w.klaas
+ *
+ */
+public class TestVLogSyncer {
+
+  private static final String DB_PATH = "e:/temp/hoglet/vlogsync";
+  private static final String COLLECTION = "sync";
+  private Options options;
+
+  @BeforeEach
+  public void before() throws IOException, InterruptedException {
+    File filePath = new File(DB_PATH);
+    if (filePath.exists()) {
+      Files.remove(filePath, true);
+      Thread.sleep(100);
+    }
+    filePath.mkdirs();
+    options = Options.defaultOptions().withPath(DB_PATH).withVLogGcInterval(0);
+  }
+
+  private byte[] key(int i) {
+    return String.format("key%06d", i).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void waitForSync(VLogSyncer syncer) throws InterruptedException {
+    for (int i = 0; (i < 100) && (syncer.getSyncCount() == 0); i++) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testInterval() throws IOException, InterruptedException {
+    options.withDurability(Durability.INTERVAL).withSyncInterval(50);
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      VLogSyncer syncer = hogletDB.getVLogSyncer();
+      hogletDB.put(key(1), new byte[1024]);
+      assertTrue(syncer.getUnsyncedBytes() > 1024);
+      waitForSync(syncer);
+      assertEquals(1, syncer.getSyncCount());
+      assertEquals(0, syncer.getUnsyncedBytes());
+    }
+  }
+
+  @Test
+  public void testBytes() throws IOException, InterruptedException {
+    options.withDurability(Durability.BYTES).withSyncBytes(10 * 1024);
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      VLogSyncer syncer = hogletDB.getVLogSyncer();
+      for (int i = 0; i < 5; i++) {
+        hogletDB.put(key(i), new byte[1024]);
+      }
+      Thread.sleep(100);
+      assertEquals(0, syncer.getSyncCount());
+      for (int i = 5; i < 10; i++) {
+        hogletDB.put(key(i), new byte[1024]);
+      }
+      waitForSync(syncer);
+      assertEquals(1, syncer.getSyncCount());
+    }
+  }
+
+  @Test
+  public void testOS() throws IOException, InterruptedException {
+    options.withDurability(Durability.OS);
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      VLogSyncer syncer = hogletDB.getVLogSyncer();
+      for (int i = 0; i < 10; i++) {
+        hogletDB.put(COLLECTION, key(i), key(i));
+      }
+      Thread.sleep(100);
+      assertEquals(0, syncer.getSyncCount());
+      assertTrue(syncer.getUnsyncedBytes() > 0);
+
+      // a single write can demand a sync
+      hogletDB.put(COLLECTION, key(10), key(10), Durability.ALWAYS);
+      hogletDB.remove(COLLECTION, key(0), Durability.ALWAYS);
+    }
+    try (HogletDB hogletDB = new HogletDB(options)) {
+      assertNull(hogletDB.get(COLLECTION, key(0)));
+      for (int i = 1; i <= 10; i++) {
+        assertArrayEquals(key(i), hogletDB.get(COLLECTION, key(i)));
+      }
+    }
+  }
+}